@@ -0,0 +1,40 @@
+package com.github.golgolex.anyth.annotations;
+
+/*
+ * Copyright 2024 anyth contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks the constructor decoded objects are created through, so their fields can be
+ * {@code final}. Every parameter receives the stored value of the field with the same name.
+ * <p>
+ * The field names are taken from {@link #value()}, from the parameter names if the class is
+ * compiled with {@code -parameters}, or otherwise from the declaration order of the fields.
+ * Records don't need the annotation, they are created through their canonical constructor.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.CONSTRUCTOR)
+public @interface AnythConstructor {
+
+    /**
+     * @return The field names of the parameters, in parameter order.
+     */
+    String[] value() default {};
+}
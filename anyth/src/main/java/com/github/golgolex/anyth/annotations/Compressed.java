@@ -0,0 +1,39 @@
+package com.github.golgolex.anyth.annotations;
+
+/*
+ * Copyright 2024 anyth contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Deflates a {@code String} or {@code byte[]} field into a single binary value when its UTF-8
+ * form reaches the threshold. Shorter and incompressible values are stored as usual, and decoding
+ * accepts both forms, so the annotation can be added to or removed from a field without
+ * migrating stored documents. Compressed values can't be queried or indexed by their content.
+ * Other field types ignore the annotation.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.FIELD)
+public @interface Compressed {
+
+    /**
+     * @return The size in bytes from which values are compressed.
+     */
+    int threshold() default 1024;
+}
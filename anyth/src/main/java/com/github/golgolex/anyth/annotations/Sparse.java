@@ -0,0 +1,38 @@
+package com.github.golgolex.anyth.annotations;
+
+/*
+ * Copyright 2024 anyth contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import com.github.golgolex.anyth.codec.SparseMode;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Sets the {@link SparseMode} of a class, overriding the mode of the repository it is stored in.
+ * Nested objects use the mode of their own class.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface Sparse {
+
+    /**
+     * @return The fields left out of written documents.
+     */
+    SparseMode value() default SparseMode.NULLS;
+}
@@ -0,0 +1,35 @@
+package com.github.golgolex.anyth.codec;
+
+/*
+ * Copyright 2024 anyth contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * How a layer serializer walks the fields of a class.
+ */
+public enum CodecMode {
+
+    /**
+     * Walks the {@link CodecPlan} of the class and resolves layers per value.
+     */
+    REFLECTIVE,
+
+    /**
+     * Builds a specialized codec per class on first use, with constructor and accessors spun
+     * through {@link LambdaAccessors} and layers resolved up front. Classes the generator
+     * can't handle use the reflective path.
+     */
+    GENERATED
+}
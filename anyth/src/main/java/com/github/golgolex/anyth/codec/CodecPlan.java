@@ -0,0 +1,156 @@
+package com.github.golgolex.anyth.codec;
+
+/*
+ * Copyright 2024 anyth contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import com.github.golgolex.anyth.annotations.Sparse;
+import lombok.AccessLevel;
+import lombok.Getter;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The reflective walk over a class, done once.
+ * <p>
+ * A plan records the ordered fields a layer serializer reads and writes for a class,
+ * already filtered (transient, static and the String {@code hash} fields are skipped, final
+ * fields unless they are set through a creator constructor) and wrapped in a
+ * {@link FieldAccessor}. How instances are created is resolved into an {@link Instantiator}.
+ * Plans are cached per class in a {@link ClassValue}, so they are built on first use and
+ * released together with the class.
+ */
+@Getter
+public final class CodecPlan {
+
+    private static final ClassValue<CodecPlan> PLANS = new ClassValue<>() {
+        @Override
+        protected CodecPlan computeValue(Class<?> type) {
+            return new CodecPlan(type);
+        }
+    };
+
+    private final Class<?> type;
+
+    private final List<FieldPlan> fields;
+
+    @Getter(AccessLevel.NONE)
+    private final Map<String, FieldPlan> fieldsByName;
+
+    private final Instantiator instantiator;
+
+    /**
+     * The mode set through {@link Sparse}, null if the class isn't annotated.
+     */
+    private final SparseMode sparseMode;
+
+    private CodecPlan(Class<?> type) {
+        this.type = type;
+        Sparse sparse = type.getAnnotation(Sparse.class);
+        this.sparseMode = sparse != null ? sparse.value() : null;
+
+        List<Field> candidates = new ArrayList<>();
+        for (Field field : type.getDeclaredFields()) {
+            if (isEligible(field)) {
+                candidates.add(field);
+            }
+        }
+        this.instantiator = Instantiator.of(type, candidates);
+
+        List<FieldPlan> fields = new ArrayList<>();
+        for (Field field : candidates) {
+            boolean settable = !Modifier.isFinal(field.getModifiers()) || this.instantiator.isParameter(field.getName());
+            if (settable && field.trySetAccessible()) {
+                fields.add(new FieldPlan(field, fields.size()));
+            }
+        }
+        this.fields = Collections.unmodifiableList(fields);
+        this.instantiator.bind(this.fields);
+
+        this.fieldsByName = new HashMap<>(fields.size() * 2);
+        for (FieldPlan field : fields) {
+            FieldPlan previous = this.fieldsByName.put(field.getName(), field);
+            if (previous != null) {
+                throw new IllegalArgumentException(type.getName() + " stores both " + previous.getField().getName()
+                        + " and " + field.getField().getName() + " as " + field.getName());
+            }
+        }
+    }
+
+    /**
+     * Returns the cached plan for the specified class, building it on first use.
+     *
+     * @param type The class to plan.
+     * @return The plan of the class.
+     */
+    public static CodecPlan of(Class<?> type) {
+        return PLANS.get(type);
+    }
+
+    /**
+     * Returns the field stored under the specified name.
+     *
+     * @param name The stored field name.
+     * @return The field, or null if the class has no such field.
+     */
+    public FieldPlan getField(String name) {
+        return this.fieldsByName.get(name);
+    }
+
+    /**
+     * Translates a field name into the name it is stored under.
+     *
+     * @param name The field name in the class.
+     * @return The stored name, or the specified name if the class has no such field.
+     * @see com.github.golgolex.anyth.annotations.StoredAs
+     */
+    public String getStoredName(String name) {
+        for (FieldPlan field : this.fields) {
+            if (field.getField().getName().equals(name)) {
+                return field.getName();
+            }
+        }
+        return name;
+    }
+
+    /**
+     * Creates a new instance of the planned class through its no-arg constructor.
+     *
+     * @return The new instance.
+     * @throws NoSuchMethodException     If the class has no accessible no-arg constructor or is
+     *                                   created through a creator constructor.
+     * @throws InvocationTargetException If the constructor throws.
+     * @see Instantiator#newInstance(Object[])
+     */
+    public Object newInstance() throws NoSuchMethodException, InvocationTargetException {
+        return this.instantiator.newInstance();
+    }
+
+    private static boolean isEligible(Field field) {
+        int modifiers = field.getModifiers();
+        return !(Modifier.isTransient(modifiers)
+                || Modifier.isStatic(modifiers)
+                || field.isSynthetic()
+                || field.getName().equals("hash")
+                || field.getName().equals("hashIsZero"));
+    }
+}
@@ -0,0 +1,131 @@
+package com.github.golgolex.anyth.codec;
+
+/*
+ * Copyright 2024 anyth contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of a {@link ValueCompressor}, updated without locking.
+ */
+public final class CompressionMetrics {
+
+    private final LongAdder compressedValues = new LongAdder();
+
+    private final LongAdder skippedValues = new LongAdder();
+
+    private final LongAdder uncompressedBytes = new LongAdder();
+
+    private final LongAdder compressedBytes = new LongAdder();
+
+    private final LongAdder compressNanos = new LongAdder();
+
+    private final LongAdder decompressedValues = new LongAdder();
+
+    private final LongAdder decompressNanos = new LongAdder();
+
+    void recordCompressed(int uncompressedLength, int compressedLength, long nanos) {
+        this.compressedValues.increment();
+        this.uncompressedBytes.add(uncompressedLength);
+        this.compressedBytes.add(compressedLength);
+        this.compressNanos.add(nanos);
+    }
+
+    void recordSkipped(long nanos) {
+        this.skippedValues.increment();
+        this.compressNanos.add(nanos);
+    }
+
+    void recordDecompressed(long nanos) {
+        this.decompressedValues.increment();
+        this.decompressNanos.add(nanos);
+    }
+
+    /**
+     * @return The number of values stored compressed.
+     */
+    public long getCompressedValues() {
+        return this.compressedValues.sum();
+    }
+
+    /**
+     * @return The number of values that reached the threshold but didn't get smaller, and were
+     * stored uncompressed.
+     */
+    public long getSkippedValues() {
+        return this.skippedValues.sum();
+    }
+
+    /**
+     * @return The total size of the compressed values before compression.
+     */
+    public long getUncompressedBytes() {
+        return this.uncompressedBytes.sum();
+    }
+
+    /**
+     * @return The total size of the compressed values after compression.
+     */
+    public long getCompressedBytes() {
+        return this.compressedBytes.sum();
+    }
+
+    /**
+     * @return The time spent compressing, including the values that were skipped.
+     */
+    public long getCompressNanos() {
+        return this.compressNanos.sum();
+    }
+
+    public long getDecompressedValues() {
+        return this.decompressedValues.sum();
+    }
+
+    public long getDecompressNanos() {
+        return this.decompressNanos.sum();
+    }
+
+    /**
+     * @return The compressed size of the compressed values as a fraction of their original size,
+     * 1 if nothing was compressed yet.
+     */
+    public double getRatio() {
+        long uncompressed = getUncompressedBytes();
+        return uncompressed == 0 ? 1D : (double) getCompressedBytes() / uncompressed;
+    }
+
+    public void reset() {
+        this.compressedValues.reset();
+        this.skippedValues.reset();
+        this.uncompressedBytes.reset();
+        this.compressedBytes.reset();
+        this.compressNanos.reset();
+        this.decompressedValues.reset();
+        this.decompressNanos.reset();
+    }
+
+    @Override
+    public String toString() {
+        long compressed = getCompressedValues() + getSkippedValues();
+        long decompressed = getDecompressedValues();
+        return String.format(Locale.ROOT,
+                "compressed %d values (%d skipped), ratio %.3f, %.1f us/compress, %.1f us/decompress",
+                getCompressedValues(), getSkippedValues(), getRatio(),
+                compressed == 0 ? 0D : getCompressNanos() / 1000D / compressed,
+                decompressed == 0 ? 0D : getDecompressNanos() / 1000D / decompressed);
+    }
+}
@@ -0,0 +1,205 @@
+package com.github.golgolex.anyth.codec;
+
+/*
+ * Copyright 2024 anyth contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+
+/**
+ * Reads and writes a single field through method handles, created once per field.
+ * <p>
+ * The generic {@link #get(Object)} and {@link #set(Object, Object)} handles are adapted to
+ * {@code (Object)Object} and {@code (Object, Object)void}, so every call site is an
+ * {@code invokeExact} without access checks. Primitive fields additionally get handles
+ * typed to their primitive, so {@link #getInt(Object)}, {@link #setLong(Object, long)} and
+ * friends never box.
+ */
+public final class FieldAccessor {
+
+    private static final MethodType GETTER = MethodType.methodType(Object.class, Object.class);
+    private static final MethodType SETTER = MethodType.methodType(void.class, Object.class, Object.class);
+
+    private final Field field;
+
+    private final MethodHandle getter;
+
+    private final MethodHandle setter;
+
+    private final MethodHandle primitiveGetter;
+
+    private final MethodHandle primitiveSetter;
+
+    private FieldAccessor(Field field,
+                          MethodHandle getter,
+                          MethodHandle setter) {
+        this.field = field;
+        this.getter = getter.asType(GETTER);
+        this.setter = setter != null ? setter.asType(SETTER) : null;
+
+        Class<?> type = field.getType();
+        if (type.isPrimitive()) {
+            this.primitiveGetter = getter.asType(MethodType.methodType(type, Object.class));
+            this.primitiveSetter = setter != null ? setter.asType(MethodType.methodType(void.class, Object.class, type)) : null;
+        } else {
+            this.primitiveGetter = null;
+            this.primitiveSetter = null;
+        }
+    }
+
+    /**
+     * Creates an accessor for the specified field.
+     *
+     * @param field The field to access.
+     * @return The accessor of the field.
+     * @throws IllegalArgumentException If the field can't be accessed.
+     */
+    public static FieldAccessor of(Field field) {
+        try {
+            MethodHandles.Lookup lookup = lookup(field.getDeclaringClass());
+            MethodHandle setter = Modifier.isFinal(field.getModifiers()) ? null : lookup.unreflectSetter(field);
+            return new FieldAccessor(field, lookup.unreflectGetter(field), setter);
+        } catch (IllegalAccessException exception) {
+            throw new IllegalArgumentException("Field [" + field + "] is not accessible", exception);
+        }
+    }
+
+    private static MethodHandles.Lookup lookup(Class<?> declaringClass) {
+        try {
+            return MethodHandles.privateLookupIn(declaringClass, MethodHandles.lookup());
+        } catch (IllegalAccessException exception) {
+            // the package isn't opened to us, fall back to the accessible flag of the field
+            return MethodHandles.lookup();
+        }
+    }
+
+    public Field getField() {
+        return field;
+    }
+
+    public boolean isWritable() {
+        return setter != null;
+    }
+
+    public Object get(Object instance) {
+        try {
+            return (Object) getter.invokeExact(instance);
+        } catch (Throwable throwable) {
+            throw rethrow(throwable);
+        }
+    }
+
+    public void set(Object instance, Object value) {
+        try {
+            setter.invokeExact(instance, value);
+        } catch (Throwable throwable) {
+            throw rethrow(throwable);
+        }
+    }
+
+    public int getInt(Object instance) {
+        try {
+            return (int) primitiveGetter.invokeExact(instance);
+        } catch (Throwable throwable) {
+            throw rethrow(throwable);
+        }
+    }
+
+    public void setInt(Object instance, int value) {
+        try {
+            primitiveSetter.invokeExact(instance, value);
+        } catch (Throwable throwable) {
+            throw rethrow(throwable);
+        }
+    }
+
+    public long getLong(Object instance) {
+        try {
+            return (long) primitiveGetter.invokeExact(instance);
+        } catch (Throwable throwable) {
+            throw rethrow(throwable);
+        }
+    }
+
+    public void setLong(Object instance, long value) {
+        try {
+            primitiveSetter.invokeExact(instance, value);
+        } catch (Throwable throwable) {
+            throw rethrow(throwable);
+        }
+    }
+
+    public boolean getBoolean(Object instance) {
+        try {
+            return (boolean) primitiveGetter.invokeExact(instance);
+        } catch (Throwable throwable) {
+            throw rethrow(throwable);
+        }
+    }
+
+    public void setBoolean(Object instance, boolean value) {
+        try {
+            primitiveSetter.invokeExact(instance, value);
+        } catch (Throwable throwable) {
+            throw rethrow(throwable);
+        }
+    }
+
+    public char getChar(Object instance) {
+        try {
+            return (char) primitiveGetter.invokeExact(instance);
+        } catch (Throwable throwable) {
+            throw rethrow(throwable);
+        }
+    }
+
+    public void setChar(Object instance, char value) {
+        try {
+            primitiveSetter.invokeExact(instance, value);
+        } catch (Throwable throwable) {
+            throw rethrow(throwable);
+        }
+    }
+
+    public double getDouble(Object instance) {
+        try {
+            return (double) primitiveGetter.invokeExact(instance);
+        } catch (Throwable throwable) {
+            throw rethrow(throwable);
+        }
+    }
+
+    public void setDouble(Object instance, double value) {
+        try {
+            primitiveSetter.invokeExact(instance, value);
+        } catch (Throwable throwable) {
+            throw rethrow(throwable);
+        }
+    }
+
+    static RuntimeException rethrow(Throwable throwable) {
+        if (throwable instanceof RuntimeException runtimeException) {
+            return runtimeException;
+        }
+        if (throwable instanceof Error error) {
+            throw error;
+        }
+        return new IllegalStateException(throwable);
+    }
+}
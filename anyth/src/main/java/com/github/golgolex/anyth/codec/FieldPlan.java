@@ -0,0 +1,197 @@
+package com.github.golgolex.anyth.codec;
+
+/*
+ * Copyright 2024 anyth contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import com.github.golgolex.anyth.annotations.Compressed;
+import com.github.golgolex.anyth.annotations.Packed;
+import com.github.golgolex.anyth.annotations.StoredAs;
+import lombok.Getter;
+
+import java.lang.reflect.Field;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * A single field of a {@link CodecPlan}.
+ */
+@Getter
+public final class FieldPlan {
+
+    public enum Kind {
+        VALUE,
+        /**
+         * An {@code int[]}, {@code long[]} or {@code double[]} field.
+         */
+        PRIMITIVE_ARRAY,
+        COLLECTION,
+        MAP
+    }
+
+    private final Field field;
+
+    /**
+     * The position of the field in {@link CodecPlan#getFields()}.
+     */
+    private final int index;
+
+    private final FieldAccessor accessor;
+
+    /**
+     * The name the field is stored under, see {@link #storedName(Field)}.
+     */
+    private final String name;
+
+    private final Class<?> type;
+
+    /**
+     * The wrapper type for primitive fields, the declared type otherwise.
+     */
+    private final Class<?> boxedType;
+
+    /**
+     * The declared type with its type arguments, e.g. {@code Map<UUID, List<String>>}.
+     */
+    private final GenericType genericType;
+
+    /**
+     * The Java default of the field: null, or the zero value for primitive fields.
+     */
+    private final Object defaultValue;
+
+    private final Kind kind;
+
+    /**
+     * The raw element type of a collection field or the component type of a primitive
+     * array field, null if the collection type isn't parameterized.
+     */
+    private final Class<?> elementType;
+
+    /**
+     * Whether the field is annotated with {@link Packed} and its element type can be packed.
+     */
+    private final boolean packed;
+
+    /**
+     * The size from which values of a {@link Compressed} String or byte[] field are compressed,
+     * -1 for fields that aren't compressed.
+     */
+    private final int compressionThreshold;
+
+    FieldPlan(Field field, int index) {
+        this.field = field;
+        this.index = index;
+        this.accessor = FieldAccessor.of(field);
+        this.name = storedName(field);
+        this.type = field.getType();
+        this.boxedType = box(this.type);
+        this.genericType = GenericType.of(field.getGenericType());
+        this.defaultValue = defaultValue(this.type);
+
+        if (this.type == int[].class || this.type == long[].class || this.type == double[].class) {
+            this.kind = Kind.PRIMITIVE_ARRAY;
+        } else if (Collection.class.isAssignableFrom(this.type)) {
+            this.kind = Kind.COLLECTION;
+        } else if (Map.class.isAssignableFrom(this.type)) {
+            this.kind = Kind.MAP;
+        } else {
+            this.kind = Kind.VALUE;
+        }
+
+        this.elementType = switch (this.kind) {
+            case PRIMITIVE_ARRAY -> this.type.getComponentType();
+            case COLLECTION -> rawArgument(this.genericType, 0);
+            default -> null;
+        };
+        this.packed = field.isAnnotationPresent(Packed.class)
+                && this.elementType != null
+                && (this.kind == Kind.PRIMITIVE_ARRAY || isPackable(this.elementType));
+        Compressed compressed = field.getAnnotation(Compressed.class);
+        this.compressionThreshold = compressed != null && isCompressible(this.type) ? Math.max(compressed.threshold(), 0) : -1;
+    }
+
+    public boolean isCompressed() {
+        return this.compressionThreshold >= 0;
+    }
+
+    public Object get(Object instance) {
+        return this.accessor.get(instance);
+    }
+
+    public void set(Object instance, Object value) {
+        this.accessor.set(instance, value);
+    }
+
+    /**
+     * Returns the name a field is stored under: the value of its {@link StoredAs} annotation,
+     * or the field name if it isn't annotated.
+     *
+     * @param field The field.
+     * @return The stored name.
+     */
+    public static String storedName(Field field) {
+        StoredAs storedAs = field.getAnnotation(StoredAs.class);
+        return storedAs != null ? storedAs.value() : field.getName();
+    }
+
+    /**
+     * @return Whether values of the specified boxed type can be packed by {@link Packed}.
+     */
+    public static boolean isPackable(Class<?> type) {
+        return type == Integer.class || type == Long.class || type == Double.class;
+    }
+
+    /**
+     * @return Whether fields of the specified type can be compressed by {@link Compressed}.
+     */
+    public static boolean isCompressible(Class<?> type) {
+        return type == String.class || type == byte[].class;
+    }
+
+    private static Class<?> rawArgument(GenericType genericType, int index) {
+        GenericType argument = genericType.getArgument(index);
+        return argument != null ? argument.getRawType() : null;
+    }
+
+    static Object defaultValue(Class<?> type) {
+        if (!type.isPrimitive()) {
+            return null;
+        }
+        if (type == boolean.class) return false;
+        if (type == char.class) return '\0';
+        if (type == byte.class) return (byte) 0;
+        if (type == short.class) return (short) 0;
+        if (type == int.class) return 0;
+        if (type == long.class) return 0L;
+        if (type == float.class) return 0F;
+        return 0D;
+    }
+
+    static Class<?> box(Class<?> type) {
+        if (!type.isPrimitive()) {
+            return type;
+        }
+        if (type == int.class) return Integer.class;
+        if (type == long.class) return Long.class;
+        if (type == boolean.class) return Boolean.class;
+        if (type == char.class) return Character.class;
+        if (type == double.class) return Double.class;
+        if (type == float.class) return Float.class;
+        if (type == short.class) return Short.class;
+        if (type == byte.class) return Byte.class;
+        return Void.class;
+    }
+}
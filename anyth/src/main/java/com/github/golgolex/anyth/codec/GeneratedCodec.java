@@ -0,0 +1,84 @@
+package com.github.golgolex.anyth.codec;
+
+/*
+ * Copyright 2024 anyth contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import com.github.golgolex.anyth.impl.mongodb.DocumentLayerSerializer;
+import com.github.golgolex.anyth.layer.LayerRegistry;
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import org.bson.Document;
+
+import java.io.IOException;
+
+/**
+ * A codec generated at build time for a class annotated with
+ * {@link com.github.golgolex.anyth.annotations.AnythEntity}.
+ * <p>
+ * Implementations are written by the anyth annotation processor and discovered through
+ * {@link GeneratedCodecs}. They read and write the fields of the class directly and only call
+ * back into the serializers for field values.
+ *
+ * @param <T> The class the codec handles.
+ */
+public interface GeneratedCodec<T> {
+
+    /**
+     * @return The class the codec handles.
+     */
+    Class<T> type();
+
+    /**
+     * Encodes an object into a document for the MongoDB layer serializer.
+     *
+     * @param object        The object to encode.
+     * @param serializer    The serializer encoding the field values.
+     * @param layerRegistry The registry holding the layers of the repository.
+     * @return The encoded document.
+     */
+    Document encodeDocument(T object, DocumentLayerSerializer serializer, LayerRegistry<?> layerRegistry);
+
+    /**
+     * Decodes an object from a document of the MongoDB layer serializer.
+     *
+     * @param document      The document to decode.
+     * @param serializer    The serializer decoding the field values.
+     * @param layerRegistry The registry holding the layers of the repository.
+     * @return The decoded object.
+     */
+    T decodeDocument(Document document, DocumentLayerSerializer serializer, LayerRegistry<?> layerRegistry);
+
+    /**
+     * Writes an object as a JSON object for the Redis layer serializer.
+     *
+     * @param writer The writer to write to.
+     * @param object The object to write.
+     * @param gson   The Gson instance writing the field values.
+     * @throws IOException If the writer fails.
+     */
+    void writeJson(JsonWriter writer, T object, Gson gson) throws IOException;
+
+    /**
+     * Reads an object from a JSON object for the Redis layer serializer.
+     *
+     * @param reader The reader to read from, positioned at the object.
+     * @param gson   The Gson instance reading the field values.
+     * @return The read object.
+     * @throws IOException If the reader fails.
+     */
+    T readJson(JsonReader reader, Gson gson) throws IOException;
+}
@@ -0,0 +1,108 @@
+package com.github.golgolex.anyth.codec;
+
+/*
+ * Copyright 2024 anyth contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import com.github.golgolex.anyth.Anyth;
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.logging.Level;
+
+/**
+ * The index of all {@link GeneratedCodec}s on the classpath.
+ * <p>
+ * The annotation processor lists every generated codec in
+ * {@code META-INF/services/com.github.golgolex.anyth.codec.GeneratedCodec}; the index is loaded
+ * through {@link ServiceLoader} on first use.
+ */
+public final class GeneratedCodecs {
+
+    private GeneratedCodecs() {
+    }
+
+    /**
+     * Returns the generated codec of the specified class.
+     *
+     * @param type The class to look up.
+     * @param <T>  The class type.
+     * @return The generated codec, or null if the class has none.
+     */
+    public static <T> GeneratedCodec<T> find(Class<T> type) {
+        return (GeneratedCodec<T>) Index.CODECS.get(type);
+    }
+
+    /**
+     * @return A Gson factory handing out adapters backed by the generated codecs.
+     */
+    public static TypeAdapterFactory gsonTypeAdapterFactory() {
+        return new TypeAdapterFactory() {
+            @Override
+            public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> typeToken) {
+                GeneratedCodec<T> codec = (GeneratedCodec<T>) find(typeToken.getRawType());
+                if (codec == null) {
+                    return null;
+                }
+                return new TypeAdapter<>() {
+                    @Override
+                    public void write(JsonWriter writer, T value) throws IOException {
+                        if (value == null) {
+                            writer.nullValue();
+                            return;
+                        }
+                        codec.writeJson(writer, value, gson);
+                    }
+
+                    @Override
+                    public T read(JsonReader reader) throws IOException {
+                        if (reader.peek() == JsonToken.NULL) {
+                            reader.nextNull();
+                            return null;
+                        }
+                        return codec.readJson(reader, gson);
+                    }
+                };
+            }
+        };
+    }
+
+    private static final class Index {
+
+        private static final Map<Class<?>, GeneratedCodec<?>> CODECS = load();
+
+        private static Map<Class<?>, GeneratedCodec<?>> load() {
+            Map<Class<?>, GeneratedCodec<?>> codecs = new HashMap<>();
+            try {
+                for (GeneratedCodec<?> codec : ServiceLoader.load(GeneratedCodec.class, GeneratedCodec.class.getClassLoader())) {
+                    codecs.put(codec.type(), codec);
+                }
+            } catch (ServiceConfigurationError error) {
+                Anyth.LOGGER.log(Level.WARNING, "Couldn't load the generated codec index", error);
+            }
+            return codecs;
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package com.github.golgolex.anyth.codec;
+
+/*
+ * Copyright 2024 anyth contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.IntFunction;
+
+/**
+ * A declared field type with its type arguments, resolved once per field.
+ * <p>
+ * Collection and map types also carry a factory for the container decoders fill: the declared
+ * class if it is concrete, otherwise a matching implementation ({@code List} to
+ * {@code ArrayList}, {@code Set} to {@code LinkedHashSet}, {@code SortedSet} to {@code TreeSet},
+ * {@code EnumSet} to {@link EnumSet#noneOf(Class)}, ...). The factories take the number of
+ * elements, so hash based containers are created with a matching capacity.
+ */
+public final class GenericType {
+
+    private static final GenericType[] NO_ARGUMENTS = new GenericType[0];
+
+    private final Class<?> rawType;
+
+    private final GenericType[] arguments;
+
+    private final IntFunction<Collection<Object>> collectionFactory;
+
+    private final IntFunction<Map<Object, Object>> mapFactory;
+
+    private GenericType(Class<?> rawType, GenericType[] arguments) {
+        this.rawType = rawType;
+        this.arguments = arguments;
+
+        Class<?> firstArgument = arguments.length > 0 ? arguments[0].rawType : null;
+        this.collectionFactory = Collection.class.isAssignableFrom(rawType) ? collectionFactory(rawType, firstArgument) : null;
+        this.mapFactory = Map.class.isAssignableFrom(rawType) ? mapFactory(rawType, firstArgument) : null;
+    }
+
+    /**
+     * Resolves a reflected type. Wildcards and type variables are resolved to their upper bound.
+     *
+     * @param type The type to resolve.
+     * @return The resolved type.
+     */
+    public static GenericType of(Type type) {
+        if (type instanceof Class<?> rawType) {
+            return new GenericType(rawType, NO_ARGUMENTS);
+        }
+        if (type instanceof ParameterizedType parameterizedType) {
+            Type[] typeArguments = parameterizedType.getActualTypeArguments();
+            GenericType[] arguments = new GenericType[typeArguments.length];
+            for (int i = 0; i < arguments.length; i++) {
+                arguments[i] = of(typeArguments[i]);
+            }
+            return new GenericType((Class<?>) parameterizedType.getRawType(), arguments);
+        }
+        if (type instanceof WildcardType wildcardType) {
+            return of(wildcardType.getUpperBounds()[0]);
+        }
+        if (type instanceof TypeVariable<?> typeVariable) {
+            return of(typeVariable.getBounds()[0]);
+        }
+        if (type instanceof GenericArrayType genericArrayType) {
+            return new GenericType(of(genericArrayType.getGenericComponentType()).rawType.arrayType(), NO_ARGUMENTS);
+        }
+        return new GenericType(Object.class, NO_ARGUMENTS);
+    }
+
+    public Class<?> getRawType() {
+        return this.rawType;
+    }
+
+    /**
+     * @param index The index of the type argument.
+     * @return The type argument, or null if the type has no such argument.
+     */
+    public GenericType getArgument(int index) {
+        return index < this.arguments.length ? this.arguments[index] : null;
+    }
+
+    public boolean isCollection() {
+        return this.collectionFactory != null;
+    }
+
+    public boolean isMap() {
+        return this.mapFactory != null;
+    }
+
+    /**
+     * Creates an empty collection of the declared type.
+     *
+     * @param size The number of elements that will be added.
+     * @return The collection.
+     */
+    public Collection<Object> newCollection(int size) {
+        return this.collectionFactory.apply(size);
+    }
+
+    /**
+     * Creates an empty map of the declared type.
+     *
+     * @param size The number of entries that will be added.
+     * @return The map.
+     */
+    public Map<Object, Object> newMap(int size) {
+        return this.mapFactory.apply(size);
+    }
+
+    @Override
+    public String toString() {
+        if (this.arguments.length == 0) {
+            return this.rawType.getName();
+        }
+        StringJoiner joiner = new StringJoiner(", ", this.rawType.getName() + "<", ">");
+        for (GenericType argument : this.arguments) {
+            joiner.add(argument.toString());
+        }
+        return joiner.toString();
+    }
+
+    private static IntFunction<Collection<Object>> collectionFactory(Class<?> rawType, Class<?> elementType) {
+        if (EnumSet.class.isAssignableFrom(rawType) && elementType != null && elementType.isEnum()) {
+            return size -> newEnumSet(elementType);
+        }
+        if (rawType == ArrayList.class || rawType.isAssignableFrom(ArrayList.class)) {
+            return ArrayList::new;
+        }
+        if (rawType == LinkedHashSet.class || rawType.isAssignableFrom(LinkedHashSet.class)) {
+            return size -> new LinkedHashSet<>(capacity(size));
+        }
+        if (rawType == HashSet.class) {
+            return size -> new HashSet<>(capacity(size));
+        }
+        if (rawType.isAssignableFrom(TreeSet.class)) {
+            return size -> new TreeSet<>();
+        }
+        if (rawType.isAssignableFrom(ArrayDeque.class)) {
+            return ArrayDeque::new;
+        }
+
+        MethodHandle constructor = constructor(rawType);
+        if (constructor == null) {
+            return ArrayList::new;
+        }
+        return size -> newInstance(constructor);
+    }
+
+    private static IntFunction<Map<Object, Object>> mapFactory(Class<?> rawType, Class<?> keyType) {
+        if (EnumMap.class.isAssignableFrom(rawType) && keyType != null && keyType.isEnum()) {
+            return size -> newEnumMap(keyType);
+        }
+        if (rawType == LinkedHashMap.class || rawType.isAssignableFrom(LinkedHashMap.class)) {
+            return size -> new LinkedHashMap<>(capacity(size));
+        }
+        if (rawType == HashMap.class) {
+            return size -> new HashMap<>(capacity(size));
+        }
+        if (rawType.isAssignableFrom(TreeMap.class)) {
+            return size -> new TreeMap<>();
+        }
+        if (rawType == ConcurrentHashMap.class || rawType.isAssignableFrom(ConcurrentHashMap.class)) {
+            return size -> new ConcurrentHashMap<>(capacity(size));
+        }
+        if (ConcurrentMap.class.isAssignableFrom(rawType) && rawType.isInterface()) {
+            return size -> new java.util.concurrent.ConcurrentSkipListMap<>();
+        }
+
+        MethodHandle constructor = constructor(rawType);
+        if (constructor == null) {
+            return size -> new LinkedHashMap<>(capacity(size));
+        }
+        return size -> newInstance(constructor);
+    }
+
+    /**
+     * Creates an empty {@link EnumSet} of an enum class only known at runtime.
+     */
+    @SuppressWarnings("unchecked")
+    private static <E extends Enum<E>> Collection<Object> newEnumSet(Class<?> elementType) {
+        return (Collection<Object>) (Collection<?>) EnumSet.noneOf((Class<E>) elementType);
+    }
+
+    /**
+     * Creates an empty {@link EnumMap} of an enum class only known at runtime.
+     */
+    @SuppressWarnings("unchecked")
+    private static <K extends Enum<K>> Map<Object, Object> newEnumMap(Class<?> keyType) {
+        return (Map<Object, Object>) (Map<?, ?>) new EnumMap<K, Object>((Class<K>) keyType);
+    }
+
+    private static int capacity(int size) {
+        return (int) (size / 0.75F) + 1;
+    }
+
+    private static MethodHandle constructor(Class<?> rawType) {
+        if (rawType.isInterface() || Modifier.isAbstract(rawType.getModifiers())) {
+            return null;
+        }
+        try {
+            return MethodHandles.publicLookup()
+                    .findConstructor(rawType, MethodType.methodType(void.class))
+                    .asType(MethodType.methodType(Object.class));
+        } catch (ReflectiveOperationException exception) {
+            return null;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T newInstance(MethodHandle constructor) {
+        Object instance;
+        try {
+            instance = (Object) constructor.invokeExact();
+        } catch (Throwable throwable) {
+            throw FieldAccessor.rethrow(throwable);
+        }
+        return (T) instance;
+    }
+}
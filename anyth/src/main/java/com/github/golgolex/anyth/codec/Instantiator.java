@@ -0,0 +1,243 @@
+package com.github.golgolex.anyth.codec;
+
+/*
+ * Copyright 2024 anyth contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import com.github.golgolex.anyth.annotations.AnythConstructor;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Parameter;
+import java.lang.reflect.RecordComponent;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Creates instances of a class through a cached {@link MethodHandle}: the canonical constructor of
+ * a record, a constructor annotated with {@link AnythConstructor}, or the no-arg constructor.
+ * <p>
+ * Decoders of classes with a creator constructor collect the decoded values first, indexed like
+ * {@link CodecPlan#getFields()}, and construct the instance from them with
+ * {@link #newInstance(Object[])}. Such instances can be immutable.
+ */
+public final class Instantiator {
+
+    private final Class<?> type;
+
+    /**
+     * ()Object for the no-arg constructor, (Object[])Object for a creator constructor.
+     */
+    private final MethodHandle constructor;
+
+    /**
+     * The field names of the creator parameters, null for the no-arg constructor.
+     */
+    private final String[] parameterNames;
+
+    private final Object[] parameterDefaults;
+
+    private int[] parameterFields;
+
+    private List<FieldPlan> remainingFields;
+
+    private Instantiator(Class<?> type, MethodHandle constructor, String[] parameterNames, Object[] parameterDefaults) {
+        this.type = type;
+        this.constructor = constructor;
+        this.parameterNames = parameterNames;
+        this.parameterDefaults = parameterDefaults;
+    }
+
+    static Instantiator of(Class<?> type, List<Field> candidates) {
+        Constructor<?> creator = findCreator(type);
+        if (creator == null) {
+            return new Instantiator(type, noArgConstructor(type), null, null);
+        }
+
+        String[] names = parameterNames(type, creator, candidates);
+        Object[] defaults = new Object[names.length];
+        Class<?>[] parameterTypes = creator.getParameterTypes();
+        for (int i = 0; i < defaults.length; i++) {
+            defaults[i] = FieldPlan.defaultValue(parameterTypes[i]);
+        }
+
+        try {
+            MethodHandle handle = MethodHandles.privateLookupIn(type, MethodHandles.lookup())
+                    .unreflectConstructor(creator)
+                    .asType(MethodType.genericMethodType(names.length))
+                    .asSpreader(Object[].class, names.length);
+            return new Instantiator(type, handle, names, defaults);
+        } catch (IllegalAccessException exception) {
+            throw new IllegalArgumentException("Constructor [" + creator + "] is not accessible", exception);
+        }
+    }
+
+    /**
+     * Links the creator parameters to the fields of the finished plan.
+     */
+    void bind(List<FieldPlan> fields) {
+        if (this.parameterNames == null) {
+            return;
+        }
+
+        this.parameterFields = new int[this.parameterNames.length];
+        List<FieldPlan> remainingFields = new ArrayList<>(fields);
+        for (int i = 0; i < this.parameterNames.length; i++) {
+            FieldPlan field = find(fields, this.parameterNames[i]);
+            this.parameterFields[i] = field.getIndex();
+            remainingFields.remove(field);
+        }
+        remainingFields.removeIf(field -> !field.getAccessor().isWritable());
+        this.remainingFields = List.copyOf(remainingFields);
+    }
+
+    /**
+     * @return True if the class is created through a creator constructor taking its field values.
+     */
+    public boolean hasParameters() {
+        return this.parameterNames != null;
+    }
+
+    /**
+     * @param name The field name.
+     * @return True if the field is set through the creator constructor.
+     */
+    public boolean isParameter(String name) {
+        return this.parameterNames != null && Arrays.asList(this.parameterNames).contains(name);
+    }
+
+    /**
+     * Creates an instance through the no-arg constructor.
+     *
+     * @return The new instance.
+     * @throws NoSuchMethodException     If the class is created through a creator constructor or has no
+     *                                   accessible no-arg constructor.
+     * @throws InvocationTargetException If the constructor throws.
+     */
+    public Object newInstance() throws NoSuchMethodException, InvocationTargetException {
+        if (this.parameterNames != null || this.constructor == null) {
+            throw new NoSuchMethodException(this.type.getName() + ".<init>()");
+        }
+        try {
+            return (Object) this.constructor.invokeExact();
+        } catch (Throwable throwable) {
+            throw new InvocationTargetException(throwable);
+        }
+    }
+
+    /**
+     * Creates an instance from decoded field values. A null value stands for a missing field: its
+     * parameter receives null or the primitive default, and a field set after construction keeps
+     * the value assigned by the constructor.
+     *
+     * @param values The decoded values, indexed like {@link CodecPlan#getFields()}.
+     * @return The new instance.
+     * @throws NoSuchMethodException     If the class has no usable constructor.
+     * @throws InvocationTargetException If the constructor throws.
+     */
+    public Object newInstance(Object[] values) throws NoSuchMethodException, InvocationTargetException {
+        if (this.parameterNames == null) {
+            throw new NoSuchMethodException(this.type.getName() + " has no creator constructor");
+        }
+
+        Object[] arguments = new Object[this.parameterFields.length];
+        for (int i = 0; i < arguments.length; i++) {
+            Object value = values[this.parameterFields[i]];
+            arguments[i] = value != null ? value : this.parameterDefaults[i];
+        }
+
+        Object instance;
+        try {
+            instance = (Object) this.constructor.invokeExact(arguments);
+        } catch (Throwable throwable) {
+            throw new InvocationTargetException(throwable);
+        }
+
+        for (FieldPlan field : this.remainingFields) {
+            Object value = values[field.getIndex()];
+            if (value != null) {
+                field.set(instance, value);
+            }
+        }
+        return instance;
+    }
+
+    private static Constructor<?> findCreator(Class<?> type) {
+        if (type.isRecord()) {
+            Class<?>[] componentTypes = Arrays.stream(type.getRecordComponents())
+                    .map(RecordComponent::getType)
+                    .toArray(Class<?>[]::new);
+            try {
+                return type.getDeclaredConstructor(componentTypes);
+            } catch (NoSuchMethodException exception) {
+                return null;
+            }
+        }
+
+        for (Constructor<?> constructor : type.getDeclaredConstructors()) {
+            if (constructor.isAnnotationPresent(AnythConstructor.class)) {
+                return constructor;
+            }
+        }
+        return null;
+    }
+
+    private static String[] parameterNames(Class<?> type, Constructor<?> creator, List<Field> candidates) {
+        if (type.isRecord()) {
+            return Arrays.stream(type.getRecordComponents())
+                    .map(RecordComponent::getName)
+                    .toArray(String[]::new);
+        }
+
+        String[] names = creator.getAnnotation(AnythConstructor.class).value();
+        Parameter[] parameters = creator.getParameters();
+        if (names.length == 0 && parameters.length > 0 && parameters[0].isNamePresent()) {
+            names = Arrays.stream(parameters).map(Parameter::getName).toArray(String[]::new);
+        } else if (names.length == 0 && parameters.length == candidates.size()) {
+            names = candidates.stream().map(Field::getName).toArray(String[]::new);
+        }
+
+        if (names.length != parameters.length) {
+            throw new IllegalArgumentException("Can't match the parameters of [" + creator + "] to fields,"
+                    + " list the field names in @AnythConstructor");
+        }
+        return names;
+    }
+
+    private static FieldPlan find(List<FieldPlan> fields, String name) {
+        for (FieldPlan field : fields) {
+            if (field.getField().getName().equals(name)) {
+                return field;
+            }
+        }
+        throw new IllegalArgumentException("No field named " + name + " for a constructor parameter");
+    }
+
+    private static MethodHandle noArgConstructor(Class<?> type) {
+        try {
+            return MethodHandles.privateLookupIn(type, MethodHandles.lookup())
+                    .findConstructor(type, MethodType.methodType(void.class))
+                    .asType(MethodType.methodType(Object.class));
+        } catch (ReflectiveOperationException | IllegalArgumentException exception) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.github.golgolex.anyth.codec;
+
+/*
+ * Copyright 2024 anyth contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Modifier;
+import java.util.function.*;
+
+/**
+ * Creates functional interface implementations for constructors, getters and setters.
+ * <p>
+ * Constructors are spun through {@link LambdaMetafactory} as hidden nestmates of the target
+ * class, so the JIT can inline them like hand-written code. Getters and setters are bound to the
+ * field itself through its {@link FieldAccessor}, never to {@code getX}/{@code isX}/{@code setX}
+ * methods, so the stored form is the same as the one of the reflective path even when those
+ * methods transform or validate the value.
+ */
+public final class LambdaAccessors {
+
+    private LambdaAccessors() {
+    }
+
+    /**
+     * Returns a supplier calling the no-arg constructor of the specified class.
+     *
+     * @param type The class to instantiate.
+     * @return The supplier, or null if the class has no usable no-arg constructor.
+     */
+    public static Supplier<Object> constructor(Class<?> type) {
+        if (type.isInterface() || Modifier.isAbstract(type.getModifiers())) {
+            return null;
+        }
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(type, MethodHandles.lookup());
+            MethodHandle constructor = lookup.findConstructor(type, MethodType.methodType(void.class));
+            return (Supplier<Object>) spin(lookup, Supplier.class, "get",
+                    MethodType.methodType(Object.class), constructor, MethodType.methodType(type));
+        } catch (ReflectiveOperationException | IllegalArgumentException exception) {
+            return null;
+        }
+    }
+
+    public static Function<Object, Object> getter(FieldPlan field) {
+        FieldAccessor accessor = field.getAccessor();
+        return accessor::get;
+    }
+
+    public static BiConsumer<Object, Object> setter(FieldPlan field) {
+        FieldAccessor accessor = field.getAccessor();
+        return accessor::set;
+    }
+
+    public static ToIntFunction<Object> intGetter(FieldPlan field) {
+        FieldAccessor accessor = field.getAccessor();
+        return accessor::getInt;
+    }
+
+    public static ObjIntConsumer<Object> intSetter(FieldPlan field) {
+        FieldAccessor accessor = field.getAccessor();
+        return accessor::setInt;
+    }
+
+    public static ToLongFunction<Object> longGetter(FieldPlan field) {
+        FieldAccessor accessor = field.getAccessor();
+        return accessor::getLong;
+    }
+
+    public static ObjLongConsumer<Object> longSetter(FieldPlan field) {
+        FieldAccessor accessor = field.getAccessor();
+        return accessor::setLong;
+    }
+
+    private static Object spin(MethodHandles.Lookup lookup,
+                               Class<?> functionalInterface,
+                               String name,
+                               MethodType samMethodType,
+                               MethodHandle implementation,
+                               MethodType instantiatedMethodType) {
+        try {
+            return LambdaMetafactory.metafactory(lookup,
+                            name,
+                            MethodType.methodType(functionalInterface),
+                            samMethodType,
+                            implementation,
+                            instantiatedMethodType)
+                    .getTarget()
+                    .invoke();
+        } catch (Throwable throwable) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.github.golgolex.anyth.codec;
+
+/*
+ * Copyright 2024 anyth contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * Which fields a layer serializer leaves out of a written document. Left out fields are restored
+ * to their Java default when the document is read, and
+ * {@link com.github.golgolex.anyth.impl.mongodb.DefaultMongoRepository#applyChanges(org.bson.conversions.Bson, Object)}
+ * removes them from the stored document with {@code $unset}. Projected queries, such as
+ * {@link com.github.golgolex.anyth.impl.mongodb.DefaultMongoRepository#query(org.bson.conversions.Bson, Class, org.bson.conversions.Bson)},
+ * don't restore defaults: the fields outside the projection keep the values assigned by the
+ * constructor.
+ *
+ * @see com.github.golgolex.anyth.annotations.Sparse
+ */
+public enum SparseMode {
+
+    /**
+     * Writes every field, null fields as an explicit {@code null}.
+     */
+    OFF,
+
+    /**
+     * Leaves out null fields.
+     */
+    NULLS,
+
+    /**
+     * Leaves out null fields and primitive fields holding their default ({@code 0}, {@code false},
+     * {@code '\0'}).
+     */
+    DEFAULTS;
+
+    /**
+     * @param value     The value of the field, boxed for primitive fields.
+     * @param primitive Whether the field is declared as a primitive.
+     * @return Whether the field is left out of the written document.
+     */
+    public boolean skips(Object value, boolean primitive) {
+        if (value == null) {
+            return this != OFF;
+        }
+        return this == DEFAULTS && primitive && isZero(value);
+    }
+
+    private static boolean isZero(Object value) {
+        if (value instanceof Boolean bool) {
+            return !bool;
+        }
+        if (value instanceof Character character) {
+            return character == '\0';
+        }
+        if (value instanceof Double || value instanceof Float) {
+            // -0.0 isn't the default
+            return Double.doubleToRawLongBits(((Number) value).doubleValue()) == 0L;
+        }
+        return value instanceof Number number && number.longValue() == 0L;
+    }
+}
@@ -0,0 +1,160 @@
+package com.github.golgolex.anyth.codec;
+
+/*
+ * Copyright 2024 anyth contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Compresses stored values with raw Deflate (no zlib header or checksum).
+ * <p>
+ * A compressed value is the varint length of the original value followed by the deflated data,
+ * optionally after a header reserved for the caller. Values that don't get smaller aren't
+ * compressed. The {@link Deflater} and {@link Inflater} are reused per thread.
+ */
+public final class ValueCompressor {
+
+    private static final ThreadLocal<Deflater> DEFLATERS = ThreadLocal.withInitial(() -> new Deflater(Deflater.DEFAULT_COMPRESSION, true));
+
+    private static final ThreadLocal<Inflater> INFLATERS = ThreadLocal.withInitial(() -> new Inflater(true));
+
+    /**
+     * The {@link Deflater} level, from {@link Deflater#BEST_SPEED} to
+     * {@link Deflater#BEST_COMPRESSION}.
+     */
+    @Getter
+    @Setter
+    private volatile int level = Deflater.BEST_SPEED;
+
+    /**
+     * The largest original length {@link #decompress(byte[], int)} accepts, so a corrupt or
+     * hostile length prefix can't make it allocate an arbitrarily large buffer.
+     */
+    @Getter
+    @Setter
+    private volatile int maxLength = 64 * 1024 * 1024;
+
+    @Getter
+    private final CompressionMetrics metrics = new CompressionMetrics();
+
+    /**
+     * Compresses a value.
+     *
+     * @param value        The value to compress.
+     * @param headerLength The number of bytes left free at the start of the result.
+     * @return The header space followed by the compressed value, or null if the value doesn't get
+     * smaller.
+     */
+    public byte[] compress(byte[] value, int headerLength) {
+        long start = System.nanoTime();
+        Deflater deflater = DEFLATERS.get();
+        deflater.reset();
+        deflater.setLevel(this.level);
+        deflater.setInput(value);
+        deflater.finish();
+
+        int offset = headerLength + varIntLength(value.length);
+        byte[] compressed = new byte[offset + value.length];
+        writeVarInt(compressed, headerLength, value.length);
+        int length = offset;
+        while (!deflater.finished() && length < compressed.length) {
+            length += deflater.deflate(compressed, length, compressed.length - length);
+        }
+
+        if (!deflater.finished()) {
+            this.metrics.recordSkipped(System.nanoTime() - start);
+            return null;
+        }
+        this.metrics.recordCompressed(value.length, length - headerLength, System.nanoTime() - start);
+        return Arrays.copyOf(compressed, length);
+    }
+
+    /**
+     * Decompresses a value written by {@link #compress(byte[], int)}.
+     *
+     * @param compressed The compressed value.
+     * @param offset     The length of the header before the compressed value.
+     * @return The original value.
+     * @throws IllegalArgumentException If the data is corrupt, or the original length exceeds
+     *                                  {@link #getMaxLength()}.
+     */
+    public byte[] decompress(byte[] compressed, int offset) {
+        long start = System.nanoTime();
+        long length = 0;
+        int position = offset;
+        for (int shift = 0; ; shift += 7) {
+            if (position >= compressed.length || shift > 28) {
+                throw new IllegalArgumentException("Corrupt compressed value length");
+            }
+            byte b = compressed[position++];
+            length |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                break;
+            }
+        }
+        if (length > this.maxLength) {
+            throw new IllegalArgumentException("Compressed value length " + length + " exceeds the maximum of " + this.maxLength + " bytes");
+        }
+
+        Inflater inflater = INFLATERS.get();
+        inflater.reset();
+        inflater.setInput(compressed, position, compressed.length - position);
+        byte[] value = new byte[(int) length];
+        try {
+            int count = 0;
+            while (count < value.length && !inflater.finished()) {
+                int inflated = inflater.inflate(value, count, value.length - count);
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                count += inflated;
+            }
+            if (count != value.length) {
+                throw new IllegalArgumentException("Compressed value is truncated: " + count + " of " + length + " bytes");
+            }
+            if (!inflater.finished() && (inflater.inflate(new byte[1]) > 0 || !inflater.finished())) {
+                throw new IllegalArgumentException("Compressed value is longer than its stored length of " + length + " bytes");
+            }
+        } catch (DataFormatException exception) {
+            throw new IllegalArgumentException("Corrupt compressed value", exception);
+        }
+        this.metrics.recordDecompressed(System.nanoTime() - start);
+        return value;
+    }
+
+    private static int varIntLength(int value) {
+        int length = 1;
+        while ((value & ~0x7F) != 0) {
+            value >>>= 7;
+            length++;
+        }
+        return length;
+    }
+
+    private static void writeVarInt(byte[] bytes, int offset, int value) {
+        while ((value & ~0x7F) != 0) {
+            bytes[offset++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        bytes[offset] = (byte) value;
+    }
+}
@@ -0,0 +1,578 @@
+package com.github.golgolex.anyth.impl.mongodb;
+
+/*
+ * Copyright 2024 anyth contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import com.github.golgolex.anyth.codec.CodecPlan;
+import com.github.golgolex.anyth.codec.FieldPlan;
+import com.github.golgolex.anyth.codec.GenericType;
+import com.github.golgolex.anyth.codec.SparseMode;
+import com.github.golgolex.anyth.layer.LayerRegistry;
+import com.github.golgolex.anyth.layer.defaults.BooleanBasedLayer;
+import com.github.golgolex.anyth.layer.defaults.CharBasedLayer;
+import com.github.golgolex.anyth.layer.defaults.CommonBasedLayer;
+import com.github.golgolex.anyth.layer.defaults.IntBasedLayer;
+import com.github.golgolex.anyth.layer.defaults.LongBasedLayer;
+import org.bson.BsonBinary;
+import org.bson.BsonReader;
+import org.bson.BsonType;
+import org.bson.BsonWriter;
+import org.bson.Document;
+import org.bson.codecs.*;
+import org.bson.codecs.configuration.CodecConfigurationException;
+import org.bson.codecs.configuration.CodecRegistry;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * A {@link Codec} writing objects straight to a {@link BsonWriter} and reading them straight from a
+ * {@link BsonReader}, without building an intermediate {@link Document}.
+ * <p>
+ * The stored form is the same as the one of {@link DocumentLayerSerializer}: values with a
+ * registered {@link MongoLayerBase} or {@link CommonBasedLayer} are converted by that layer and
+ * the result is written with the codec of the underlying {@link CodecRegistry}, everything else is
+ * streamed field by field as a nested document. Stored keys without a matching field, like
+ * {@code _id} and {@code bson_filter}, are skipped.
+ *
+ * @param <T> The class handled by the codec.
+ */
+public class AnythCodec<T> implements Codec<T> {
+
+    /**
+     * The initial capacity of collections read from an array, whose length isn't known upfront.
+     */
+    private static final int DEFAULT_ARRAY_CAPACITY = 10;
+
+    private final Class<T> type;
+
+    private final DocumentLayerSerializer serializer;
+
+    private final LayerRegistry<?> layerRegistry;
+
+    private final CodecRegistry codecRegistry;
+
+    private final BsonTypeCodecMap bsonTypeCodecMap;
+
+    /**
+     * Whether documents are projected, so missing fields are left at their constructor value
+     * instead of being reset by the {@link SparseMode}.
+     */
+    private final boolean projected;
+
+    public AnythCodec(Class<T> type,
+                      DocumentLayerSerializer serializer,
+                      LayerRegistry<?> layerRegistry,
+                      CodecRegistry codecRegistry) {
+        this(type, serializer, layerRegistry, codecRegistry, false);
+    }
+
+    private AnythCodec(Class<T> type,
+                       DocumentLayerSerializer serializer,
+                       LayerRegistry<?> layerRegistry,
+                       CodecRegistry codecRegistry,
+                       boolean projected) {
+        this.type = type;
+        this.serializer = serializer;
+        this.layerRegistry = layerRegistry;
+        this.codecRegistry = codecRegistry;
+        this.bsonTypeCodecMap = new BsonTypeCodecMap(new BsonTypeClassMap(), codecRegistry);
+        this.projected = projected;
+    }
+
+    @Override
+    public Class<T> getEncoderClass() {
+        return this.type;
+    }
+
+    @Override
+    public void encode(BsonWriter writer, T value, EncoderContext encoderContext) {
+        encodeObject(writer, value, encoderContext);
+    }
+
+    @Override
+    public T decode(BsonReader reader, DecoderContext decoderContext) {
+        return this.type.cast(decodeObject(reader, decoderContext, CodecPlan.of(this.type)));
+    }
+
+    private void encodeObject(BsonWriter writer, Object object, EncoderContext encoderContext) {
+        CodecPlan plan = CodecPlan.of(object.getClass());
+        SparseMode sparseMode = this.serializer.resolveSparseMode(plan);
+        writer.writeStartDocument();
+        for (FieldPlan field : plan.getFields()) {
+            boolean primitive = field.getType().isPrimitive();
+            Object value = null;
+            if (!primitive || sparseMode == SparseMode.DEFAULTS) {
+                value = field.get(object);
+                if (sparseMode.skips(value, primitive)) {
+                    continue;
+                }
+            }
+
+            writer.writeName(field.getName());
+            if (primitive && writePrimitive(writer, object, field)) {
+                continue;
+            }
+            if (primitive && value == null) {
+                value = field.get(object);
+            }
+            if (value != null && field.getKind() == FieldPlan.Kind.PRIMITIVE_ARRAY) {
+                writeArray(writer, value, field.isPacked());
+            } else if (field.isPacked() && value instanceof Collection<?> collection) {
+                writer.writeBinaryData(new BsonBinary(PackedArrays.SUBTYPE,
+                        PackedArrays.packList(collection, field.getElementType()).getData()));
+            } else if (value != null && field.isCompressed()) {
+                writeRaw(writer, this.serializer.encodeCompressed(value, field.getCompressionThreshold()), encoderContext);
+            } else {
+                encodeValue(writer, value, encoderContext);
+            }
+        }
+        writer.writeEndDocument();
+    }
+
+    /**
+     * Writes a primitive field through its primitive layer, without boxing.
+     *
+     * @return Whether the field has a primitive layer and was written.
+     */
+    private boolean writePrimitive(BsonWriter writer, Object object, FieldPlan field) {
+        Object layer = primitiveLayer(field);
+        if (layer instanceof IntBasedLayer intLayer && field.getType() == int.class) {
+            writer.writeInt32(intLayer.writeInt(field.getAccessor().getInt(object)));
+        } else if (layer instanceof LongBasedLayer longLayer && field.getType() == long.class) {
+            writer.writeInt64(longLayer.writeLong(field.getAccessor().getLong(object)));
+        } else if (layer instanceof BooleanBasedLayer booleanLayer && field.getType() == boolean.class) {
+            writer.writeBoolean(booleanLayer.writeBoolean(field.getAccessor().getBoolean(object)));
+        } else if (layer instanceof CharBasedLayer charLayer && field.getType() == char.class) {
+            writer.writeString(String.valueOf(charLayer.writeChar(field.getAccessor().getChar(object))));
+        } else {
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Reads a primitive field through its primitive layer, without boxing.
+     *
+     * @return Whether the field has a primitive layer and the stored value has the matching type.
+     */
+    private boolean readPrimitive(BsonReader reader, Object instance, FieldPlan field) {
+        Object layer = primitiveLayer(field);
+        BsonType bsonType = reader.getCurrentBsonType();
+        if (layer instanceof IntBasedLayer intLayer && field.getType() == int.class && bsonType == BsonType.INT32) {
+            field.getAccessor().setInt(instance, intLayer.readInt(reader.readInt32()));
+        } else if (layer instanceof LongBasedLayer longLayer && field.getType() == long.class && bsonType == BsonType.INT64) {
+            field.getAccessor().setLong(instance, longLayer.readLong(reader.readInt64()));
+        } else if (layer instanceof BooleanBasedLayer booleanLayer && field.getType() == boolean.class && bsonType == BsonType.BOOLEAN) {
+            field.getAccessor().setBoolean(instance, booleanLayer.readBoolean(reader.readBoolean()));
+        } else {
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return The common layer of a primitive field, unless a {@link MongoLayerBase} takes precedence.
+     */
+    private Object primitiveLayer(FieldPlan field) {
+        Class<?> boxedType = field.getBoxedType();
+        return this.layerRegistry.getLayer(boxedType) == null ? this.layerRegistry.getCommonLayer(boxedType) : null;
+    }
+
+    private void encodeValue(BsonWriter writer, Object value, EncoderContext encoderContext) {
+        if (value == null) {
+            writer.writeNull();
+            return;
+        }
+
+        if (value instanceof Collection<?> collection) {
+            writer.writeStartArray();
+            for (Object item : collection) {
+                encodeValue(writer, item, encoderContext);
+            }
+            writer.writeEndArray();
+            return;
+        }
+
+        if (value instanceof int[] || value instanceof long[] || value instanceof double[]) {
+            writeArray(writer, value, false);
+            return;
+        }
+
+        MongoLayerBase<Object> layer = (MongoLayerBase<Object>) this.layerRegistry.resolveLayer(value.getClass());
+        if (layer != null) {
+            writeRaw(writer, layer.serialize(value), encoderContext);
+            return;
+        }
+
+        CommonBasedLayer<Object, Object> commonBasedLayer = this.layerRegistry.resolveCommonLayer(value.getClass());
+        if (commonBasedLayer != null) {
+            writeRaw(writer, commonBasedLayer.serialize(value), encoderContext);
+            return;
+        }
+
+        if (value instanceof Map<?, ?> map) {
+            encodeMap(writer, map, encoderContext);
+            return;
+        }
+
+        encodeObject(writer, value, encoderContext);
+    }
+
+    /**
+     * Streams a map in the form written by {@link DocumentLayerSerializer#encodeMap(Map, LayerRegistry)}.
+     */
+    private void encodeMap(BsonWriter writer, Map<?, ?> map, EncoderContext encoderContext) {
+        String[] names = this.serializer.keyNames(map, this.layerRegistry);
+        if (names == null) {
+            writer.writeStartArray();
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                encodeValue(writer, entry.getKey(), encoderContext);
+                encodeValue(writer, entry.getValue(), encoderContext);
+            }
+            writer.writeEndArray();
+            return;
+        }
+
+        writer.writeStartDocument();
+        int index = 0;
+        for (Object value : map.values()) {
+            writer.writeName(names[index++]);
+            encodeValue(writer, value, encoderContext);
+        }
+        writer.writeEndDocument();
+    }
+
+    private static void writeArray(BsonWriter writer, Object array, boolean packed) {
+        if (packed) {
+            writer.writeBinaryData(new BsonBinary(PackedArrays.SUBTYPE, PackedArrays.pack(array)));
+            return;
+        }
+
+        writer.writeStartArray();
+        if (array instanceof int[] ints) {
+            for (int value : ints) {
+                writer.writeInt32(value);
+            }
+        } else if (array instanceof long[] longs) {
+            for (long value : longs) {
+                writer.writeInt64(value);
+            }
+        } else {
+            for (double value : (double[]) array) {
+                writer.writeDouble(value);
+            }
+        }
+        writer.writeEndArray();
+    }
+
+    private void writeRaw(BsonWriter writer, Object value, EncoderContext encoderContext) {
+        if (value == null) {
+            writer.writeNull();
+        } else if (value instanceof String string) {
+            writer.writeString(string);
+        } else if (value instanceof Integer integer) {
+            writer.writeInt32(integer);
+        } else if (value instanceof Long longValue) {
+            writer.writeInt64(longValue);
+        } else if (value instanceof Boolean bool) {
+            writer.writeBoolean(bool);
+        } else {
+            Encoder<Object> encoder = (Encoder<Object>) this.codecRegistry.get(value.getClass());
+            encoderContext.encodeWithChildContext(encoder, writer, value);
+        }
+    }
+
+    /**
+     * Returns a codec for another class sharing the serializer, layers and codec registry of this one.
+     */
+    <V> AnythCodec<V> withType(Class<V> type) {
+        return new AnythCodec<>(type, this.serializer, this.layerRegistry, this.codecRegistry, this.projected);
+    }
+
+    /**
+     * Returns a codec for projected documents: fields missing from a document keep the values
+     * assigned by the no-arg constructor, whatever the {@link SparseMode} of their class.
+     */
+    AnythCodec<T> projected() {
+        return new AnythCodec<>(this.type, this.serializer, this.layerRegistry, this.codecRegistry, true);
+    }
+
+    static Object newInstance(CodecPlan plan) {
+        try {
+            return plan.newInstance();
+        } catch (NoSuchMethodException | InvocationTargetException exception) {
+            throw new CodecConfigurationException("Couldn't instantiate " + plan.getType().getName(), exception);
+        }
+    }
+
+    static Object newInstance(CodecPlan plan, Object[] values) {
+        try {
+            return plan.getInstantiator().newInstance(values);
+        } catch (NoSuchMethodException | InvocationTargetException exception) {
+            throw new CodecConfigurationException("Couldn't instantiate " + plan.getType().getName(), exception);
+        }
+    }
+
+    private Object decodeObject(BsonReader reader, DecoderContext decoderContext, CodecPlan plan) {
+        if (plan.getInstantiator().hasParameters()) {
+            Object[] values = new Object[plan.getFields().size()];
+            decodeValues(reader, decoderContext, plan, values, null);
+            return newInstance(plan, values);
+        }
+
+        Object instance = newInstance(plan);
+        decodeInto(reader, decoderContext, plan, instance, null);
+        return instance;
+    }
+
+    /**
+     * Reads a document into an existing instance. For classes written in a {@link SparseMode},
+     * selected fields missing from the document are reset to their default, unless the codec
+     * reads {@link #projected() projected} documents.
+     *
+     * @param filter Selects the fields to decode, all fields if null. Other keys are skipped.
+     */
+    void decodeInto(BsonReader reader,
+                    DecoderContext decoderContext,
+                    CodecPlan plan,
+                    Object instance,
+                    Predicate<FieldPlan> filter) {
+        SparseMode sparseMode = this.serializer.resolveSparseMode(plan);
+        boolean[] present = sparseMode != SparseMode.OFF && !this.projected ? new boolean[plan.getFields().size()] : null;
+
+        reader.readStartDocument();
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            FieldPlan field = plan.getField(reader.readName());
+            if (field == null || (filter != null && !filter.test(field))) {
+                reader.skipValue();
+                continue;
+            }
+            if (present != null) {
+                present[field.getIndex()] = true;
+            }
+            if (field.getType().isPrimitive() && field.getAccessor().isWritable() && readPrimitive(reader, instance, field)) {
+                continue;
+            }
+
+            Object declaredField = field.getKind() == FieldPlan.Kind.VALUE ? field.get(instance) : null;
+            Object value = readField(reader, decoderContext, field, declaredField);
+            if (value != null || !field.getType().isPrimitive()) {
+                field.set(instance, value);
+            }
+        }
+        reader.readEndDocument();
+
+        if (present != null) {
+            for (FieldPlan field : plan.getFields()) {
+                if (!present[field.getIndex()]
+                        && (filter == null || filter.test(field))
+                        && (sparseMode == SparseMode.DEFAULTS || !field.getType().isPrimitive())) {
+                    field.set(instance, field.getDefaultValue());
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads a document into an array of field values, for classes created through a creator
+     * constructor. Missing and null fields are left null.
+     *
+     * @param values The values, indexed like {@link CodecPlan#getFields()}.
+     * @param filter Selects the fields to decode, all fields if null. Other keys are skipped.
+     */
+    void decodeValues(BsonReader reader,
+                      DecoderContext decoderContext,
+                      CodecPlan plan,
+                      Object[] values,
+                      Predicate<FieldPlan> filter) {
+        reader.readStartDocument();
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            FieldPlan field = plan.getField(reader.readName());
+            if (field == null || (filter != null && !filter.test(field))) {
+                reader.skipValue();
+            } else {
+                values[field.getIndex()] = readField(reader, decoderContext, field, null);
+            }
+        }
+        reader.readEndDocument();
+    }
+
+    /**
+     * Reads the value of a field.
+     *
+     * @param declaredField The current value of the field, used to pick the concrete type of fields
+     *                      declared as a supertype. Null if there is no instance yet.
+     */
+    private Object readField(BsonReader reader, DecoderContext decoderContext, FieldPlan field, Object declaredField) {
+        if (reader.getCurrentBsonType() == BsonType.NULL) {
+            reader.readNull();
+            return null;
+        }
+
+        return switch (field.getKind()) {
+            case PRIMITIVE_ARRAY -> readArray(reader, field.getElementType());
+            case COLLECTION -> {
+                if (field.getElementType() != null && reader.getCurrentBsonType() == BsonType.BINARY) {
+                    yield PackedArrays.unpackList(reader.readBinaryData().getData(), field.getElementType());
+                }
+                if (reader.getCurrentBsonType() != BsonType.ARRAY) {
+                    reader.skipValue();
+                    yield null;
+                }
+                yield decodeArray(reader, decoderContext, field.getGenericType());
+            }
+            case MAP -> this.serializer.valueDecoder(field.getGenericType(), this.layerRegistry)
+                    .apply(readRaw(reader, decoderContext));
+            case VALUE -> {
+                Class<?> valueType = declaredField != null
+                        ? declaredField.getClass()
+                        : (field.getBoxedType() != Object.class ? field.getBoxedType() : null);
+                yield decodeValue(reader, decoderContext, valueType);
+            }
+        };
+    }
+
+    /**
+     * Reads an array straight into a collection of the declared type. Nested collection elements
+     * are streamed the same way.
+     */
+    private Collection<Object> decodeArray(BsonReader reader, DecoderContext decoderContext, GenericType type) {
+        GenericType elementType = type.getArgument(0);
+        boolean nestedCollection = elementType != null && elementType.isCollection();
+        Class<?> elementClass = elementType != null && elementType.getRawType() != Object.class ? elementType.getRawType() : null;
+
+        Collection<Object> decodedCollection = type.newCollection(DEFAULT_ARRAY_CAPACITY);
+        reader.readStartArray();
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            if (reader.getCurrentBsonType() == BsonType.NULL) {
+                reader.readNull();
+                decodedCollection.add(null);
+            } else if (nestedCollection && reader.getCurrentBsonType() == BsonType.ARRAY) {
+                decodedCollection.add(decodeArray(reader, decoderContext, elementType));
+            } else if (elementType != null && elementType.isMap()) {
+                decodedCollection.add(this.serializer.valueDecoder(elementType, this.layerRegistry)
+                        .apply(readRaw(reader, decoderContext)));
+            } else {
+                decodedCollection.add(decodeValue(reader, decoderContext, elementClass));
+            }
+        }
+        reader.readEndArray();
+        return decodedCollection;
+    }
+
+    /**
+     * Reads a primitive array from either stored form without boxing its elements.
+     */
+    private static Object readArray(BsonReader reader, Class<?> componentType) {
+        if (reader.getCurrentBsonType() == BsonType.BINARY) {
+            return PackedArrays.unpack(reader.readBinaryData().getData(), componentType);
+        }
+        if (reader.getCurrentBsonType() != BsonType.ARRAY) {
+            reader.skipValue();
+            return null;
+        }
+
+        int size = 0;
+        reader.readStartArray();
+        if (componentType == int.class) {
+            int[] ints = new int[16];
+            while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+                if (size == ints.length) {
+                    ints = Arrays.copyOf(ints, size * 2);
+                }
+                ints[size++] = (int) readLong(reader);
+            }
+            reader.readEndArray();
+            return Arrays.copyOf(ints, size);
+        }
+        if (componentType == long.class) {
+            long[] longs = new long[16];
+            while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+                if (size == longs.length) {
+                    longs = Arrays.copyOf(longs, size * 2);
+                }
+                longs[size++] = readLong(reader);
+            }
+            reader.readEndArray();
+            return Arrays.copyOf(longs, size);
+        }
+        double[] doubles = new double[16];
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            if (size == doubles.length) {
+                doubles = Arrays.copyOf(doubles, size * 2);
+            }
+            doubles[size++] = reader.getCurrentBsonType() == BsonType.DOUBLE ? reader.readDouble() : readLong(reader);
+        }
+        reader.readEndArray();
+        return Arrays.copyOf(doubles, size);
+    }
+
+    private static long readLong(BsonReader reader) {
+        return switch (reader.getCurrentBsonType()) {
+            case INT32 -> reader.readInt32();
+            case INT64 -> reader.readInt64();
+            case DOUBLE -> (long) reader.readDouble();
+            default -> throw new CodecConfigurationException("Expected a number, found " + reader.getCurrentBsonType());
+        };
+    }
+
+    /**
+     * Decodes the current value into the specified type. Nested objects without a layer are
+     * streamed, all other values are read with the underlying codecs and passed to the layer.
+     */
+    private Object decodeValue(BsonReader reader, DecoderContext decoderContext, Class<?> type) {
+        if (type != null && reader.getCurrentBsonType() == BsonType.DOCUMENT && isStreamable(type)) {
+            return decodeObject(reader, decoderContext, CodecPlan.of(type));
+        }
+
+        Object value = readRaw(reader, decoderContext);
+        if (value == null) {
+            return null;
+        }
+        return this.serializer.decodeValue(value, type != null ? type : value.getClass(), this.layerRegistry);
+    }
+
+    private boolean isStreamable(Class<?> type) {
+        return this.layerRegistry.getLayer(type) == null
+                && this.layerRegistry.getCommonLayer(type) == null
+                && type != Object.class
+                && !type.isInterface()
+                && !Modifier.isAbstract(type.getModifiers())
+                && !Map.class.isAssignableFrom(type);
+    }
+
+    private Object readRaw(BsonReader reader, DecoderContext decoderContext) {
+        return switch (reader.getCurrentBsonType()) {
+            case NULL -> {
+                reader.readNull();
+                yield null;
+            }
+            case STRING -> reader.readString();
+            case INT32 -> reader.readInt32();
+            case INT64 -> reader.readInt64();
+            case BOOLEAN -> reader.readBoolean();
+            case DOUBLE -> reader.readDouble();
+            default -> decoderContext.decodeWithChildContext(this.bsonTypeCodecMap.get(reader.getCurrentBsonType()), reader);
+        };
+    }
+}
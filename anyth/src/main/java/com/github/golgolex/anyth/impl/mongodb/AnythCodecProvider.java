@@ -0,0 +1,63 @@
+package com.github.golgolex.anyth.impl.mongodb;
+
+/*
+ * Copyright 2024 anyth contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import com.github.golgolex.anyth.codec.CodecMode;
+import com.github.golgolex.anyth.codec.GeneratedCodecs;
+import com.github.golgolex.anyth.layer.LayerRegistry;
+import org.bson.Document;
+import org.bson.codecs.Codec;
+import org.bson.codecs.configuration.CodecProvider;
+import org.bson.codecs.configuration.CodecRegistry;
+
+import java.util.Set;
+
+/**
+ * Provides codecs for a fixed set of classes. Classes with a generated codec, or a compiled codec
+ * in {@link CodecMode#GENERATED}, are handled by that codec through a {@link SerializerCodec},
+ * all others by an {@link AnythCodec}. Every other class is left to the providers following this
+ * one in the registry.
+ */
+public class AnythCodecProvider implements CodecProvider {
+
+    private final DocumentLayerSerializer serializer;
+
+    private final LayerRegistry<?> layerRegistry;
+
+    private final Set<Class<?>> types;
+
+    public AnythCodecProvider(DocumentLayerSerializer serializer,
+                              LayerRegistry<?> layerRegistry,
+                              Class<?>... types) {
+        this.serializer = serializer;
+        this.layerRegistry = layerRegistry;
+        this.types = Set.of(types);
+    }
+
+    @Override
+    public <T> Codec<T> get(Class<T> clazz, CodecRegistry registry) {
+        if (!this.types.contains(clazz)) {
+            return null;
+        }
+        if (GeneratedCodecs.find(clazz) != null
+                || (this.serializer.getCodecMode() == CodecMode.GENERATED
+                && this.serializer.compiledCodec(clazz, this.layerRegistry) != null)) {
+            return new SerializerCodec<>(clazz, this.serializer, this.layerRegistry, registry.get(Document.class));
+        }
+        return new AnythCodec<>(clazz, this.serializer, this.layerRegistry, registry);
+    }
+}
@@ -0,0 +1,106 @@
+package com.github.golgolex.anyth.impl.mongodb;
+
+/*
+ * Copyright 2024 anyth contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import com.github.golgolex.anyth.annotations.ConvertLayer;
+import com.github.golgolex.anyth.layer.defaults.CommonBasedLayer;
+import com.github.golgolex.anyth.layer.defaults.UUIDLayer;
+import org.bson.BsonBinarySubType;
+import org.bson.types.Binary;
+
+import java.util.UUID;
+
+/**
+ * Stores UUIDs as BSON binary subtype 4 (16 bytes) instead of the 36 character strings of
+ * {@link UUIDLayer}. It is opt-in, see {@link DefaultMongoRepository#useBinaryUUIDs()}.
+ * <p>
+ * Both forms are read, so documents written with {@link UUIDLayer} are migrated as they are
+ * replaced. Map keys still use the string form. Filters on UUID fields have to compare against
+ * {@link #toBinary(UUID)}, because the driver writes plain {@link UUID}s in its legacy
+ * subtype 3 form.
+ */
+@ConvertLayer(object = UUID.class)
+public class BinaryUUIDLayer implements CommonBasedLayer<UUID, Binary> {
+
+    @Override
+    public Binary serialize(UUID object) {
+        return toBinary(object);
+    }
+
+    @Override
+    public UUID deserialize(Object serialized) {
+        if (serialized instanceof Binary binary) {
+            return fromBinary(binary);
+        }
+        // the default codecs of the driver already decode binary subtype 4 into a UUID
+        if (serialized instanceof UUID uuid) {
+            return uuid;
+        }
+        if (serialized instanceof String string) {
+            return UUID.fromString(string);
+        }
+        return null;
+    }
+
+    @Override
+    public String serializeToString(UUID serialized) {
+        return serialized.toString();
+    }
+
+    @Override
+    public UUID deserializeFromString(String string) {
+        return UUID.fromString(string);
+    }
+
+    /**
+     * @param uuid The UUID to convert.
+     * @return The UUID as binary subtype 4, most significant bits first.
+     */
+    public static Binary toBinary(UUID uuid) {
+        byte[] bytes = new byte[16];
+        writeLong(bytes, 0, uuid.getMostSignificantBits());
+        writeLong(bytes, 8, uuid.getLeastSignificantBits());
+        return new Binary(BsonBinarySubType.UUID_STANDARD, bytes);
+    }
+
+    /**
+     * @param binary The stored binary.
+     * @return The UUID, or null if the binary isn't a 16 byte subtype 4 value.
+     */
+    public static UUID fromBinary(Binary binary) {
+        byte[] bytes = binary.getData();
+        if (binary.getType() != BsonBinarySubType.UUID_STANDARD.getValue() || bytes.length != 16) {
+            return null;
+        }
+        return new UUID(readLong(bytes, 0), readLong(bytes, 8));
+    }
+
+    private static void writeLong(byte[] bytes, int offset, long value) {
+        for (int i = 7; i >= 0; i--) {
+            bytes[offset + i] = (byte) value;
+            value >>>= 8;
+        }
+    }
+
+    private static long readLong(byte[] bytes, int offset) {
+        long value = 0;
+        for (int i = 0; i < 8; i++) {
+            value = (value << 8) | (bytes[offset + i] & 0xFF);
+        }
+        return value;
+    }
+}
@@ -0,0 +1,422 @@
+package com.github.golgolex.anyth.impl.mongodb;
+
+/*
+ * Copyright 2024 anyth contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import com.github.golgolex.anyth.codec.CodecPlan;
+import com.github.golgolex.anyth.codec.FieldPlan;
+import com.github.golgolex.anyth.codec.LambdaAccessors;
+import com.github.golgolex.anyth.codec.SparseMode;
+import com.github.golgolex.anyth.layer.LayerRegistry;
+import com.github.golgolex.anyth.layer.defaults.CommonBasedLayer;
+import com.github.golgolex.anyth.layer.defaults.IntBasedLayer;
+import com.github.golgolex.anyth.layer.defaults.LongBasedLayer;
+import org.bson.Document;
+
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.*;
+
+/**
+ * A {@link DocumentLayerSerializer} codec specialized for one class.
+ * <p>
+ * The constructor and the field accessors are spun through {@link LambdaAccessors}. The layer of
+ * every field whose runtime type can be predicted from its declaration is resolved once, so
+ * encoding and decoding call it directly. Fields the codec can't specialize (maps, fields declared
+ * as interfaces or {@code Object}, ...) are handed to the reflective field path of the serializer.
+ */
+final class CompiledDocumentCodec {
+
+    /**
+     * Key of a compiled codec in {@link LayerRegistry#derive(Object, Function)}.
+     */
+    record Key(DocumentLayerSerializer serializer, Class<?> type) {
+    }
+
+    private final CodecPlan plan;
+
+    private final DocumentLayerSerializer serializer;
+
+    private final Supplier<Object> constructor;
+
+    private final FieldCodec[] fields;
+
+    private CompiledDocumentCodec(CodecPlan plan, DocumentLayerSerializer serializer, Supplier<Object> constructor, FieldCodec[] fields) {
+        this.plan = plan;
+        this.serializer = serializer;
+        this.constructor = constructor;
+        this.fields = fields;
+    }
+
+    /**
+     * Compiles a codec for the specified class.
+     *
+     * @return The codec, or null if the class can't be handled and the reflective path must be used.
+     */
+    static CompiledDocumentCodec compile(Class<?> type,
+                                         DocumentLayerSerializer serializer,
+                                         LayerRegistry<?> layerRegistry) {
+        Supplier<Object> constructor = LambdaAccessors.constructor(type);
+        CodecPlan plan = CodecPlan.of(type);
+        if (constructor == null || plan.getInstantiator().hasParameters()) {
+            return null;
+        }
+
+        List<FieldPlan> planFields = plan.getFields();
+        FieldCodec[] fields = new FieldCodec[planFields.size()];
+        for (int i = 0; i < fields.length; i++) {
+            fields[i] = fieldCodec(planFields.get(i), serializer, layerRegistry);
+        }
+        return new CompiledDocumentCodec(plan, serializer, constructor, fields);
+    }
+
+    Document encode(Object instance) {
+        SparseMode sparseMode = this.serializer.resolveSparseMode(this.plan);
+        Document document = new Document();
+        for (FieldCodec field : this.fields) {
+            field.encode(instance, document, sparseMode);
+        }
+        return document;
+    }
+
+    Object decode(Document document) {
+        Object instance = this.constructor.get();
+        for (FieldCodec field : this.fields) {
+            field.decode(document, instance);
+        }
+        if (this.serializer.resolveSparseMode(this.plan) == SparseMode.DEFAULTS) {
+            DocumentLayerSerializer.restoreDefaults(document, this.plan, instance);
+        }
+        return instance;
+    }
+
+    private static FieldCodec fieldCodec(FieldPlan field,
+                                         DocumentLayerSerializer serializer,
+                                         LayerRegistry<?> layerRegistry) {
+        if (field.getKind() == FieldPlan.Kind.MAP || field.isPacked() || field.isCompressed() || isDynamic(field.getBoxedType())) {
+            return new ReflectiveField(field, serializer, layerRegistry);
+        }
+        if (field.getKind() == FieldPlan.Kind.COLLECTION) {
+            return new CollectionField(field, serializer, layerRegistry);
+        }
+
+        Function<Object, Object> encoder = encoder(field.getBoxedType(), serializer, layerRegistry);
+        Function<Object, Object> decoder = decoder(field.getBoxedType(), serializer, layerRegistry);
+        Object primitiveLayer = layerRegistry.getLayer(field.getBoxedType()) == null
+                ? layerRegistry.getCommonLayer(field.getBoxedType())
+                : null;
+        if (field.getType() == int.class) {
+            return new IntField(field, encoder, decoder, primitiveLayer instanceof IntBasedLayer intLayer ? intLayer : null);
+        }
+        if (field.getType() == long.class) {
+            return new LongField(field, encoder, decoder, primitiveLayer instanceof LongBasedLayer longLayer ? longLayer : null);
+        }
+        return new TypedField(field, encoder, decoder, serializer, layerRegistry);
+    }
+
+    private static boolean isDynamic(Class<?> type) {
+        return type == Object.class || type.isInterface() || type.isArray() || Modifier.isAbstract(type.getModifiers());
+    }
+
+    /**
+     * Resolves the encoding of values whose runtime class is exactly the specified class.
+     */
+    private static Function<Object, Object> encoder(Class<?> type,
+                                                    DocumentLayerSerializer serializer,
+                                                    LayerRegistry<?> layerRegistry) {
+        MongoLayerBase<Object> layer = (MongoLayerBase<Object>) layerRegistry.resolveLayer(type);
+        if (layer != null) {
+            return layer::serialize;
+        }
+
+        CommonBasedLayer<Object, Object> commonBasedLayer = layerRegistry.resolveCommonLayer(type);
+        if (commonBasedLayer != null) {
+            return commonBasedLayer::serialize;
+        }
+
+        return value -> serializer.encode(value, layerRegistry);
+    }
+
+    /**
+     * Resolves the decoding of stored values into the specified class.
+     */
+    private static Function<Object, Object> decoder(Class<?> type,
+                                                    DocumentLayerSerializer serializer,
+                                                    LayerRegistry<?> layerRegistry) {
+        if (FieldPlan.isCompressible(type)) {
+            // the field may hold a value compressed while it was annotated with @Compressed
+            return value -> serializer.decodeValue(value, type, layerRegistry);
+        }
+
+        MongoLayerBase<Object> layer = (MongoLayerBase<Object>) layerRegistry.getLayer(type);
+        if (layer != null) {
+            return layer::deserialize;
+        }
+
+        CommonBasedLayer<Object, Object> commonBasedLayer = layerRegistry.getCommonLayer(type);
+        if (commonBasedLayer != null) {
+            return commonBasedLayer::deserialize;
+        }
+
+        return value -> value instanceof Document document ? serializer.decode(document, layerRegistry, type) : value;
+    }
+
+    private interface FieldCodec {
+
+        void encode(Object instance, Document target, SparseMode sparseMode);
+
+        void decode(Document source, Object instance);
+    }
+
+    private record ReflectiveField(FieldPlan field,
+                                   DocumentLayerSerializer serializer,
+                                   LayerRegistry<?> layerRegistry) implements FieldCodec {
+
+        @Override
+        public void encode(Object instance, Document target, SparseMode sparseMode) {
+            this.serializer.encodeField(instance, this.field, target, sparseMode, this.layerRegistry);
+        }
+
+        @Override
+        public void decode(Document source, Object instance) {
+            this.serializer.decodeField(source, this.field, instance, this.layerRegistry);
+        }
+    }
+
+    private static final class IntField implements FieldCodec {
+
+        private final String name;
+        private final ToIntFunction<Object> getter;
+        private final ObjIntConsumer<Object> setter;
+        private final Function<Object, Object> encoder;
+        private final Function<Object, Object> decoder;
+        private final IntBasedLayer layer;
+
+        private IntField(FieldPlan field, Function<Object, Object> encoder, Function<Object, Object> decoder, IntBasedLayer layer) {
+            this.name = field.getName();
+            this.getter = LambdaAccessors.intGetter(field);
+            this.setter = LambdaAccessors.intSetter(field);
+            this.encoder = encoder;
+            this.decoder = decoder;
+            this.layer = layer;
+        }
+
+        @Override
+        public void encode(Object instance, Document target, SparseMode sparseMode) {
+            int value = this.getter.applyAsInt(instance);
+            if (value == 0 && sparseMode == SparseMode.DEFAULTS) {
+                return;
+            }
+            if (this.layer != null) {
+                target.put(this.name, this.layer.writeInt(value));
+                return;
+            }
+            target.put(this.name, this.encoder.apply(value));
+        }
+
+        @Override
+        public void decode(Document source, Object instance) {
+            Object value = source.get(this.name);
+            if (this.layer != null) {
+                if (value instanceof Integer stored) {
+                    this.setter.accept(instance, this.layer.readInt(stored));
+                }
+                return;
+            }
+            if (value != null && this.decoder.apply(value) instanceof Integer decoded) {
+                this.setter.accept(instance, decoded);
+            }
+        }
+    }
+
+    private static final class LongField implements FieldCodec {
+
+        private final String name;
+        private final ToLongFunction<Object> getter;
+        private final ObjLongConsumer<Object> setter;
+        private final Function<Object, Object> encoder;
+        private final Function<Object, Object> decoder;
+        private final LongBasedLayer layer;
+
+        private LongField(FieldPlan field, Function<Object, Object> encoder, Function<Object, Object> decoder, LongBasedLayer layer) {
+            this.name = field.getName();
+            this.getter = LambdaAccessors.longGetter(field);
+            this.setter = LambdaAccessors.longSetter(field);
+            this.encoder = encoder;
+            this.decoder = decoder;
+            this.layer = layer;
+        }
+
+        @Override
+        public void encode(Object instance, Document target, SparseMode sparseMode) {
+            long value = this.getter.applyAsLong(instance);
+            if (value == 0L && sparseMode == SparseMode.DEFAULTS) {
+                return;
+            }
+            if (this.layer != null) {
+                target.put(this.name, this.layer.writeLong(value));
+                return;
+            }
+            target.put(this.name, this.encoder.apply(value));
+        }
+
+        @Override
+        public void decode(Document source, Object instance) {
+            Object value = source.get(this.name);
+            if (this.layer != null) {
+                if (value instanceof Long stored) {
+                    this.setter.accept(instance, this.layer.readLong(stored));
+                }
+                return;
+            }
+            if (value != null && this.decoder.apply(value) instanceof Long decoded) {
+                this.setter.accept(instance, decoded);
+            }
+        }
+    }
+
+    private static final class TypedField implements FieldCodec {
+
+        private final String name;
+        private final Class<?> type;
+        private final boolean primitive;
+        private final boolean exact;
+        private final Function<Object, Object> getter;
+        private final BiConsumer<Object, Object> setter;
+        private final Function<Object, Object> encoder;
+        private final Function<Object, Object> decoder;
+        private final DocumentLayerSerializer serializer;
+        private final LayerRegistry<?> layerRegistry;
+
+        private TypedField(FieldPlan field,
+                           Function<Object, Object> encoder,
+                           Function<Object, Object> decoder,
+                           DocumentLayerSerializer serializer,
+                           LayerRegistry<?> layerRegistry) {
+            this.name = field.getName();
+            this.type = field.getBoxedType();
+            this.primitive = field.getType().isPrimitive();
+            this.exact = this.primitive || Modifier.isFinal(this.type.getModifiers());
+            this.getter = LambdaAccessors.getter(field);
+            this.setter = LambdaAccessors.setter(field);
+            this.encoder = encoder;
+            this.decoder = decoder;
+            this.serializer = serializer;
+            this.layerRegistry = layerRegistry;
+        }
+
+        @Override
+        public void encode(Object instance, Document target, SparseMode sparseMode) {
+            Object value = this.getter.apply(instance);
+            if (sparseMode.skips(value, this.primitive)) {
+                return;
+            }
+            if (value == null) {
+                target.put(this.name, null);
+            } else if (this.exact || value.getClass() == this.type) {
+                target.put(this.name, this.encoder.apply(value));
+            } else {
+                target.put(this.name, this.serializer.encodeValue(value, this.layerRegistry));
+            }
+        }
+
+        @Override
+        public void decode(Document source, Object instance) {
+            Object value = source.get(this.name);
+            if (value == null) {
+                if (!this.primitive) {
+                    this.setter.accept(instance, null);
+                }
+                return;
+            }
+
+            if (!this.exact) {
+                Object declared = this.getter.apply(instance);
+                if (declared != null && declared.getClass() != this.type) {
+                    this.setter.accept(instance, this.serializer.decodeValue(value, declared.getClass(), this.layerRegistry));
+                    return;
+                }
+            }
+            this.setter.accept(instance, this.decoder.apply(value));
+        }
+    }
+
+    private static final class CollectionField implements FieldCodec {
+
+        private final FieldPlan field;
+        private final String name;
+        private final Function<Object, Object> getter;
+        private final BiConsumer<Object, Object> setter;
+        private final Class<?> elementType;
+        private final Function<Object, Object> elementEncoder;
+        private final Function<Object, Object> decoder;
+        private final DocumentLayerSerializer serializer;
+        private final LayerRegistry<?> layerRegistry;
+
+        private CollectionField(FieldPlan field,
+                                DocumentLayerSerializer serializer,
+                                LayerRegistry<?> layerRegistry) {
+            this.field = field;
+            this.name = field.getName();
+            this.getter = LambdaAccessors.getter(field);
+            this.setter = LambdaAccessors.setter(field);
+            this.elementType = field.getElementType();
+            this.elementEncoder = this.elementType != null && !isDynamic(this.elementType)
+                    ? encoder(this.elementType, serializer, layerRegistry)
+                    : null;
+            this.decoder = serializer.valueDecoder(field.getGenericType(), layerRegistry);
+            this.serializer = serializer;
+            this.layerRegistry = layerRegistry;
+        }
+
+        @Override
+        public void encode(Object instance, Document target, SparseMode sparseMode) {
+            Object value = this.getter.apply(instance);
+            if (sparseMode.skips(value, false)) {
+                return;
+            }
+            if (!(value instanceof Collection<?> collection)) {
+                target.put(this.name, value == null ? null : this.serializer.encodeValue(value, this.layerRegistry));
+                return;
+            }
+
+            List<Object> encodedList = new ArrayList<>(collection.size());
+            for (Object item : collection) {
+                if (item == null) {
+                    encodedList.add(null);
+                } else if (this.elementEncoder != null && item.getClass() == this.elementType) {
+                    encodedList.add(this.elementEncoder.apply(item));
+                } else {
+                    encodedList.add(this.serializer.encodeValue(item, this.layerRegistry));
+                }
+            }
+            target.put(this.name, encodedList);
+        }
+
+        @Override
+        public void decode(Document source, Object instance) {
+            Object value = source.get(this.name);
+            if (!(value instanceof List<?>)) {
+                // null, or a list stored packed before the annotation was removed
+                this.serializer.decodeField(source, this.field, instance, this.layerRegistry);
+                return;
+            }
+            this.setter.accept(instance, this.decoder.apply(value));
+        }
+    }
+}
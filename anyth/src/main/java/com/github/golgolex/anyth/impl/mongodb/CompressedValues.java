@@ -0,0 +1,80 @@
+package com.github.golgolex.anyth.impl.mongodb;
+
+/*
+ * Copyright 2024 anyth contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import com.github.golgolex.anyth.annotations.Compressed;
+import com.github.golgolex.anyth.codec.ValueCompressor;
+import org.bson.types.Binary;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Converts the values of {@link Compressed} fields to their stored form: the plain String or
+ * binary below the threshold, otherwise a {@link Binary} of the user-defined subtype
+ * {@link #SUBTYPE} holding the value compressed by a {@link ValueCompressor}. Decoding accepts
+ * every form for String and byte[] fields, whether they are annotated or not.
+ */
+public final class CompressedValues {
+
+    /**
+     * The binary subtype of compressed values.
+     */
+    public static final byte SUBTYPE = (byte) 0x81;
+
+    private CompressedValues() {
+    }
+
+    /**
+     * Encodes the value of a compressed field.
+     *
+     * @param compressor The compressor, recording the metrics.
+     * @param value      The String or byte[] value, not null.
+     * @param threshold  The size in bytes from which the value is compressed.
+     * @return The String, or a {@link Binary}.
+     */
+    public static Object encode(ValueCompressor compressor, Object value, int threshold) {
+        byte[] bytes;
+        if (value instanceof String string) {
+            if (string.length() < threshold / 3) {
+                // can't reach the threshold, even if every char takes three bytes
+                return string;
+            }
+            bytes = string.getBytes(StandardCharsets.UTF_8);
+        } else {
+            bytes = (byte[]) value;
+        }
+
+        byte[] compressed = bytes.length >= threshold ? compressor.compress(bytes, 0) : null;
+        if (compressed != null) {
+            return new Binary(SUBTYPE, compressed);
+        }
+        return value instanceof String ? value : new Binary(bytes);
+    }
+
+    /**
+     * Decodes a stored binary into a String or byte[] field.
+     *
+     * @param compressor The compressor, recording the metrics.
+     * @param binary     The stored binary.
+     * @param type       {@code String.class} or {@code byte[].class}.
+     * @return The decoded value.
+     */
+    public static Object decode(ValueCompressor compressor, Binary binary, Class<?> type) {
+        byte[] bytes = binary.getType() == SUBTYPE ? compressor.decompress(binary.getData(), 0) : binary.getData();
+        return type == String.class ? new String(bytes, StandardCharsets.UTF_8) : bytes;
+    }
+}
@@ -17,19 +17,32 @@ package com.github.golgolex.anyth.impl.mongodb;
  */
 
 import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Projections;
 import com.mongodb.client.model.ReplaceOptions;
 import com.mongodb.client.model.UpdateOptions;
 import com.mongodb.client.result.DeleteResult;
 import com.mongodb.client.result.UpdateResult;
+import com.github.golgolex.anyth.codec.CodecPlan;
+import com.github.golgolex.anyth.codec.FieldPlan;
+import com.github.golgolex.anyth.codec.SparseMode;
+import com.github.golgolex.anyth.layer.defaults.BigDecimalLayer;
 import com.github.golgolex.anyth.repository.AbstractRepository;
+import com.github.golgolex.anyth.repository.SnapshotCache;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.NonNull;
+import lombok.Setter;
 import org.bson.*;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.configuration.CodecRegistries;
+import org.bson.codecs.configuration.CodecRegistry;
 import org.bson.conversions.Bson;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.stream.Collectors;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
 
 @Getter
 public class DefaultMongoRepository extends AbstractRepository<MongoLayerBase<?>,
@@ -39,44 +52,303 @@ public class DefaultMongoRepository extends AbstractRepository<MongoLayerBase<?>
 
     private final MongoCollection<Document> mongoCollection;
 
+    /**
+     * Whether objects are snapshotted when they are queried or saved, so
+     * {@link #applyChanges(Bson, Object)} only sends the fields that changed since.
+     * Snapshots are kept per filter until the object is deleted or {@link #forgetChanges(Bson)}
+     * is called, at most {@link #setMaxSnapshots(int) a bounded number} of them.
+     */
+    @Setter
+    private boolean changeTracking;
+
+    @Getter(AccessLevel.NONE)
+    private final SnapshotCache<BsonDocument, Document> snapshots = new SnapshotCache<>();
+
     public DefaultMongoRepository(String repositoryName,
                                   MongoCollection<Document> mongoCollection) {
         super(repositoryName, new DocumentLayerSerializer());
         this.mongoCollection = mongoCollection;
+
+        this.applyCommonLayer(BigDecimalLayer.class);
+    }
+
+    /**
+     * Replaces the default {@link com.github.golgolex.anyth.layer.defaults.UUIDLayer} with the
+     * {@link BinaryUUIDLayer}, so UUIDs are written as 16 byte binaries. Existing string UUIDs
+     * are still read and are rewritten in the binary form when their document is replaced.
+     */
+    public void useBinaryUUIDs() {
+        this.removeLayer(UUID.class);
+        this.applyCommonLayer(BinaryUUIDLayer.class);
+    }
+
+    /**
+     * Sets the {@link SparseMode} of the classes stored through this repository that aren't
+     * annotated with {@link com.github.golgolex.anyth.annotations.Sparse}.
+     *
+     * @param sparseMode The fields left out of written documents.
+     */
+    public void setSparseMode(@NonNull SparseMode sparseMode) {
+        this.getLayerSerializer().setSparseMode(sparseMode);
+    }
+
+    /**
+     * Returns a view of the collection that encodes and decodes the specified class through the
+     * codec provided by {@link AnythCodecProvider}: the generated or compiled codec of the class if
+     * there is one, otherwise an {@link AnythCodec} streaming it without an intermediate
+     * {@link Document}. The view is rebuilt when the layers of the repository change.
+     *
+     * @param clazz The class stored in the collection.
+     * @param <T>   The class type.
+     * @return The typed collection.
+     */
+    public <T> MongoCollection<T> getTypedCollection(@NonNull Class<T> clazz) {
+        return this.getLayerRegistry().derive(new TypedCollectionKey(this, clazz),
+                key -> this.mongoCollection.withDocumentClass(clazz)
+                        .withCodecRegistry(CodecRegistries.fromRegistries(
+                                CodecRegistries.fromProviders(new AnythCodecProvider(this.getLayerSerializer(), this.getLayerRegistry(), clazz)),
+                                this.mongoCollection.getCodecRegistry())));
+    }
+
+    private record TypedCollectionKey(DefaultMongoRepository repository, Class<?> type) {
     }
 
     @Override
     public Document serializerObject(@NonNull Object object) {
         return this.getLayerSerializer()
-                .encode(object,
-                        this.getLayers()
-                                .values()
-                                .stream()
-                                .map(mongoLayerBase -> (MongoLayerBase<Object>) mongoLayerBase)
-                                .collect(Collectors.toList()),
-                        this.getCommonLayer().values());
+                .encode(object, this.getLayerRegistry());
     }
 
     @Override
     public <T> T deserializeObject(@NonNull Document serialized, @NonNull Class<T> clazz) {
         return (T) this.getLayerSerializer()
-                .decode(serialized,
-                        this.getLayers()
-                                .values()
-                                .stream()
-                                .map(mongoLayerBase -> (MongoLayerBase<Object>) mongoLayerBase)
-                                .collect(Collectors.toList()),
-                        clazz,
-                        this.getCommonLayer().values());
+                .decode(serialized, this.getLayerRegistry(), clazz);
     }
 
     @Override
     public <T> T query(@NonNull Bson bson, @NonNull Class<T> clazz) {
+        T object = getTypedCollection(clazz).find(bson).first();
+        if (object == null) {
+            // objects stored with a bson_filter are only found through the document lookup
+            Document document = query(bson);
+            if (document == null) {
+                return null;
+            }
+            object = deserializeObject(document, clazz);
+        }
+
+        track(bson, object);
+        return object;
+    }
+
+    /**
+     * Drops the change tracking snapshot of the object matching the filter, so the next
+     * {@link #applyChanges(Bson, Object)} sends all fields again.
+     *
+     * @param bson The BSON filter the object was queried with.
+     */
+    public void forgetChanges(@NonNull Bson bson) {
+        this.snapshots.remove(trackingKey(bson));
+    }
+
+    /**
+     * Sets the number of change tracking snapshots kept. Beyond it the least recently used are
+     * dropped, so their objects are written in full by the next {@link #applyChanges(Bson, Object)}.
+     *
+     * @param maxSnapshots The maximum number of snapshots, {@link SnapshotCache#DEFAULT_MAX_SIZE} by default.
+     */
+    public void setMaxSnapshots(int maxSnapshots) {
+        this.snapshots.setMaxSize(maxSnapshots);
+    }
+
+    private void track(Bson bson, Object object) {
+        if (this.changeTracking) {
+            this.snapshots.put(trackingKey(bson), this.serializerObject(object));
+        }
+    }
+
+    private BsonDocument trackingKey(Bson bson) {
+        return bson.toBsonDocument(Document.class, this.mongoCollection.getCodecRegistry());
+    }
+
+    /**
+     * Queries an object, fetching and decoding only the specified fields. All other fields keep
+     * the values assigned by the no-arg constructor of the class.
+     * <p>
+     * {@code _id} is excluded from the projection unless it is listed, so the query can be
+     * answered from an index covering the filter and the fields alone.
+     *
+     * @param bson   The BSON filter to determine the object.
+     * @param clazz  The class of the object.
+     * @param fields The names of the fields to fetch. Field names are translated into the names
+     *               set through {@link com.github.golgolex.anyth.annotations.StoredAs}.
+     * @param <T>    The generic type of the object.
+     * @return The partially decoded object, or null if no object matches.
+     */
+    public <T> T query(@NonNull Bson bson, @NonNull Class<T> clazz, @NonNull Collection<String> fields) {
+        return query(bson, clazz, projection(clazz, fields));
+    }
+
+    /**
+     * Queries an object, fetching and decoding only the fields selected by the specified
+     * projection. All other fields keep the values assigned by the no-arg constructor of the class.
+     *
+     * @param bson       The BSON filter to determine the object.
+     * @param clazz      The class of the object.
+     * @param projection The projection, for example built with {@link Projections}.
+     * @param <T>        The generic type of the object.
+     * @return The partially decoded object, or null if no object matches.
+     */
+    public <T> T query(@NonNull Bson bson, @NonNull Class<T> clazz, @NonNull Bson projection) {
+        MongoCollection<T> typedCollection = getProjectedCollection(clazz);
+        T object = typedCollection.find(bson).projection(projection).first();
+        if (object != null) {
+            return object;
+        }
+
         Document document = query(bson);
         if (document == null) {
             return null;
         }
-        return deserializeObject(document, clazz);
+        return decodeProjected(typedCollection, document, projection);
+    }
+
+    /**
+     * Queries all objects matching the filter, fetching and decoding only the specified fields.
+     *
+     * @param bson   The BSON filter to determine the objects.
+     * @param clazz  The class of the objects.
+     * @param fields The names of the fields to fetch. Field names are translated into the names
+     *               set through {@link com.github.golgolex.anyth.annotations.StoredAs}.
+     * @param <T>    The generic type of the objects.
+     * @return The partially decoded objects.
+     * @see #query(Bson, Class, Collection)
+     */
+    public <T> Collection<T> queryAll(@NonNull Bson bson, @NonNull Class<T> clazz, @NonNull Collection<String> fields) {
+        return queryAll(bson, clazz, projection(clazz, fields));
+    }
+
+    /**
+     * Queries all objects matching the filter, fetching and decoding only the fields selected by
+     * the specified projection.
+     *
+     * @param bson       The BSON filter to determine the objects.
+     * @param clazz      The class of the objects.
+     * @param projection The projection, for example built with {@link Projections}.
+     * @param <T>        The generic type of the objects.
+     * @return The partially decoded objects.
+     */
+    public <T> Collection<T> queryAll(@NonNull Bson bson, @NonNull Class<T> clazz, @NonNull Bson projection) {
+        return getProjectedCollection(clazz).find(bson).projection(projection).into(new ArrayList<>());
+    }
+
+    /**
+     * Returns a view of the collection decoding projected documents of the specified class, so
+     * fields that were projected away keep the values assigned by the no-arg constructor.
+     * Generated and compiled codecs can't tell them from missing fields, the view always goes
+     * through an {@link AnythCodec}.
+     */
+    private <T> MongoCollection<T> getProjectedCollection(Class<T> clazz) {
+        return this.getLayerRegistry().derive(new ProjectedCollectionKey(this, clazz),
+                key -> this.mongoCollection.withDocumentClass(clazz)
+                        .withCodecRegistry(CodecRegistries.fromRegistries(
+                                CodecRegistries.fromCodecs(codec(clazz).projected()),
+                                getTypedCollection(clazz).getCodecRegistry())));
+    }
+
+    private record ProjectedCollectionKey(DefaultMongoRepository repository, Class<?> type) {
+    }
+
+    private static Bson projection(Class<?> clazz, Collection<String> fields) {
+        CodecPlan plan = CodecPlan.of(clazz);
+        List<String> storedNames = new ArrayList<>(fields.size());
+        for (String field : fields) {
+            storedNames.add(plan.getStoredName(field));
+        }
+        if (storedNames.contains("_id")) {
+            return Projections.include(storedNames);
+        }
+        return Projections.fields(Projections.include(storedNames), Projections.excludeId());
+    }
+
+    /**
+     * Applies a projection to a document fetched without one (objects stored with a bson_filter)
+     * and decodes it, skipping the fields that were projected away.
+     */
+    private <T> T decodeProjected(MongoCollection<T> typedCollection, Document document, Bson projection) {
+        BsonDocument projectionDocument = projection.toBsonDocument(Document.class, this.mongoCollection.getCodecRegistry());
+        boolean inclusive = projectionDocument.entrySet()
+                .stream()
+                .anyMatch(entry -> !entry.getKey().equals("_id") && isIncluded(entry.getValue()));
+
+        Document projected = new Document();
+        for (Map.Entry<String, Object> entry : document.entrySet()) {
+            BsonValue selection = projectionDocument.get(entry.getKey());
+            boolean keep = inclusive
+                    ? selection != null && isIncluded(selection)
+                    : selection == null || isIncluded(selection);
+            if (keep) {
+                projected.put(entry.getKey(), entry.getValue());
+            }
+        }
+
+        CodecRegistry codecRegistry = typedCollection.getCodecRegistry();
+        return codecRegistry.get(typedCollection.getDocumentClass()).decode(
+                new BsonDocumentReader(projected.toBsonDocument(Document.class, codecRegistry)),
+                DecoderContext.builder().build());
+    }
+
+    private static boolean isIncluded(BsonValue selection) {
+        return selection.isBoolean() ? selection.asBoolean().getValue()
+                : !selection.isNumber() || selection.asNumber().intValue() != 0;
+    }
+
+    /**
+     * Queries an object as a {@link LazyEntityView} over its raw BSON, so fields are only decoded
+     * when they are accessed.
+     *
+     * @param bson  The BSON filter to determine the object.
+     * @param clazz The class of the object.
+     * @param <T>   The generic type of the object.
+     * @return The view, or null if no object matches.
+     */
+    public <T> LazyEntityView<T> queryLazy(@NonNull Bson bson, @NonNull Class<T> clazz) {
+        RawBsonDocument document = this.mongoCollection.withDocumentClass(RawBsonDocument.class).find(bson).first();
+        if (document == null) {
+            Document filtered = query(bson);
+            if (filtered == null) {
+                return null;
+            }
+            document = new RawBsonDocument(filtered, this.mongoCollection.getCodecRegistry().get(Document.class));
+        }
+        return new LazyEntityView<>(document, codec(clazz));
+    }
+
+    /**
+     * Queries all objects matching the filter as {@link LazyEntityView}s.
+     *
+     * @param bson  The BSON filter to determine the objects.
+     * @param clazz The class of the objects.
+     * @param <T>   The generic type of the objects.
+     * @return The views.
+     * @see #queryLazy(Bson, Class)
+     */
+    public <T> Collection<LazyEntityView<T>> queryAllLazy(@NonNull Bson bson, @NonNull Class<T> clazz) {
+        AnythCodec<T> codec = codec(clazz);
+        Collection<LazyEntityView<T>> views = new ArrayList<>();
+        for (RawBsonDocument document : this.mongoCollection.withDocumentClass(RawBsonDocument.class).find(bson)) {
+            views.add(new LazyEntityView<>(document, codec));
+        }
+        return views;
+    }
+
+    private <T> AnythCodec<T> codec(Class<T> clazz) {
+        return this.getLayerRegistry().derive(new LazyCodecKey(this, clazz),
+                key -> new AnythCodec<>(clazz, this.getLayerSerializer(), this.getLayerRegistry(),
+                        getTypedCollection(clazz).getCodecRegistry()));
+    }
+
+    private record LazyCodecKey(DefaultMongoRepository repository, Class<?> type) {
     }
 
     @Override
@@ -115,7 +387,8 @@ public class DefaultMongoRepository extends AbstractRepository<MongoLayerBase<?>
         {
             return false;
         }
-        UpdateResult updateResult = mongoCollection.replaceOne(query(bson), this.serializerObject(object));
+        UpdateResult updateResult = typedCollection(object).replaceOne(query(bson), object);
+        track(bson, object);
         return updateResult.wasAcknowledged() && updateResult.getModifiedCount() > 0;
     }
 
@@ -133,6 +406,7 @@ public class DefaultMongoRepository extends AbstractRepository<MongoLayerBase<?>
             return false;
         }
         UpdateResult updateResult = mongoCollection.replaceOne(query(bson), document);
+        forgetChanges(bson);
         return updateResult.wasAcknowledged() && updateResult.getModifiedCount() > 0;
     }
 
@@ -159,7 +433,8 @@ public class DefaultMongoRepository extends AbstractRepository<MongoLayerBase<?>
         {
             return false;
         }
-        UpdateResult updateResult = mongoCollection.replaceOne(query(bson), this.serializerObject(object), replaceOptions);
+        UpdateResult updateResult = typedCollection(object).replaceOne(query(bson), object, replaceOptions);
+        track(bson, object);
         return updateResult.wasAcknowledged() && updateResult.getModifiedCount() > 0;
     }
 
@@ -237,16 +512,7 @@ public class DefaultMongoRepository extends AbstractRepository<MongoLayerBase<?>
 
     @Override
     public <T> Collection<T> queryAll(Class<T> clazz) {
-        ArrayList<Document> documents = new ArrayList<>();
-
-        for (Document document : this.mongoCollection.find()) {
-            documents.add(document);
-        }
-
-        return documents
-                .stream()
-                .map(document -> this.deserializeObject(document, clazz))
-                .toList();
+        return getTypedCollection(clazz).find().into(new ArrayList<>());
     }
 
     @Override
@@ -261,17 +527,25 @@ public class DefaultMongoRepository extends AbstractRepository<MongoLayerBase<?>
 
     @Override
     public <T> boolean insert(Bson bson, @NonNull T object) {
-        Document document = this.serializerObject(object);
-        if (document != null) {
-            if (bson != null) {
-                if (exist(bson)) {
-                    return false;
-                }
-                document.put("bson_filter", bson);
-            }
-            this.mongoCollection.insertOne(document);
+        if (bson == null) {
+            typedCollection(object).insertOne(object);
+            return true;
         }
-        return document != null;
+
+        if (exist(bson)) {
+            return false;
+        }
+
+        // the filter is stored next to the fields, so these objects still go through a document
+        Document document = this.serializerObject(object);
+        document.put("bson_filter", bson);
+        this.mongoCollection.insertOne(document);
+        track(bson, object);
+        return true;
+    }
+
+    private <T> MongoCollection<T> typedCollection(T object) {
+        return getTypedCollection((Class<T>) object.getClass());
     }
 
     @Override
@@ -289,6 +563,7 @@ public class DefaultMongoRepository extends AbstractRepository<MongoLayerBase<?>
                 return false;
             }
             document.put("bson_filter", bson);
+            forgetChanges(bson);
         }
         this.mongoCollection.insertOne(document);
         return true;
@@ -302,6 +577,7 @@ public class DefaultMongoRepository extends AbstractRepository<MongoLayerBase<?>
 
     @Override
     public boolean delete(@NonNull Bson bson) {
+        this.snapshots.remove(trackingKey(bson));
         DeleteResult deleteResult = this.mongoCollection.deleteOne(bson);
         return deleteResult.wasAcknowledged() && deleteResult.getDeletedCount() > 0;
     }
@@ -314,13 +590,7 @@ public class DefaultMongoRepository extends AbstractRepository<MongoLayerBase<?>
     @Override
     public <T> boolean applyChanges(@NonNull Bson bson, @NonNull T object)
     {
-        if (!exist(bson))
-        {
-            return false;
-        }
-        UpdateResult updateResult = this.mongoCollection.updateOne(query(bson), new Document("$set",
-                this.serializerObject(object)));
-        return updateResult.wasAcknowledged() && updateResult.getModifiedCount() > 0;
+        return applyChanges(bson, object, new UpdateOptions());
     }
 
     @Override
@@ -331,6 +601,7 @@ public class DefaultMongoRepository extends AbstractRepository<MongoLayerBase<?>
             return false;
         }
         UpdateResult updateResult = this.mongoCollection.updateOne(query(bson), new Document("$set", document));
+        forgetChanges(bson);
         return updateResult.wasAcknowledged() && updateResult.getModifiedCount() > 0;
     }
 
@@ -348,16 +619,75 @@ public class DefaultMongoRepository extends AbstractRepository<MongoLayerBase<?>
 
     /* ======================================================================================= */
 
+    /**
+     * Applies the changes of an object. With {@link #setChangeTracking(boolean) change tracking}
+     * enabled and a snapshot of the object present, only the changed fields are sent as
+     * {@code $set}/{@code $unset}, and nothing is sent at all if no field changed.
+     *
+     * @param bson          The BSON filter to determine the object.
+     * @param object        The changed object.
+     * @param updateOptions The options for the update operation.
+     * @param <T>           The generic type of the object.
+     * @return true if the stored object was modified, false otherwise.
+     */
     public <T> boolean applyChanges(@NonNull Bson bson, @NonNull T object, @NonNull UpdateOptions updateOptions)
     {
+        Document encoded = this.serializerObject(object);
+        Document update = fullUpdate(object, encoded);
+        BsonDocument trackingKey = null;
+
+        if (this.changeTracking)
+        {
+            trackingKey = trackingKey(bson);
+            Document snapshot = this.snapshots.get(trackingKey);
+            if (snapshot != null)
+            {
+                update = DocumentDiff.diff(snapshot, encoded);
+                if (update.isEmpty())
+                {
+                    return false;
+                }
+            }
+        }
+
         if (!exist(bson))
         {
+            if (trackingKey != null)
+            {
+                this.snapshots.remove(trackingKey);
+            }
             return false;
         }
-        UpdateResult updateResult = this.mongoCollection.updateOne(query(bson), new Document("$set", this.serializerObject(object)), updateOptions);
+        UpdateResult updateResult = this.mongoCollection.updateOne(query(bson), update, updateOptions);
+        if (trackingKey != null && updateResult.wasAcknowledged())
+        {
+            this.snapshots.put(trackingKey, encoded);
+        }
         return updateResult.wasAcknowledged() && updateResult.getModifiedCount() > 0;
     }
 
+    /**
+     * Sets all fields of an encoded object. Fields left out by the {@link SparseMode} of its
+     * class are removed with {@code $unset}, so a field that became null doesn't keep its old value.
+     */
+    private Document fullUpdate(Object object, Document encoded) {
+        Document update = new Document("$set", encoded);
+        if (this.getLayerSerializer().resolveSparseMode(object.getClass()) == SparseMode.OFF) {
+            return update;
+        }
+
+        Document unset = new Document();
+        for (FieldPlan field : CodecPlan.of(object.getClass()).getFields()) {
+            if (!encoded.containsKey(field.getName())) {
+                unset.put(field.getName(), "");
+            }
+        }
+        if (!unset.isEmpty()) {
+            update.put("$unset", unset);
+        }
+        return update;
+    }
+
     public boolean applyChangesSerialized(@NonNull Bson bson, @NonNull Document document, @NonNull UpdateOptions updateOptions)
     {
         if (!exist(bson))
@@ -365,6 +695,7 @@ public class DefaultMongoRepository extends AbstractRepository<MongoLayerBase<?>
             return false;
         }
         UpdateResult updateResult = this.mongoCollection.updateOne(query(bson), new Document("$set", document), updateOptions);
+        forgetChanges(bson);
         return updateResult.wasAcknowledged() && updateResult.getModifiedCount() > 0;
     }
 
@@ -406,6 +737,7 @@ public class DefaultMongoRepository extends AbstractRepository<MongoLayerBase<?>
     @Override
     public boolean clear(@NonNull Bson bson)
     {
+        this.snapshots.clear();
         if (!this.exist(bson)) {
             return false;
         }
@@ -433,6 +765,7 @@ public class DefaultMongoRepository extends AbstractRepository<MongoLayerBase<?>
     @Override
     public boolean clear()
     {
+        this.snapshots.clear();
         long deleted = 0;
 
         for (Document document : this.queryAll())
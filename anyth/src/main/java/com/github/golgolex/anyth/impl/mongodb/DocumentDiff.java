@@ -0,0 +1,77 @@
+package com.github.golgolex.anyth.impl.mongodb;
+
+/*
+ * Copyright 2024 anyth contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import org.bson.Document;
+
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Computes the update turning one encoded object into another: a {@code $set} for every changed
+ * path and an {@code $unset} for every removed path. Nested documents are compared key by key
+ * and produce dotted paths, every other value (lists included) is replaced as a whole.
+ */
+final class DocumentDiff {
+
+    private DocumentDiff() {
+    }
+
+    /**
+     * @param before The encoded object as it was loaded or last saved.
+     * @param after  The encoded object as it is now.
+     * @return The update document, empty if nothing changed.
+     */
+    static Document diff(Document before, Document after) {
+        Document set = new Document();
+        Document unset = new Document();
+        diff("", before, after, set, unset);
+
+        Document update = new Document();
+        if (!set.isEmpty()) {
+            update.put("$set", set);
+        }
+        if (!unset.isEmpty()) {
+            update.put("$unset", unset);
+        }
+        return update;
+    }
+
+    private static void diff(String prefix, Document before, Document after, Document set, Document unset) {
+        for (Map.Entry<String, Object> entry : after.entrySet()) {
+            String path = prefix + entry.getKey();
+            Object value = entry.getValue();
+            if (!before.containsKey(entry.getKey())) {
+                set.put(path, value);
+                continue;
+            }
+
+            Object previous = before.get(entry.getKey());
+            if (previous instanceof Document previousDocument && value instanceof Document document) {
+                diff(path + ".", previousDocument, document, set, unset);
+            } else if (!Objects.equals(previous, value)) {
+                set.put(path, value);
+            }
+        }
+
+        for (String key : before.keySet()) {
+            if (!after.containsKey(key)) {
+                unset.put(prefix + key, "");
+            }
+        }
+    }
+}
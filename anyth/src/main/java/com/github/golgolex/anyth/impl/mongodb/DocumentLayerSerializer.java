@@ -16,293 +16,336 @@ package com.github.golgolex.anyth.impl.mongodb;
  * limitations under the License.
  */
 
-import com.github.golgolex.anyth.annotations.ConvertLayer;
+import com.github.golgolex.anyth.codec.CodecMode;
+import com.github.golgolex.anyth.codec.CodecPlan;
+import com.github.golgolex.anyth.codec.FieldPlan;
+import com.github.golgolex.anyth.codec.GeneratedCodec;
+import com.github.golgolex.anyth.codec.GeneratedCodecs;
+import com.github.golgolex.anyth.codec.GenericType;
+import com.github.golgolex.anyth.codec.SparseMode;
+import com.github.golgolex.anyth.codec.ValueCompressor;
 import com.github.golgolex.anyth.layer.AbstractLayerSerializer;
-import com.github.golgolex.anyth.layer.LayerBase;
+import com.github.golgolex.anyth.layer.LayerRegistry;
+import com.github.golgolex.anyth.layer.defaults.BooleanBasedLayer;
 import com.github.golgolex.anyth.layer.defaults.CommonBasedLayer;
+import com.github.golgolex.anyth.layer.defaults.IntBasedLayer;
+import com.github.golgolex.anyth.layer.defaults.LongBasedLayer;
+import lombok.Getter;
+import lombok.Setter;
 import org.bson.Document;
+import org.bson.types.Binary;
 
-import java.lang.reflect.Field;
-import java.lang.reflect.Modifier;
-import java.lang.reflect.ParameterizedType;
-import java.lang.reflect.Type;
 import java.util.*;
+import java.util.function.Function;
 
+@Getter
+@Setter
 public class DocumentLayerSerializer extends AbstractLayerSerializer<Document, MongoLayerBase<Object>> {
 
+    private static final GenericType RAW_MAP = GenericType.of(Map.class);
+
+    private static final Function<Object, Object> IDENTITY = Function.identity();
+
+    private CodecMode codecMode = CodecMode.REFLECTIVE;
+
+    /**
+     * The mode of classes not annotated with {@link com.github.golgolex.anyth.annotations.Sparse}.
+     */
+    private SparseMode sparseMode = SparseMode.OFF;
+
+    /**
+     * Compresses the values of {@link com.github.golgolex.anyth.annotations.Compressed} fields and
+     * records the metrics.
+     */
+    private final ValueCompressor compressor = new ValueCompressor();
+
     @Override
     public Document encode(Object object,
                            Collection<MongoLayerBase<Object>> layers,
                            Collection<CommonBasedLayer<?, ?>> commonBasedLayers) {
-        return Arrays.stream(object.getClass().getDeclaredFields())
-                .filter(field -> !(Modifier.isTransient(field.getModifiers())
-                        || Modifier.isFinal(field.getModifiers())
-                        || Modifier.isStatic(field.getModifiers())
-                        || field.getName().equals("hash")
-                        || field.getName().equals("hashIsZero")))
-                .peek(field -> {
-                    if (Modifier.isPrivate(field.getModifiers())) {
-                        field.setAccessible(true);
-                    }
-                })
-                .collect(
-                        Document::new,
-                        (encoded, field) -> {
-                            try {
-                                Object fieldValue = field.get(object);
-                                if (fieldValue != null) {
-                                    if (fieldValue instanceof Collection<?> collection)
-                                    {
-                                        List<Object> encodedList = new ArrayList<>();
-
-                                        for (Object item : collection)
-                                        {
-                                            if (item != null)
-                                            {
-                                                LayerBase<Object, Document> layer = layers.stream()
-                                                        .filter(objectLayerBase -> {
-                                                            ConvertLayer annotation = objectLayerBase.getClass().getAnnotation(ConvertLayer.class);
-                                                            return annotation != null && annotation.object().isAssignableFrom(item.getClass());
-                                                        })
-                                                        .findFirst()
-                                                        .orElse(null);
-
-                                                if (layer != null)
-                                                {
-                                                    encodedList.add(layer.serialize(item));
-                                                } else
-                                                {
-                                                    CommonBasedLayer<Object, Object> commonBasedLayer = (CommonBasedLayer<Object, Object>) commonBasedLayers.stream()
-                                                            .filter(objectLayerBase -> {
-                                                                ConvertLayer annotation = objectLayerBase.getClass().getAnnotation(ConvertLayer.class);
-                                                                return annotation != null && annotation.object().isAssignableFrom(item.getClass());
-                                                            })
-                                                            .findFirst()
-                                                            .orElse(null);
-
-                                                    if (commonBasedLayer != null)
-                                                    {
-                                                        encodedList.add(commonBasedLayer.serialize(item));
-                                                    } else
-                                                    {
-                                                        Document itemEncoded = encode(item, layers, commonBasedLayers);
-                                                        encodedList.add(itemEncoded);
-                                                    }
-                                                }
-                                            } else
-                                            {
-                                                encodedList.add(null);
-                                            }
-                                        }
-
-                                        encoded.put(field.getName(), encodedList);
-                                    } else
-                                    {
-                                        LayerBase<Object, Document> layer = layers.stream()
-                                                .filter(objectLayerBase -> {
-                                                    ConvertLayer annotation = objectLayerBase.getClass().getAnnotation(ConvertLayer.class);
-                                                    return annotation != null && annotation.object().isAssignableFrom(fieldValue.getClass());
-                                                })
-                                                .findFirst()
-                                                .orElse(null);
-
-                                        if (layer != null)
-                                        {
-                                            encoded.put(field.getName(), layer.serialize(fieldValue));
-                                        } else
-                                        {
-                                            CommonBasedLayer<Object, Object> commonBasedLayer = (CommonBasedLayer<Object, Object>) commonBasedLayers.stream()
-                                                    .filter(objectLayerBase -> {
-                                                        ConvertLayer annotation = objectLayerBase.getClass().getAnnotation(ConvertLayer.class);
-                                                        return annotation != null && annotation.object().isAssignableFrom(fieldValue.getClass());
-                                                    })
-                                                    .findFirst()
-                                                    .orElse(null);
-
-                                            if (commonBasedLayer != null)
-                                            {
-                                                encoded.put(field.getName(), commonBasedLayer.serialize(fieldValue));
-                                            } else
-                                            {
-                                                Document fieldEncoded = encode(fieldValue, layers, commonBasedLayers);
-                                                encoded.put(field.getName(), fieldEncoded);
-                                            }
-                                        }
-                                    }
-                                } else {
-                                    encoded.put(field.getName(), null);
-                                }
-                            } catch (IllegalAccessException ignored) {
-                            }
-                        },
-                        Document::putAll
-                );
-    }
-
-/*    @Override
-    public Document encode(Object object,
-                           Collection<MongoLayerBase<Object>> layers,
-                           Collection<CommonBasedLayer<?, ?>> commonBasedLayers) {
-        return Arrays.stream(object.getClass().getDeclaredFields())
-                .filter(field -> !(Modifier.isTransient(field.getModifiers())
-                        || Modifier.isFinal(field.getModifiers())
-                        || Modifier.isStatic(field.getModifiers())
-                        || field.getName().equals("hash")
-                        || field.getName().equals("hashIsZero")))
-                .collect(
-                        Document::new,
-                        (encoded, field) -> {
-                            try {
-                                field.setAccessible(true);
-                                Object fieldValue = field.get(object);
-
-                                if (fieldValue != null) {
-                                    if (fieldValue instanceof Collection<?>) {
-                                        List<Object> encodedList = new ArrayList<>();
-
-                                        for (Object item : (Collection<?>) fieldValue) {
-                                            if (item != null) {
-                                                encodedList.add(encode(item, layers, commonBasedLayers));
-                                            } else {
-                                                encodedList.add(null);
-                                            }
-                                        }
-
-                                        encoded.put(field.getName(), encodedList);
-                                    } else if (fieldValue instanceof Map<?, ?>) {
-                                        Map<?, ?> mapValue = (Map<?, ?>) fieldValue;
-                                        Map<Document, Document> encodedMap = new HashMap<>();
-
-                                        for (Map.Entry<?, ?> entry : mapValue.entrySet()) {
-                                            Object key = entry.getKey();
-                                            Object value = entry.getValue();
-
-                                            if (key != null && value != null) {
-
-                                                Document document = new Document();
-
-                                                if (value instanceof Collection<?> collection) {
-                                                    List<Document> items  = new ArrayList<>();
-                                                    for (Object item : collection)
-                                                    {
-                                                        items.add(encode(item, layers, commonBasedLayers));
-                                                    }
-                                                    CommonBasedLayer<Object, Object> commonBasedLayer = (CommonBasedLayer<Object, Object>) commonBasedLayers.stream()
-                                                            .filter(objectLayerBase -> {
-                                                                ConvertLayer annotation = objectLayerBase.getClass().getAnnotation(ConvertLayer.class);
-                                                                return annotation != null && annotation.object().isAssignableFrom(key.getClass());
-                                                            })
-                                                            .findFirst()
-                                                            .orElse(null);
-
-                                                    if (commonBasedLayer != null) {
-                                                        document.append(commonBasedLayer.serializeToString(key), items);
-                                                    }
-
-                                                    encodedMap.put(encode(key, layers, commonBasedLayers), document);
-                                                } else {
-
-                                                }
-
-                                                // Adjust the encoding based on the types
-                                                encodedMap.put(encode(key, layers, commonBasedLayers), document);
-                                            }
-                                        }
-
-                                        encoded.put(field.getName(), encodedMap);
-                                    } else {
-                                        encoded.put(field.getName(), null);
-                                    }
-                                } else {
-                                    encoded.put(field.getName(), null);
-                                }
-                            } catch (IllegalAccessException e) {
-                                e.printStackTrace();
-                            } finally {
-                                field.setAccessible(false);
-                            }
-                        },
-                        Document::putAll
-                );
-    }*/
+        return encode(object, layerRegistry(layers, commonBasedLayers));
+    }
+
+    @Override
+    public Document encode(Object object, LayerRegistry<?> layerRegistry) {
+        GeneratedCodec<Object> generatedCodec = (GeneratedCodec<Object>) GeneratedCodecs.find(object.getClass());
+        if (generatedCodec != null) {
+            return generatedCodec.encodeDocument(object, this, layerRegistry);
+        }
+
+        if (this.codecMode == CodecMode.GENERATED) {
+            CompiledDocumentCodec codec = compiledCodec(object.getClass(), layerRegistry);
+            if (codec != null) {
+                return codec.encode(object);
+            }
+        }
+
+        CodecPlan plan = CodecPlan.of(object.getClass());
+        SparseMode sparseMode = resolveSparseMode(plan);
+        Document encoded = new Document();
+
+        for (FieldPlan field : plan.getFields()) {
+            encodeField(object, field, encoded, sparseMode, layerRegistry);
+        }
+
+        return encoded;
+    }
+
+    /**
+     * Returns the sparse mode of a class: the mode set through
+     * {@link com.github.golgolex.anyth.annotations.Sparse}, or the mode of this serializer.
+     *
+     * @param type The class.
+     * @return The sparse mode.
+     */
+    public SparseMode resolveSparseMode(Class<?> type) {
+        return resolveSparseMode(CodecPlan.of(type));
+    }
+
+    SparseMode resolveSparseMode(CodecPlan plan) {
+        return plan.getSparseMode() != null ? plan.getSparseMode() : this.sparseMode;
+    }
+
+    void encodeField(Object object, FieldPlan field, Document encoded, SparseMode sparseMode, LayerRegistry<?> layerRegistry) {
+        Object fieldValue = field.get(object);
+        if (sparseMode.skips(fieldValue, field.getType().isPrimitive())) {
+            return;
+        }
+        if (fieldValue == null) {
+            encoded.put(field.getName(), null);
+        } else if (field.getKind() == FieldPlan.Kind.PRIMITIVE_ARRAY) {
+            encoded.put(field.getName(), PackedArrays.encodeArray(fieldValue, field.isPacked()));
+        } else if (field.isPacked() && fieldValue instanceof Collection<?> collection) {
+            encoded.put(field.getName(), PackedArrays.packList(collection, field.getElementType()));
+        } else if (field.isCompressed()) {
+            encoded.put(field.getName(), encodeCompressed(fieldValue, field.getCompressionThreshold()));
+        } else {
+            encoded.put(field.getName(), encodeValue(fieldValue, layerRegistry));
+        }
+    }
+
+    /**
+     * Encodes the value of a {@link com.github.golgolex.anyth.annotations.Compressed} field.
+     *
+     * @param value     The String or byte[] value, not null.
+     * @param threshold The size in bytes from which the value is compressed.
+     * @return The String, or a {@link Binary}.
+     * @see CompressedValues
+     */
+    public Object encodeCompressed(Object value, int threshold) {
+        return CompressedValues.encode(this.compressor, value, threshold);
+    }
+
+    /**
+     * Encodes a single value: collections element by element, primitive arrays as lists, values
+     * with a registered layer through that layer, maps through {@link #encodeMap(Map, LayerRegistry)}
+     * and everything else as a nested document.
+     *
+     * @param value         The value to encode, not null.
+     * @param layerRegistry The registry holding the layers of the repository.
+     * @return The encoded value.
+     */
+    public Object encodeValue(Object value, LayerRegistry<?> layerRegistry) {
+        if (value instanceof Collection<?> collection) {
+            List<Object> encodedList = new ArrayList<>(collection.size());
+
+            for (Object item : collection) {
+                encodedList.add(item != null ? encodeValue(item, layerRegistry) : null);
+            }
+
+            return encodedList;
+        }
+
+        if (value instanceof int[] || value instanceof long[] || value instanceof double[]) {
+            return PackedArrays.encodeArray(value, false);
+        }
+
+        MongoLayerBase<Object> layer = (MongoLayerBase<Object>) layerRegistry.resolveLayer(value.getClass());
+        if (layer != null) {
+            return layer.serialize(value);
+        }
+
+        CommonBasedLayer<Object, Object> commonBasedLayer = layerRegistry.resolveCommonLayer(value.getClass());
+        if (commonBasedLayer != null) {
+            return commonBasedLayer.serialize(value);
+        }
+
+        if (value instanceof Map<?, ?> map) {
+            return encodeMap(map, layerRegistry);
+        }
+
+        return encode(value, layerRegistry);
+    }
+
+    /**
+     * Encodes the value of an {@code int} field through the {@link IntBasedLayer} registered for
+     * {@link Integer}, or through {@link #encodeValue(Object, LayerRegistry)} if there is none.
+     *
+     * @param value         The value to encode.
+     * @param layerRegistry The registry holding the layers of the repository.
+     * @return The encoded value.
+     */
+    public Object encodeInt(int value, LayerRegistry<?> layerRegistry) {
+        if (primitiveLayer(Integer.class, layerRegistry) instanceof IntBasedLayer layer) {
+            return layer.writeInt(value);
+        }
+        return encodeValue(value, layerRegistry);
+    }
+
+    /**
+     * Encodes the value of a {@code long} field through the {@link LongBasedLayer} registered for
+     * {@link Long}, or through {@link #encodeValue(Object, LayerRegistry)} if there is none.
+     *
+     * @param value         The value to encode.
+     * @param layerRegistry The registry holding the layers of the repository.
+     * @return The encoded value.
+     */
+    public Object encodeLong(long value, LayerRegistry<?> layerRegistry) {
+        if (primitiveLayer(Long.class, layerRegistry) instanceof LongBasedLayer layer) {
+            return layer.writeLong(value);
+        }
+        return encodeValue(value, layerRegistry);
+    }
+
+    /**
+     * Encodes the value of a {@code boolean} field through the {@link BooleanBasedLayer} registered
+     * for {@link Boolean}, or through {@link #encodeValue(Object, LayerRegistry)} if there is none.
+     *
+     * @param value         The value to encode.
+     * @param layerRegistry The registry holding the layers of the repository.
+     * @return The encoded value.
+     */
+    public Object encodeBoolean(boolean value, LayerRegistry<?> layerRegistry) {
+        if (primitiveLayer(Boolean.class, layerRegistry) instanceof BooleanBasedLayer layer) {
+            return layer.writeBoolean(value);
+        }
+        return encodeValue(value, layerRegistry);
+    }
+
+    /**
+     * Returns the common layer of a boxed primitive type, null if a {@link MongoLayerBase} takes
+     * precedence over it.
+     */
+    private static Object primitiveLayer(Class<?> boxedType, LayerRegistry<?> layerRegistry) {
+        return layerRegistry.getLayer(boxedType) == null ? layerRegistry.getCommonLayer(boxedType) : null;
+    }
+
+    /**
+     * Encodes a map. If every key is a String or has a {@link CommonBasedLayer}, the map is
+     * written as a sub-document keyed by {@link CommonBasedLayer#serializeToString(Object)}.
+     * Otherwise, or if a key isn't a valid field name, it is written as a flat
+     * {@code [key, value, key, value, ...]} list with encoded keys.
+     *
+     * @param map           The map to encode, not null.
+     * @param layerRegistry The registry holding the layers of the repository.
+     * @return The encoded map, either a {@link Document} or a {@link List}.
+     */
+    public Object encodeMap(Map<?, ?> map, LayerRegistry<?> layerRegistry) {
+        String[] names = keyNames(map, layerRegistry);
+        if (names == null) {
+            return encodeEntries(map, layerRegistry);
+        }
+
+        Document encoded = new Document();
+        int index = 0;
+        for (Object value : map.values()) {
+            encoded.put(names[index++], value != null ? encodeValue(value, layerRegistry) : null);
+        }
+        return encoded;
+    }
+
+    /**
+     * Returns the field names the keys of a map are stored under, in iteration order.
+     *
+     * @return The field names, or null if the map has to be stored as a key/value list.
+     */
+    String[] keyNames(Map<?, ?> map, LayerRegistry<?> layerRegistry) {
+        String[] names = new String[map.size()];
+        Class<?> keyType = null;
+        CommonBasedLayer<Object, Object> keyLayer = null;
+
+        int index = 0;
+        for (Object key : map.keySet()) {
+            if (key == null) {
+                return null;
+            }
+            if (key.getClass() != keyType) {
+                keyType = key.getClass();
+                keyLayer = keyType == String.class ? null : layerRegistry.resolveCommonLayer(keyType);
+                if (keyLayer == null && keyType != String.class) {
+                    return null;
+                }
+            }
+
+            String name = keyLayer != null ? keyLayer.serializeToString(key) : (String) key;
+            if (!isFieldName(name)) {
+                return null;
+            }
+            names[index++] = name;
+        }
+        return names;
+    }
+
+    private List<Object> encodeEntries(Map<?, ?> map, LayerRegistry<?> layerRegistry) {
+        List<Object> encoded = new ArrayList<>(map.size() * 2);
+
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+            Object key = entry.getKey();
+            Object value = entry.getValue();
+            encoded.add(key != null ? encodeValue(key, layerRegistry) : null);
+            encoded.add(value != null ? encodeValue(value, layerRegistry) : null);
+        }
+
+        return encoded;
+    }
+
+    private static boolean isFieldName(String name) {
+        return name != null && !name.isEmpty() && name.charAt(0) != '$' && name.indexOf('.') < 0;
+    }
 
     @Override
     public Object decode(Document serialized,
                          Collection<MongoLayerBase<Object>> layers,
                          Class<?> object,
                          Collection<CommonBasedLayer<?, ?>> commonBasedLayers) {
+        return decode(serialized, layerRegistry(layers, commonBasedLayers), object);
+    }
+
+    @Override
+    public Object decode(Document serialized, LayerRegistry<?> layerRegistry, Class<?> object) {
+        GeneratedCodec<?> generatedCodec = GeneratedCodecs.find(object);
+        if (generatedCodec != null) {
+            return generatedCodec.decodeDocument(serialized, this, layerRegistry);
+        }
+
+        if (this.codecMode == CodecMode.GENERATED) {
+            CompiledDocumentCodec codec = compiledCodec(object, layerRegistry);
+            if (codec != null) {
+                return codec.decode(serialized);
+            }
+        }
+
         try {
-            Object result = object.getDeclaredConstructor().newInstance();
-
-            Arrays.stream(object.getDeclaredFields())
-                    .filter(field -> !(Modifier.isTransient(field.getModifiers())
-                            || Modifier.isFinal(field.getModifiers())
-                            || Modifier.isStatic(field.getModifiers())
-                            || field.getName().equals("hash")
-                            || field.getName().equals("hashIsZero")))
-                    .peek(field -> {
-                        if (Modifier.isPrivate(field.getModifiers())) {
-                            field.setAccessible(true);
-                        }
-                    })
-                    .forEach(field -> {
-                        try {
-                            Object declaredField = field.get(result);
-                            Object fieldValue = serialized.get(field.getName());
-
-                            if (fieldValue != null) {
-                                if (Collection.class.isAssignableFrom(field.getType())) {
-                                    field.set(result, decodeCollection((List<Object>) fieldValue, layers, field, commonBasedLayers));
-                                } else if (fieldValue instanceof Map<?, ?> map) {
-                                    Map<Object, Object> decodedMap = new HashMap<>();
-
-                                    for (Map.Entry<?, ?> entry : map.entrySet()) {
-                                        Object key = entry.getKey();
-                                        Object value = entry.getValue();
-
-                                        if (key != null && value != null) {
-                                            Object decodedKey = decode((Document) key, layers, key.getClass(), commonBasedLayers);
-                                            Object decodedValue = decode((Document) value, layers, value.getClass(), commonBasedLayers);
-                                            decodedMap.put(decodedKey, decodedValue);
-                                        }
-                                    }
-
-                                    field.set(result, decodedMap);
-                                } else {
-                                    LayerBase<Object, Document> layer = layers.stream()
-                                            .filter(objectLayerBase -> {
-                                                ConvertLayer annotation = objectLayerBase.getClass().getAnnotation(ConvertLayer.class);
-                                                return annotation != null && Objects.requireNonNullElse(declaredField, fieldValue).getClass() == annotation.object();
-                                            })
-                                            .findFirst()
-                                            .orElse(null);
-
-                                    if (layer != null) {
-                                        field.set(result, layer.deserialize(fieldValue));
-                                    } else {
-                                        CommonBasedLayer<Object, Object> commonBasedLayer = (CommonBasedLayer<Object, Object>) commonBasedLayers.stream()
-                                                .filter(objectLayerBase -> {
-                                                    ConvertLayer annotation = objectLayerBase.getClass().getAnnotation(ConvertLayer.class);
-                                                    return annotation != null && Objects.requireNonNullElse(declaredField, fieldValue).getClass() == annotation.object();
-                                                })
-                                                .findFirst()
-                                                .orElse(null);
-
-                                        if (commonBasedLayer != null) {
-                                            field.set(result, commonBasedLayer.deserialize(fieldValue));
-                                        } else {
-                                            Object decodedField = decode((Document) fieldValue, layers, field.getType(), commonBasedLayers);
-                                            field.set(result, decodedField);
-                                        }
-                                    }
-                                }
-                            } else {
-                                field.set(result, null);
-                            }
-                        } catch (ReflectiveOperationException e) {
-                            e.printStackTrace(); // Handle the exception according to your needs
-                        }
-                    });
+            CodecPlan plan = CodecPlan.of(object);
+            if (plan.getInstantiator().hasParameters()) {
+                Object[] values = new Object[plan.getFields().size()];
+                for (FieldPlan field : plan.getFields()) {
+                    Object fieldValue = serialized.get(field.getName());
+                    if (fieldValue != null) {
+                        values[field.getIndex()] = decodeFieldValue(fieldValue, field, null, layerRegistry);
+                    }
+                }
+                return plan.getInstantiator().newInstance(values);
+            }
+
+            Object result = plan.newInstance();
+
+            for (FieldPlan field : plan.getFields()) {
+                decodeField(serialized, field, result, layerRegistry);
+            }
+            if (resolveSparseMode(plan) == SparseMode.DEFAULTS) {
+                restoreDefaults(serialized, plan, result);
+            }
 
             return result;
         } catch (ReflectiveOperationException e) {
@@ -311,58 +354,245 @@ public class DocumentLayerSerializer extends AbstractLayerSerializer<Document, M
         }
     }
 
-    private Collection<Object> decodeCollection(List<Object> collectionList,
-                                                Collection<MongoLayerBase<Object>> layers,
-                                                Field field,
-                                                Collection<CommonBasedLayer<?, ?>> commonBasedLayers) throws ReflectiveOperationException {
-        ParameterizedType fieldType = (ParameterizedType) field.getGenericType();
-        Type[] actualTypeArguments = fieldType.getActualTypeArguments();
-
-        if (actualTypeArguments.length > 0) {
-            Class<?> elementType = (Class<?>) actualTypeArguments[0];
-
-            List<Object> decodedList = new ArrayList<>();
-
-            for (Object item : collectionList) {
-                if (item != null) {
-                    if (elementType.equals(Document.class)) {
-                        decodedList.add(decode((Document) item, layers, elementType, commonBasedLayers));
-                    } else {
-                        MongoLayerBase<Object> elementLayer = layers.stream()
-                                .filter(objectLayerBase -> {
-                                    ConvertLayer annotation = objectLayerBase.getClass().getAnnotation(ConvertLayer.class);
-                                    return annotation != null && annotation.object().equals(elementType);
-                                })
-                                .findFirst()
-                                .orElse(null);
-
-                        if (elementLayer != null) {
-                            decodedList.add(elementLayer.deserialize(item));
-                        } else {
-                            CommonBasedLayer<Object, Object> elementCommonBasedLayer = (CommonBasedLayer<Object, Object>) commonBasedLayers.stream()
-                                    .filter(objectLayerBase -> {
-                                        ConvertLayer annotation = objectLayerBase.getClass().getAnnotation(ConvertLayer.class);
-                                        return annotation != null && annotation.object().equals(elementType);
-                                    })
-                                    .findFirst()
-                                    .orElse(null);
-
-                            if (elementCommonBasedLayer != null) {
-                                decodedList.add(elementCommonBasedLayer.deserialize(item));
-                            } else {
-                                decodedList.add(item);
-                            }
-                        }
-                    }
-                } else {
-                    decodedList.add(null);
-                }
+    void decodeField(Document serialized, FieldPlan field, Object result, LayerRegistry<?> layerRegistry) {
+        Object fieldValue = serialized.get(field.getName());
+
+        if (fieldValue == null) {
+            if (!field.getType().isPrimitive()) {
+                field.set(result, null);
             }
+            return;
+        }
 
-            return new ArrayList<>(decodedList);
+        field.set(result, decodeFieldValue(fieldValue, field, field.get(result), layerRegistry));
+    }
+
+    /**
+     * Resets the primitive fields missing from a document to their default, as they were left out
+     * in {@link SparseMode#DEFAULTS}. Missing reference fields are already reset by
+     * {@link #decodeField(Document, FieldPlan, Object, LayerRegistry)}.
+     */
+    static void restoreDefaults(Document serialized, CodecPlan plan, Object result) {
+        for (FieldPlan field : plan.getFields()) {
+            if (field.getType().isPrimitive() && !serialized.containsKey(field.getName())) {
+                field.set(result, field.getDefaultValue());
+            }
         }
+    }
+
+    /**
+     * Decodes the stored value of a field.
+     *
+     * @param fieldValue    The stored value, not null.
+     * @param declaredField The current value of the field, used to pick the concrete type of fields
+     *                      declared as a supertype. Null if there is no instance yet.
+     */
+    Object decodeFieldValue(Object fieldValue, FieldPlan field, Object declaredField, LayerRegistry<?> layerRegistry) {
+        return switch (field.getKind()) {
+            case PRIMITIVE_ARRAY -> PackedArrays.decodeArray(fieldValue, field.getElementType());
+            case COLLECTION -> fieldValue instanceof Binary binary && field.getElementType() != null
+                    ? PackedArrays.unpackList(binary, field.getElementType())
+                    : valueDecoder(field.getGenericType(), layerRegistry).apply(fieldValue);
+            case MAP -> valueDecoder(field.getGenericType(), layerRegistry).apply(fieldValue);
+            case VALUE -> {
+                Class<?> valueType = declaredField != null
+                        ? declaredField.getClass()
+                        : (field.getBoxedType() != Object.class ? field.getBoxedType() : fieldValue.getClass());
+                yield decodeValue(fieldValue, valueType, layerRegistry);
+            }
+        };
+    }
+
+    /**
+     * Decodes a single stored value into the specified type, through the layer registered for
+     * exactly that type or as a nested document.
+     *
+     * @param value         The stored value, not null.
+     * @param type          The type to decode into.
+     * @param layerRegistry The registry holding the layers of the repository.
+     * @return The decoded value.
+     */
+    public Object decodeValue(Object value,
+                              Class<?> type,
+                              LayerRegistry<?> layerRegistry) {
+        if (value instanceof Binary binary && FieldPlan.isCompressible(type)) {
+            return CompressedValues.decode(this.compressor, binary, type);
+        }
+
+        MongoLayerBase<Object> layer = (MongoLayerBase<Object>) layerRegistry.getLayer(type);
+        if (layer != null) {
+            return layer.deserialize(value);
+        }
+
+        CommonBasedLayer<Object, Object> commonBasedLayer = layerRegistry.getCommonLayer(type);
+        if (commonBasedLayer != null) {
+            return commonBasedLayer.deserialize(value);
+        }
+
+        if (value instanceof Document document) {
+            return decode(document, layerRegistry, type);
+        }
+
+        return value;
+    }
+
+    /**
+     * Decodes a stored list element by element into the specified element type.
+     *
+     * @param collectionList The stored list.
+     * @param elementType    The element type to decode into.
+     * @param layerRegistry  The registry holding the layers of the repository.
+     * @return The decoded collection.
+     */
+    public Collection<Object> decodeCollection(List<Object> collectionList,
+                                               Class<?> elementType,
+                                               LayerRegistry<?> layerRegistry) {
+        List<Object> decodedList = new ArrayList<>(collectionList.size());
+
+        for (Object item : collectionList) {
+            decodedList.add(item != null ? decodeValue(item, elementType, layerRegistry) : null);
+        }
+
+        return decodedList;
+    }
+
+    /**
+     * Decodes a stored map written by {@link #encodeMap(Map, LayerRegistry)}, keeping keys and
+     * values as stored.
+     *
+     * @param map           The stored map.
+     * @param layerRegistry The registry holding the layers of the repository.
+     * @return The decoded map.
+     */
+    public Map<Object, Object> decodeMap(Map<?, ?> map, LayerRegistry<?> layerRegistry) {
+        return (Map<Object, Object>) valueDecoder(RAW_MAP, layerRegistry).apply(map);
+    }
+
+    /**
+     * Decodes a stored value into the specified declared type, including the type arguments of
+     * collections and maps.
+     *
+     * @param value         The stored value, not null.
+     * @param type          The declared type to decode into.
+     * @param layerRegistry The registry holding the layers of the repository.
+     * @return The decoded value.
+     */
+    public Object decodeValue(Object value, GenericType type, LayerRegistry<?> layerRegistry) {
+        return valueDecoder(type, layerRegistry).apply(value);
+    }
+
+    /**
+     * Returns the decoding of stored values into the specified type, resolved once per type and
+     * registry. Collection and map decoders fill a container of the declared type directly and
+     * decode their elements through the decoders of the type arguments, so nested types such as
+     * {@code Map<UUID, List<String>>} are resolved together with the outer type.
+     *
+     * @param type          The type to decode into, null for values kept as stored.
+     * @param layerRegistry The registry holding the layers of the repository.
+     * @return The decoder, passing values it can't decode through unchanged.
+     */
+    Function<Object, Object> valueDecoder(GenericType type, LayerRegistry<?> layerRegistry) {
+        if (type == null) {
+            return IDENTITY;
+        }
+        return layerRegistry.derive(new ValueDecoderKey(this, type), key -> createValueDecoder(type, layerRegistry));
+    }
+
+    private Function<Object, Object> createValueDecoder(GenericType type, LayerRegistry<?> layerRegistry) {
+        Class<?> rawType = type.getRawType();
+
+        MongoLayerBase<Object> layer = (MongoLayerBase<Object>) layerRegistry.getLayer(rawType);
+        if (layer != null) {
+            return layer::deserialize;
+        }
+
+        CommonBasedLayer<Object, Object> commonBasedLayer = layerRegistry.getCommonLayer(rawType);
+        if (commonBasedLayer != null) {
+            return commonBasedLayer::deserialize;
+        }
+
+        if (type.isCollection()) {
+            Function<Object, Object> elementDecoder = createElementDecoder(type.getArgument(0), layerRegistry);
+            return value -> value instanceof List<?> list ? decodeCollection(list, type, elementDecoder) : value;
+        }
+
+        if (type.isMap()) {
+            Function<String, Object> keyNameDecoder = createKeyNameDecoder(type.getArgument(0), layerRegistry);
+            Function<Object, Object> keyDecoder = createElementDecoder(type.getArgument(0), layerRegistry);
+            Function<Object, Object> valueDecoder = createElementDecoder(type.getArgument(1), layerRegistry);
+            return value -> decodeMap(value, type, keyNameDecoder, keyDecoder, valueDecoder);
+        }
+
+        return value -> value instanceof Document document ? decode(document, layerRegistry, rawType) : value;
+    }
+
+    private Function<Object, Object> createElementDecoder(GenericType type, LayerRegistry<?> layerRegistry) {
+        return type != null && type.getRawType() != Object.class ? createValueDecoder(type, layerRegistry) : IDENTITY;
+    }
+
+    private static Function<String, Object> createKeyNameDecoder(GenericType keyType, LayerRegistry<?> layerRegistry) {
+        if (keyType != null && keyType.getRawType() != String.class) {
+            CommonBasedLayer<Object, Object> keyLayer = layerRegistry.getCommonLayer(keyType.getRawType());
+            if (keyLayer != null) {
+                return keyLayer::deserializeFromString;
+            }
+        }
+        return name -> name;
+    }
+
+    private static Collection<Object> decodeCollection(List<?> collectionList,
+                                                       GenericType type,
+                                                       Function<Object, Object> elementDecoder) {
+        Collection<Object> decodedCollection = type.newCollection(collectionList.size());
+
+        for (Object item : collectionList) {
+            decodedCollection.add(item != null ? elementDecoder.apply(item) : null);
+        }
+
+        return decodedCollection;
+    }
+
+    /**
+     * Decodes either stored form of a map straight into a map of the declared type.
+     *
+     * @return The decoded map, or the stored value if it isn't a map.
+     */
+    private static Object decodeMap(Object stored,
+                                    GenericType type,
+                                    Function<String, Object> keyNameDecoder,
+                                    Function<Object, Object> keyDecoder,
+                                    Function<Object, Object> valueDecoder) {
+        if (stored instanceof Map<?, ?> map) {
+            Map<Object, Object> decodedMap = type.newMap(map.size());
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                Object key = entry.getKey();
+                Object value = entry.getValue();
+                decodedMap.put(key instanceof String name ? keyNameDecoder.apply(name) : (key != null ? keyDecoder.apply(key) : null),
+                        value != null ? valueDecoder.apply(value) : null);
+            }
+            return decodedMap;
+        }
+
+        if (stored instanceof List<?> entries) {
+            int size = entries.size();
+            Map<Object, Object> decodedMap = type.newMap(size / 2);
+            for (int i = 0; i + 1 < size; i += 2) {
+                Object key = entries.get(i);
+                Object value = entries.get(i + 1);
+                decodedMap.put(key != null ? keyDecoder.apply(key) : null, value != null ? valueDecoder.apply(value) : null);
+            }
+            return decodedMap;
+        }
+
+        return stored;
+    }
+
+    private record ValueDecoderKey(DocumentLayerSerializer serializer, GenericType type) {
+    }
 
-        return null;
+    CompiledDocumentCodec compiledCodec(Class<?> type, LayerRegistry<?> layerRegistry) {
+        return layerRegistry.derive(new CompiledDocumentCodec.Key(this, type),
+                key -> CompiledDocumentCodec.compile(type, this, layerRegistry));
     }
 
 
@@ -0,0 +1,164 @@
+package com.github.golgolex.anyth.impl.mongodb;
+
+/*
+ * Copyright 2024 anyth contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import com.github.golgolex.anyth.codec.CodecPlan;
+import com.github.golgolex.anyth.codec.FieldPlan;
+import lombok.Getter;
+import org.bson.BsonBinaryReader;
+import org.bson.BsonValue;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.DecoderContext;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * A read view of a stored object backed by its raw BSON bytes.
+ * <p>
+ * Nothing is decoded up front. {@link #get(String)} decodes a single field into a shared instance
+ * of the class on first access and returns the cached value afterwards; {@link #getObject()}
+ * decodes the remaining fields. For classes created through a creator constructor (records,
+ * {@link com.github.golgolex.anyth.annotations.AnythConstructor}) the decoded values are cached
+ * on their own and the instance is only created by {@link #getObject()}.
+ * <p>
+ * Fields are decoded like {@link AnythCodec} does, so nested objects, collections and layered
+ * values come out the same as from a regular query. Nested objects can be viewed lazily as well
+ * through {@link #getView(String, Class)}.
+ * <p>
+ * A view is not thread-safe.
+ *
+ * @param <T> The class of the stored object.
+ */
+public class LazyEntityView<T> {
+
+    private static final DecoderContext DECODER_CONTEXT = DecoderContext.builder().build();
+
+    @Getter
+    private final RawBsonDocument document;
+
+    private final AnythCodec<T> codec;
+
+    private final CodecPlan plan;
+
+    private final Set<String> decoded = new HashSet<>();
+
+    private T instance;
+
+    /**
+     * The decoded values of a class created through a creator constructor, null otherwise.
+     */
+    private final Object[] values;
+
+    private boolean complete;
+
+    public LazyEntityView(RawBsonDocument document, AnythCodec<T> codec) {
+        this.document = document;
+        this.codec = codec;
+        this.plan = CodecPlan.of(codec.getEncoderClass());
+        this.values = this.plan.getInstantiator().hasParameters() ? new Object[this.plan.getFields().size()] : null;
+    }
+
+    /**
+     * Returns the value of a field, decoding it on first access. A field missing from the stored
+     * document keeps the value assigned by the no-arg constructor.
+     *
+     * @param name The stored name or the field name.
+     * @param <V>  The field type.
+     * @return The field value.
+     * @throws IllegalArgumentException If the class has no such field.
+     */
+    public <V> V get(String name) {
+        FieldPlan field = this.plan.getField(name) != null
+                ? this.plan.getField(name)
+                : this.plan.getField(this.plan.getStoredName(name));
+        if (field == null) {
+            throw new IllegalArgumentException(this.plan.getType().getName() + " has no field " + name);
+        }
+        name = field.getName();
+
+        if (this.values != null && !this.complete) {
+            if (this.decoded.add(name)) {
+                this.codec.decodeValues(reader(), DECODER_CONTEXT, this.plan, this.values, candidate -> candidate == field);
+            }
+            return (V) this.values[field.getIndex()];
+        }
+
+        T instance = instance();
+        if (!this.complete && this.decoded.add(name)) {
+            this.codec.decodeInto(reader(), DECODER_CONTEXT, this.plan, instance, candidate -> candidate == field);
+        }
+        return (V) field.get(instance);
+    }
+
+    /**
+     * Returns a lazy view of a nested object.
+     *
+     * @param name The stored name or the field name.
+     * @param type The class of the nested object.
+     * @param <V>  The nested type.
+     * @return The view, or null if the field is missing or isn't a document.
+     */
+    public <V> LazyEntityView<V> getView(String name, Class<V> type) {
+        BsonValue value = this.document.get(name);
+        if (value == null) {
+            value = this.document.get(this.plan.getStoredName(name));
+        }
+        if (!(value instanceof RawBsonDocument nested)) {
+            return null;
+        }
+        return new LazyEntityView<>(nested, this.codec.withType(type));
+    }
+
+    /**
+     * Decodes all fields that weren't accessed yet in a single pass.
+     *
+     * @return The fully decoded object. The same instance is returned on every call.
+     */
+    public T getObject() {
+        if (this.values != null) {
+            if (!this.complete) {
+                this.codec.decodeValues(reader(), DECODER_CONTEXT, this.plan, this.values,
+                        field -> !this.decoded.contains(field.getName()));
+                this.instance = (T) AnythCodec.newInstance(this.plan, this.values);
+                this.complete = true;
+                this.decoded.clear();
+            }
+            return this.instance;
+        }
+
+        T instance = instance();
+        if (!this.complete) {
+            this.codec.decodeInto(reader(), DECODER_CONTEXT, this.plan, instance,
+                    field -> !this.decoded.contains(field.getName()));
+            this.complete = true;
+            this.decoded.clear();
+        }
+        return instance;
+    }
+
+    private T instance() {
+        if (this.instance == null) {
+            this.instance = (T) AnythCodec.newInstance(this.plan);
+        }
+        return this.instance;
+    }
+
+    private BsonBinaryReader reader() {
+        return new BsonBinaryReader(this.document.getByteBuffer().asNIO());
+    }
+}
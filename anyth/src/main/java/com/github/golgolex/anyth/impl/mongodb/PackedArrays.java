@@ -0,0 +1,207 @@
+package com.github.golgolex.anyth.impl.mongodb;
+
+/*
+ * Copyright 2024 anyth contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import com.github.golgolex.anyth.annotations.Packed;
+import org.bson.types.Binary;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Converts {@code int[]}, {@code long[]} and {@code double[]} values and numeric lists to their
+ * stored form: a BSON array with one element per value, or a single {@link Binary} of the
+ * user-defined subtype {@link #SUBTYPE} with the values in little-endian order for fields
+ * annotated with {@link Packed}. Decoding accepts both forms, so the annotation can be added
+ * to or removed from a field without migrating stored documents.
+ */
+public final class PackedArrays {
+
+    /**
+     * The binary subtype of packed values.
+     */
+    public static final byte SUBTYPE = (byte) 0x80;
+
+    private PackedArrays() {
+    }
+
+    /**
+     * Encodes a primitive array.
+     *
+     * @param array  The {@code int[]}, {@code long[]} or {@code double[]} to encode.
+     * @param packed Whether to pack the values into a single binary.
+     * @return The binary, or a list of the boxed values.
+     */
+    public static Object encodeArray(Object array, boolean packed) {
+        if (packed) {
+            return new Binary(SUBTYPE, pack(array));
+        }
+
+        if (array instanceof int[] ints) {
+            List<Object> list = new ArrayList<>(ints.length);
+            for (int value : ints) {
+                list.add(value);
+            }
+            return list;
+        }
+        if (array instanceof long[] longs) {
+            List<Object> list = new ArrayList<>(longs.length);
+            for (long value : longs) {
+                list.add(value);
+            }
+            return list;
+        }
+        if (array instanceof double[] doubles) {
+            List<Object> list = new ArrayList<>(doubles.length);
+            for (double value : doubles) {
+                list.add(value);
+            }
+            return list;
+        }
+        throw new IllegalArgumentException("Not a packable array: " + array.getClass().getName());
+    }
+
+    /**
+     * Packs a numeric list into a single binary.
+     *
+     * @param collection  The list to pack, without null elements.
+     * @param elementType {@code Integer}, {@code Long} or {@code Double}.
+     * @return The binary.
+     */
+    public static Binary packList(Collection<?> collection, Class<?> elementType) {
+        ByteBuffer buffer = ByteBuffer.allocate(collection.size() * width(elementType)).order(ByteOrder.LITTLE_ENDIAN);
+        for (Object item : collection) {
+            if (item == null) {
+                throw new IllegalArgumentException("Packed lists can't contain null elements");
+            }
+            Number number = (Number) item;
+            if (elementType == Integer.class) {
+                buffer.putInt(number.intValue());
+            } else if (elementType == Long.class) {
+                buffer.putLong(number.longValue());
+            } else {
+                buffer.putDouble(number.doubleValue());
+            }
+        }
+        return new Binary(SUBTYPE, buffer.array());
+    }
+
+    /**
+     * Decodes a stored primitive array from either form.
+     *
+     * @param stored        The stored binary or list.
+     * @param componentType {@code int}, {@code long} or {@code double}.
+     * @return The primitive array, or null if the stored value has neither form.
+     */
+    public static Object decodeArray(Object stored, Class<?> componentType) {
+        if (stored instanceof Binary binary) {
+            return unpack(binary.getData(), componentType);
+        }
+        if (!(stored instanceof List<?> list)) {
+            return null;
+        }
+
+        int size = list.size();
+        if (componentType == int.class) {
+            int[] ints = new int[size];
+            for (int i = 0; i < size; i++) {
+                ints[i] = ((Number) list.get(i)).intValue();
+            }
+            return ints;
+        }
+        if (componentType == long.class) {
+            long[] longs = new long[size];
+            for (int i = 0; i < size; i++) {
+                longs[i] = ((Number) list.get(i)).longValue();
+            }
+            return longs;
+        }
+        double[] doubles = new double[size];
+        for (int i = 0; i < size; i++) {
+            doubles[i] = ((Number) list.get(i)).doubleValue();
+        }
+        return doubles;
+    }
+
+    /**
+     * Unpacks a packed numeric list.
+     *
+     * @param binary      The stored binary.
+     * @param elementType {@code Integer}, {@code Long} or {@code Double}.
+     * @return The decoded list.
+     */
+    public static List<Object> unpackList(Binary binary, Class<?> elementType) {
+        return unpackList(binary.getData(), elementType);
+    }
+
+    static List<Object> unpackList(byte[] data, Class<?> elementType) {
+        ByteBuffer buffer = ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN);
+        int size = buffer.remaining() / width(elementType);
+        List<Object> list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            if (elementType == Integer.class) {
+                list.add(buffer.getInt());
+            } else if (elementType == Long.class) {
+                list.add(buffer.getLong());
+            } else {
+                list.add(buffer.getDouble());
+            }
+        }
+        return list;
+    }
+
+    static byte[] pack(Object array) {
+        ByteBuffer buffer;
+        if (array instanceof int[] ints) {
+            buffer = ByteBuffer.allocate(ints.length * Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.asIntBuffer().put(ints);
+        } else if (array instanceof long[] longs) {
+            buffer = ByteBuffer.allocate(longs.length * Long.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.asLongBuffer().put(longs);
+        } else if (array instanceof double[] doubles) {
+            buffer = ByteBuffer.allocate(doubles.length * Double.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.asDoubleBuffer().put(doubles);
+        } else {
+            throw new IllegalArgumentException("Not a packable array: " + array.getClass().getName());
+        }
+        return buffer.array();
+    }
+
+    static Object unpack(byte[] data, Class<?> componentType) {
+        ByteBuffer buffer = ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN);
+        if (componentType == int.class) {
+            int[] ints = new int[data.length / Integer.BYTES];
+            buffer.asIntBuffer().get(ints);
+            return ints;
+        }
+        if (componentType == long.class) {
+            long[] longs = new long[data.length / Long.BYTES];
+            buffer.asLongBuffer().get(longs);
+            return longs;
+        }
+        double[] doubles = new double[data.length / Double.BYTES];
+        buffer.asDoubleBuffer().get(doubles);
+        return doubles;
+    }
+
+    private static int width(Class<?> elementType) {
+        return elementType == Integer.class ? Integer.BYTES : Long.BYTES;
+    }
+}
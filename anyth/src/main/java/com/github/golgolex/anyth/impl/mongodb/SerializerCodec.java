@@ -0,0 +1,68 @@
+package com.github.golgolex.anyth.impl.mongodb;
+
+/*
+ * Copyright 2024 anyth contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import com.github.golgolex.anyth.layer.LayerRegistry;
+import org.bson.BsonReader;
+import org.bson.BsonWriter;
+import org.bson.Document;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+
+/**
+ * A {@link Codec} encoding and decoding objects through {@link DocumentLayerSerializer}, so classes
+ * with a generated or compiled codec are handled by that codec on the typed collection path as well.
+ *
+ * @param <T> The class handled by the codec.
+ */
+final class SerializerCodec<T> implements Codec<T> {
+
+    private final Class<T> type;
+
+    private final DocumentLayerSerializer serializer;
+
+    private final LayerRegistry<?> layerRegistry;
+
+    private final Codec<Document> documentCodec;
+
+    SerializerCodec(Class<T> type,
+                    DocumentLayerSerializer serializer,
+                    LayerRegistry<?> layerRegistry,
+                    Codec<Document> documentCodec) {
+        this.type = type;
+        this.serializer = serializer;
+        this.layerRegistry = layerRegistry;
+        this.documentCodec = documentCodec;
+    }
+
+    @Override
+    public Class<T> getEncoderClass() {
+        return this.type;
+    }
+
+    @Override
+    public void encode(BsonWriter writer, T value, EncoderContext encoderContext) {
+        this.documentCodec.encode(writer, this.serializer.encode(value, this.layerRegistry), encoderContext);
+    }
+
+    @Override
+    public T decode(BsonReader reader, DecoderContext decoderContext) {
+        Document document = this.documentCodec.decode(reader, decoderContext);
+        return this.type.cast(this.serializer.decode(document, this.layerRegistry, this.type));
+    }
+}
@@ -0,0 +1,830 @@
+package com.github.golgolex.anyth.impl.redis;
+
+/*
+ * Copyright 2024 anyth contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import com.github.golgolex.anyth.codec.CodecPlan;
+import com.github.golgolex.anyth.codec.FieldPlan;
+import com.github.golgolex.anyth.codec.GenericType;
+import com.github.golgolex.anyth.layer.LayerRegistry;
+import com.github.golgolex.anyth.layer.defaults.CommonBasedLayer;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Stores values in a compact binary format instead of JSON.
+ * <p>
+ * A value starts with the format version byte, followed by the tagged object: every value is
+ * written as a type byte and its payload (zigzag varints for integers, length-prefixed UTF-8 for
+ * strings, 16 bytes for UUIDs, ...). Object fields are identified by a two-byte tag derived from
+ * their stored name instead of the name itself, null fields are written as an explicit null.
+ * Objects stored where another type is declared, like implementations in a field declared as
+ * an interface or as {@link Object}, are preceded by their class name.
+ * Primitive fields go through the {@link RedisLayerBase} of their boxed type if one is
+ * registered. Readers skip fields with unknown tags and leave fields without a value at their
+ * constructor default, so fields can be added, removed and reordered without rewriting stored
+ * values.
+ * <p>
+ * Version bytes are control characters, which can't start a JSON document. Values starting with
+ * anything else are read as JSON through {@link GsonRedisLayerSerializer}, so a repository can
+ * switch to this format without clearing the values it stored before.
+ */
+public class BinaryRedisLayerSerializer extends RedisLayerSerializer {
+
+    /**
+     * The first byte of every value written by this serializer.
+     */
+    public static final byte FORMAT_VERSION = 1;
+
+    private static final byte NULL = 0;
+    private static final byte FALSE = 1;
+    private static final byte TRUE = 2;
+    private static final byte INT = 3;
+    private static final byte FLOAT = 4;
+    private static final byte DOUBLE = 5;
+    private static final byte STRING = 6;
+    private static final byte UUID_BITS = 7;
+    private static final byte CHAR = 8;
+    private static final byte ARRAY = 9;
+    private static final byte MAP = 10;
+    private static final byte OBJECT = 11;
+    /**
+     * A number written as its decimal text, for {@link BigDecimal}, {@link BigInteger} and the
+     * other {@link Number} types.
+     */
+    private static final byte NUMBER = 12;
+    private static final byte BYTES = 13;
+    /**
+     * Precedes a value whose class isn't the declared type of its field or element, followed by
+     * the class name.
+     */
+    private static final byte TYPED = 14;
+
+    /**
+     * Ends the fields of an object. No field is tagged with it.
+     */
+    private static final int END_TAG = 0;
+
+    /**
+     * Output buffers growing beyond this size aren't kept for the next value.
+     */
+    private static final int MAX_RETAINED_BUFFER = 1 << 20;
+
+    private static final ThreadLocal<Output> OUTPUTS = ThreadLocal.withInitial(Output::new);
+
+    private static final GenericType OBJECT_TYPE = GenericType.of(Object.class);
+
+    private static final ClassValue<Schema> SCHEMAS = new ClassValue<>() {
+        @Override
+        protected Schema computeValue(Class<?> type) {
+            return new Schema(CodecPlan.of(type));
+        }
+    };
+
+    private final GsonRedisLayerSerializer jsonSerializer = new GsonRedisLayerSerializer();
+
+    @Override
+    public byte[] encodeBytes(Object object, LayerRegistry<?> layerRegistry) {
+        Output output = OUTPUTS.get();
+        try {
+            output.write(FORMAT_VERSION);
+            writeValue(output, object, GenericType.of(object.getClass()), layerRegistry);
+            return output.toByteArray();
+        } finally {
+            if (output.bytes.length > MAX_RETAINED_BUFFER) {
+                OUTPUTS.remove();
+            } else {
+                output.count = 0;
+            }
+        }
+    }
+
+    @Override
+    public Object decodeBytes(byte[] serialized, LayerRegistry<?> layerRegistry, Class<?> clazz) {
+        if (serialized.length == 0 || serialized[0] != FORMAT_VERSION) {
+            if (serialized.length > 0 && isVersionByte(serialized[0])) {
+                throw new IllegalArgumentException("Unsupported binary format version " + serialized[0]);
+            }
+            return this.jsonSerializer.decodeBytes(serialized, layerRegistry, clazz);
+        }
+        return readValue(new Input(serialized, 1), GenericType.of(clazz), layerRegistry);
+    }
+
+    /**
+     * Encodes an object into the Base64 form of its binary value.
+     */
+    @Override
+    public String encode(Object object, LayerRegistry<?> layerRegistry) {
+        return Base64.getEncoder().encodeToString(encodeBytes(object, layerRegistry));
+    }
+
+    /**
+     * Decodes an object from the Base64 form of its binary value, or from JSON.
+     */
+    @Override
+    public Object decode(String serialized, LayerRegistry<?> layerRegistry, Class<?> clazz) {
+        String trimmed = serialized.stripLeading();
+        if (!trimmed.isEmpty() && "{[\"".indexOf(trimmed.charAt(0)) >= 0) {
+            return this.jsonSerializer.decode(serialized, layerRegistry, clazz);
+        }
+        return decodeBytes(Base64.getDecoder().decode(serialized), layerRegistry, clazz);
+    }
+
+    /**
+     * Decodes the Base64 form of a binary value, JSON is stored as is.
+     */
+    @Override
+    public byte[] toStoredBytes(String serialized) {
+        String trimmed = serialized.stripLeading();
+        if (!trimmed.isEmpty() && "{[\"".indexOf(trimmed.charAt(0)) >= 0) {
+            return super.toStoredBytes(serialized);
+        }
+        return Base64.getDecoder().decode(serialized);
+    }
+
+    /**
+     * Returns binary values in their Base64 form and JSON values as is.
+     */
+    @Override
+    public String fromStoredBytes(byte[] stored) {
+        if (stored.length > 0 && stored[0] == FORMAT_VERSION) {
+            return Base64.getEncoder().encodeToString(stored);
+        }
+        return super.fromStoredBytes(stored);
+    }
+
+    private static boolean isVersionByte(byte value) {
+        return value >= 0 && value < 0x20 && value != '\t' && value != '\n' && value != '\r';
+    }
+
+    /**
+     * Writes a value.
+     *
+     * @param declaredType The type the value is read back as: the type of its field or element.
+     */
+    private static void writeValue(Output output, Object value, GenericType declaredType, LayerRegistry<?> layerRegistry) {
+        if (value == null) {
+            output.write(NULL);
+            return;
+        }
+
+        Class<?> type = value.getClass();
+        Class<?> valueClass = value instanceof Enum<?> constant ? constant.getDeclaringClass() : type;
+        if (valueClass != declaredType.getRawType() && needsClassName(valueClass)) {
+            output.write(TYPED);
+            output.writeString(valueClass.getName());
+        }
+        if (layerRegistry.getLayer(type) instanceof RedisLayerBase<?> layer) {
+            output.write(STRING);
+            output.writeString(((RedisLayerBase<Object>) layer).serialize(value));
+            return;
+        }
+        if (!isNativeType(type)) {
+            CommonBasedLayer<Object, Object> commonBasedLayer = layerRegistry.getCommonLayer(type);
+            if (commonBasedLayer != null) {
+                writeScalar(output, toJsonValue(commonBasedLayer, value));
+                return;
+            }
+        }
+
+        if (writeScalar(output, value)) {
+            return;
+        }
+        if (value instanceof UUID uuid) {
+            output.write(UUID_BITS);
+            output.writeLong(uuid.getMostSignificantBits());
+            output.writeLong(uuid.getLeastSignificantBits());
+        } else if (value instanceof Character character) {
+            output.write(CHAR);
+            output.writeVarLong(character);
+        } else if (value instanceof Enum<?> constant) {
+            output.write(STRING);
+            output.writeString(constant.name());
+        } else if (value instanceof byte[] bytes) {
+            output.write(BYTES);
+            output.writeVarLong(bytes.length);
+            output.write(bytes);
+        } else if (type.isArray()) {
+            int length = Array.getLength(value);
+            GenericType componentType = GenericType.of(type.getComponentType());
+            output.write(ARRAY);
+            output.writeVarLong(length);
+            for (int i = 0; i < length; i++) {
+                writeValue(output, Array.get(value, i), componentType, layerRegistry);
+            }
+        } else if (value instanceof Collection<?> collection) {
+            GenericType elementType = elementType(declaredType, 0);
+            output.write(ARRAY);
+            output.writeVarLong(collection.size());
+            for (Object element : collection) {
+                writeValue(output, element, elementType, layerRegistry);
+            }
+        } else if (value instanceof Map<?, ?> map) {
+            GenericType keyType = elementType(declaredType, 0);
+            GenericType valueType = elementType(declaredType, 1);
+            output.write(MAP);
+            output.writeVarLong(map.size());
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                writeValue(output, entry.getKey(), keyType, layerRegistry);
+                writeValue(output, entry.getValue(), valueType, layerRegistry);
+            }
+        } else {
+            writeObject(output, value, SCHEMAS.get(type), layerRegistry);
+        }
+    }
+
+    /**
+     * Whether a value of the specified class has to be preceded by its class name when it is
+     * stored where another type is declared. Strings, numbers, booleans, UUIDs, collections, maps
+     * and arrays are read back from their value type alone.
+     */
+    private static boolean needsClassName(Class<?> type) {
+        return !isNativeType(type)
+                && !Number.class.isAssignableFrom(type)
+                && !Collection.class.isAssignableFrom(type)
+                && !Map.class.isAssignableFrom(type)
+                && !type.isArray();
+    }
+
+    /**
+     * Resolves the class name written before a value, which has to be assignable to the declared
+     * type.
+     */
+    private static Class<?> resolveClass(String name, Class<?> declaredType) {
+        ClassLoader classLoader = declaredType.getClassLoader() != null
+                ? declaredType.getClassLoader()
+                : Thread.currentThread().getContextClassLoader();
+        Class<?> type;
+        try {
+            type = Class.forName(name, false, classLoader);
+        } catch (ClassNotFoundException exception) {
+            throw new IllegalArgumentException("Unknown stored class " + name, exception);
+        }
+        if (!declaredType.isAssignableFrom(type)) {
+            throw new IllegalArgumentException("Stored class " + name + " isn't a " + declaredType.getName());
+        }
+        return type;
+    }
+
+    /**
+     * Writes strings, booleans and numbers.
+     *
+     * @return False if the value is none of these.
+     */
+    private static boolean writeScalar(Output output, Object value) {
+        if (value instanceof String string) {
+            output.write(STRING);
+            output.writeString(string);
+        } else if (value instanceof Boolean bool) {
+            output.write(bool ? TRUE : FALSE);
+        } else if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+            output.write(INT);
+            output.writeZigZag(((Number) value).longValue());
+        } else if (value instanceof Double number) {
+            output.write(DOUBLE);
+            output.writeLong(Double.doubleToRawLongBits(number));
+        } else if (value instanceof Float number) {
+            output.write(FLOAT);
+            output.writeInt(Float.floatToRawIntBits(number));
+        } else if (value instanceof Number) {
+            output.write(NUMBER);
+            output.writeString(value.toString());
+        } else {
+            return false;
+        }
+        return true;
+    }
+
+    private static void writeObject(Output output, Object object, Schema schema, LayerRegistry<?> layerRegistry) {
+        output.write(OBJECT);
+        for (int i = 0; i < schema.fields.length; i++) {
+            FieldPlan field = schema.fields[i];
+            Class<?> type = field.getType();
+            output.writeShort(schema.tags[i]);
+            if (type == int.class && !hasRedisLayer(Integer.class, layerRegistry)) {
+                output.write(INT);
+                output.writeZigZag(field.getAccessor().getInt(object));
+            } else if (type == long.class && !hasRedisLayer(Long.class, layerRegistry)) {
+                output.write(INT);
+                output.writeZigZag(field.getAccessor().getLong(object));
+            } else if (type == boolean.class && !hasRedisLayer(Boolean.class, layerRegistry)) {
+                output.write(field.getAccessor().getBoolean(object) ? TRUE : FALSE);
+            } else {
+                writeValue(output, field.get(object), schema.valueTypes[i], layerRegistry);
+            }
+        }
+        output.writeShort(END_TAG);
+    }
+
+    private static boolean hasRedisLayer(Class<?> type, LayerRegistry<?> layerRegistry) {
+        return layerRegistry.getLayer(type) instanceof RedisLayerBase<?>;
+    }
+
+    private static Object readValue(Input input, GenericType genericType, LayerRegistry<?> layerRegistry) {
+        byte valueType = input.read();
+        if (valueType == NULL) {
+            return null;
+        }
+        if (valueType == TYPED) {
+            Class<?> valueClass = resolveClass(input.readString(), genericType.getRawType());
+            return readValue(input, GenericType.of(valueClass), layerRegistry);
+        }
+
+        Class<?> type = genericType.getRawType();
+        if (layerRegistry.getLayer(type) instanceof RedisLayerBase<?> layer && valueType == STRING) {
+            return layer.deserialize(input.readString());
+        }
+        if (!isNativeType(type)) {
+            CommonBasedLayer<Object, Object> commonBasedLayer = layerRegistry.getCommonLayer(type);
+            if (commonBasedLayer != null && valueType != OBJECT && valueType != ARRAY && valueType != MAP) {
+                return readCommonLayer(input, valueType, commonBasedLayer);
+            }
+        }
+
+        return switch (valueType) {
+            case FALSE -> Boolean.FALSE;
+            case TRUE -> Boolean.TRUE;
+            case INT -> toNumber(input.readZigZag(), type);
+            case DOUBLE -> toNumber(Double.longBitsToDouble(input.readLong()), type);
+            case FLOAT -> toNumber(Float.intBitsToFloat(input.readInt()), type);
+            case NUMBER -> toNumber(input.readString(), type);
+            case STRING -> fromString(input.readString(), type);
+            case UUID_BITS -> new UUID(input.readLong(), input.readLong());
+            case CHAR -> type == String.class ? String.valueOf((char) input.readVarLong()) : (Object) (char) input.readVarLong();
+            case BYTES -> input.readBytes((int) input.readVarLong());
+            case ARRAY -> readArray(input, genericType, layerRegistry);
+            case MAP -> readMap(input, genericType, layerRegistry);
+            case OBJECT -> readObject(input, type, layerRegistry);
+            default -> throw new IllegalArgumentException("Unknown value type " + valueType + " at " + (input.position - 1));
+        };
+    }
+
+    private static Object readCommonLayer(Input input, byte valueType, CommonBasedLayer<Object, Object> layer) {
+        return switch (valueType) {
+            case FALSE -> layer.deserialize(false);
+            case TRUE -> layer.deserialize(true);
+            case INT -> fromJsonNumber(layer, Long.toString(input.readZigZag()));
+            case DOUBLE -> fromJsonNumber(layer, Double.toString(Double.longBitsToDouble(input.readLong())));
+            case FLOAT -> fromJsonNumber(layer, Float.toString(Float.intBitsToFloat(input.readInt())));
+            case NUMBER -> fromJsonNumber(layer, input.readString());
+            case STRING -> fromJsonString(layer, input.readString());
+            default -> {
+                input.position--;
+                skipValue(input);
+                yield null;
+            }
+        };
+    }
+
+    private static Object toNumber(long value, Class<?> type) {
+        if (type == int.class || type == Integer.class) return (int) value;
+        if (type == long.class || type == Long.class) return value;
+        if (type == short.class || type == Short.class) return (short) value;
+        if (type == byte.class || type == Byte.class) return (byte) value;
+        if (type == double.class || type == Double.class) return (double) value;
+        if (type == float.class || type == Float.class) return (float) value;
+        if (type == BigDecimal.class) return BigDecimal.valueOf(value);
+        if (type == BigInteger.class) return BigInteger.valueOf(value);
+        return value == (int) value ? (Object) (int) value : (Object) value;
+    }
+
+    private static Object toNumber(double value, Class<?> type) {
+        if (type == float.class || type == Float.class) return (float) value;
+        if (type == int.class || type == Integer.class) return (int) value;
+        if (type == long.class || type == Long.class) return (long) value;
+        if (type == short.class || type == Short.class) return (short) value;
+        if (type == byte.class || type == Byte.class) return (byte) value;
+        if (type == BigDecimal.class) return BigDecimal.valueOf(value);
+        return value;
+    }
+
+    private static Object toNumber(String value, Class<?> type) {
+        if (type == BigInteger.class) return new BigInteger(value);
+        if (type == String.class) return value;
+        BigDecimal number = new BigDecimal(value);
+        if (type == BigDecimal.class || type == Object.class || type == Number.class) return number;
+        return toNumber(number.doubleValue(), type);
+    }
+
+    private static Object fromString(String value, Class<?> type) {
+        if (type.isEnum()) {
+            for (Object constant : type.getEnumConstants()) {
+                if (((Enum<?>) constant).name().equals(value)) {
+                    return constant;
+                }
+            }
+            return null;
+        }
+        if (type == UUID.class) {
+            return UUID.fromString(value);
+        }
+        if ((type == char.class || type == Character.class) && value.length() == 1) {
+            return value.charAt(0);
+        }
+        return value;
+    }
+
+    private static Object readArray(Input input, GenericType genericType, LayerRegistry<?> layerRegistry) {
+        int size = (int) input.readVarLong();
+        Class<?> type = genericType.getRawType();
+        if (type.isArray()) {
+            Class<?> componentType = type.getComponentType();
+            GenericType elementType = GenericType.of(componentType);
+            Object array = Array.newInstance(componentType, size);
+            for (int i = 0; i < size; i++) {
+                Object element = readValue(input, elementType, layerRegistry);
+                if (element != null || !componentType.isPrimitive()) {
+                    Array.set(array, i, element);
+                }
+            }
+            return array;
+        }
+
+        GenericType elementType = elementType(genericType, 0);
+        Collection<Object> collection = genericType.isCollection() ? genericType.newCollection(size) : new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            collection.add(readValue(input, elementType, layerRegistry));
+        }
+        return collection;
+    }
+
+    private static Object readMap(Input input, GenericType genericType, LayerRegistry<?> layerRegistry) {
+        int size = (int) input.readVarLong();
+        GenericType keyType = elementType(genericType, 0);
+        GenericType valueType = elementType(genericType, 1);
+        Map<Object, Object> map = genericType.isMap() ? genericType.newMap(size) : new LinkedHashMap<>();
+        for (int i = 0; i < size; i++) {
+            Object key = readValue(input, keyType, layerRegistry);
+            map.put(key, readValue(input, valueType, layerRegistry));
+        }
+        return map;
+    }
+
+    private static GenericType elementType(GenericType genericType, int index) {
+        GenericType argument = genericType.getArgument(index);
+        return argument != null ? argument : OBJECT_TYPE;
+    }
+
+    private static Object readObject(Input input, Class<?> type, LayerRegistry<?> layerRegistry) {
+        if (type.isInterface() || Modifier.isAbstract(type.getModifiers()) || isNativeType(type)) {
+            input.position--;
+            skipValue(input);
+            return null;
+        }
+
+        Schema schema = SCHEMAS.get(type);
+        CodecPlan plan = schema.plan;
+        try {
+            if (plan.getInstantiator().hasParameters()) {
+                Object[] values = new Object[schema.fields.length];
+                for (int tag = input.readShort(); tag != END_TAG; tag = input.readShort()) {
+                    FieldPlan field = schema.field(tag);
+                    if (field == null) {
+                        skipValue(input);
+                    } else {
+                        values[field.getIndex()] = readValue(input, schema.valueTypes[field.getIndex()], layerRegistry);
+                    }
+                }
+                return plan.getInstantiator().newInstance(values);
+            }
+
+            Object instance = plan.newInstance();
+            for (int tag = input.readShort(); tag != END_TAG; tag = input.readShort()) {
+                FieldPlan field = schema.field(tag);
+                if (field == null) {
+                    skipValue(input);
+                    continue;
+                }
+                Object value = readValue(input, schema.valueTypes[field.getIndex()], layerRegistry);
+                if (value != null || !field.getType().isPrimitive()) {
+                    field.set(instance, value);
+                }
+            }
+            return instance;
+        } catch (NoSuchMethodException | InvocationTargetException exception) {
+            throw new IllegalArgumentException("Couldn't instantiate " + type.getName(), exception);
+        }
+    }
+
+    private static void skipValue(Input input) {
+        byte valueType = input.read();
+        switch (valueType) {
+            case NULL, FALSE, TRUE -> {
+            }
+            case INT, CHAR -> input.readVarLong();
+            case FLOAT -> input.position += Integer.BYTES;
+            case DOUBLE -> input.position += Long.BYTES;
+            case UUID_BITS -> input.position += 2 * Long.BYTES;
+            case STRING, NUMBER, BYTES -> {
+                int length = (int) input.readVarLong();
+                input.position += length;
+            }
+            case TYPED -> {
+                int length = (int) input.readVarLong();
+                input.position += length;
+                skipValue(input);
+            }
+            case ARRAY -> {
+                long size = input.readVarLong();
+                for (long i = 0; i < size; i++) {
+                    skipValue(input);
+                }
+            }
+            case MAP -> {
+                long size = input.readVarLong();
+                for (long i = 0; i < 2 * size; i++) {
+                    skipValue(input);
+                }
+            }
+            case OBJECT -> {
+                while (input.readShort() != END_TAG) {
+                    skipValue(input);
+                }
+            }
+            default -> throw new IllegalArgumentException("Unknown value type " + valueType + " at " + (input.position - 1));
+        }
+    }
+
+    /**
+     * The field tags of a class: the stored name of every field, folded into 16 bits. Two fields
+     * of a class sharing a tag are rejected, one of them has to be renamed with
+     * {@link com.github.golgolex.anyth.annotations.StoredAs}.
+     */
+    private static final class Schema {
+
+        private final CodecPlan plan;
+
+        private final FieldPlan[] fields;
+
+        private final int[] tags;
+
+        /**
+         * The types fields are read as, boxed for primitive fields so their layers are found.
+         */
+        private final GenericType[] valueTypes;
+
+        /**
+         * Open addressing table from tag to field.
+         */
+        private final int[] tableTags;
+
+        private final FieldPlan[] tableFields;
+
+        private Schema(CodecPlan plan) {
+            this.plan = plan;
+            List<FieldPlan> fields = plan.getFields();
+            this.fields = fields.toArray(new FieldPlan[0]);
+            this.tags = new int[this.fields.length];
+            this.valueTypes = new GenericType[this.fields.length];
+
+            int capacity = Integer.highestOneBit(Math.max(this.fields.length, 1) * 2) * 2;
+            this.tableTags = new int[capacity];
+            this.tableFields = new FieldPlan[capacity];
+            for (int i = 0; i < this.fields.length; i++) {
+                int tag = tag(this.fields[i].getName());
+                FieldPlan previous = field(tag);
+                if (previous != null) {
+                    throw new IllegalArgumentException(plan.getType().getName() + " stores " + previous.getName()
+                            + " and " + this.fields[i].getName() + " under the same binary tag, rename one with @StoredAs");
+                }
+                this.tags[i] = tag;
+                this.valueTypes[i] = this.fields[i].getType().isPrimitive()
+                        ? GenericType.of(this.fields[i].getBoxedType())
+                        : this.fields[i].getGenericType();
+                int slot = tag & (capacity - 1);
+                while (this.tableFields[slot] != null) {
+                    slot = (slot + 1) & (capacity - 1);
+                }
+                this.tableTags[slot] = tag;
+                this.tableFields[slot] = this.fields[i];
+            }
+        }
+
+        private FieldPlan field(int tag) {
+            int mask = this.tableTags.length - 1;
+            for (int slot = tag & mask; this.tableFields[slot] != null; slot = (slot + 1) & mask) {
+                if (this.tableTags[slot] == tag) {
+                    return this.tableFields[slot];
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Folds {@link String#hashCode()}, which is specified and therefore stable between runs,
+         * into a non-zero 16-bit tag.
+         */
+        private static int tag(String name) {
+            int hash = name.hashCode();
+            int tag = (hash ^ (hash >>> 16)) & 0xFFFF;
+            return tag != END_TAG ? tag : 1;
+        }
+    }
+
+    /**
+     * A growing byte array encoding the values.
+     */
+    private static final class Output {
+
+        private byte[] bytes = new byte[256];
+
+        private int count;
+
+        private void ensure(int length) {
+            if (this.count + length > this.bytes.length) {
+                this.bytes = Arrays.copyOf(this.bytes, Math.max(this.bytes.length * 2, this.count + length));
+            }
+        }
+
+        private void write(byte value) {
+            ensure(1);
+            this.bytes[this.count++] = value;
+        }
+
+        private void write(byte[] value) {
+            ensure(value.length);
+            System.arraycopy(value, 0, this.bytes, this.count, value.length);
+            this.count += value.length;
+        }
+
+        private void writeShort(int value) {
+            ensure(2);
+            this.bytes[this.count++] = (byte) (value >>> 8);
+            this.bytes[this.count++] = (byte) value;
+        }
+
+        private void writeInt(int value) {
+            ensure(Integer.BYTES);
+            for (int shift = 24; shift >= 0; shift -= 8) {
+                this.bytes[this.count++] = (byte) (value >>> shift);
+            }
+        }
+
+        private void writeLong(long value) {
+            ensure(Long.BYTES);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                this.bytes[this.count++] = (byte) (value >>> shift);
+            }
+        }
+
+        private void writeVarLong(long value) {
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                this.bytes[this.count++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            this.bytes[this.count++] = (byte) value;
+        }
+
+        private void writeZigZag(long value) {
+            writeVarLong((value << 1) ^ (value >> 63));
+        }
+
+        /**
+         * Writes the UTF-8 length and bytes of a string. Unpaired surrogates are written as
+         * {@code ?}, like {@link String#getBytes(java.nio.charset.Charset)} does.
+         */
+        private void writeString(String value) {
+            int length = value.length();
+            int utf8Length = length;
+            for (int i = 0; i < length; i++) {
+                char c = value.charAt(i);
+                if (c >= 0x80) {
+                    if (c < 0x800) {
+                        utf8Length++;
+                    } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                        utf8Length += 2;
+                        i++;
+                    } else if (!Character.isSurrogate(c)) {
+                        utf8Length += 2;
+                    }
+                }
+            }
+
+            writeVarLong(utf8Length);
+            ensure(utf8Length);
+            byte[] bytes = this.bytes;
+            int count = this.count;
+            for (int i = 0; i < length; i++) {
+                char c = value.charAt(i);
+                if (c < 0x80) {
+                    bytes[count++] = (byte) c;
+                } else if (c < 0x800) {
+                    bytes[count++] = (byte) (0xC0 | (c >> 6));
+                    bytes[count++] = (byte) (0x80 | (c & 0x3F));
+                } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                    bytes[count++] = (byte) (0xF0 | (codePoint >> 18));
+                    bytes[count++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                    bytes[count++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                    bytes[count++] = (byte) (0x80 | (codePoint & 0x3F));
+                } else if (Character.isSurrogate(c)) {
+                    bytes[count++] = '?';
+                } else {
+                    bytes[count++] = (byte) (0xE0 | (c >> 12));
+                    bytes[count++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                    bytes[count++] = (byte) (0x80 | (c & 0x3F));
+                }
+            }
+            this.count = count;
+        }
+
+        private byte[] toByteArray() {
+            return Arrays.copyOf(this.bytes, this.count);
+        }
+    }
+
+    /**
+     * Reads the values of an encoded byte array.
+     */
+    private static final class Input {
+
+        private final byte[] bytes;
+
+        private int position;
+
+        private Input(byte[] bytes, int position) {
+            this.bytes = bytes;
+            this.position = position;
+        }
+
+        private byte read() {
+            return this.bytes[this.position++];
+        }
+
+        private int readShort() {
+            return ((this.bytes[this.position++] & 0xFF) << 8) | (this.bytes[this.position++] & 0xFF);
+        }
+
+        private int readInt() {
+            int value = 0;
+            for (int i = 0; i < Integer.BYTES; i++) {
+                value = (value << 8) | (this.bytes[this.position++] & 0xFF);
+            }
+            return value;
+        }
+
+        private long readLong() {
+            long value = 0;
+            for (int i = 0; i < Long.BYTES; i++) {
+                value = (value << 8) | (this.bytes[this.position++] & 0xFF);
+            }
+            return value;
+        }
+
+        private long readVarLong() {
+            long value = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = this.bytes[this.position++];
+                value |= (long) (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+        }
+
+        private long readZigZag() {
+            long value = readVarLong();
+            return (value >>> 1) ^ -(value & 1);
+        }
+
+        private String readString() {
+            int length = (int) readVarLong();
+            String value = new String(this.bytes, this.position, length, StandardCharsets.UTF_8);
+            this.position += length;
+            return value;
+        }
+
+        private byte[] readBytes(int length) {
+            byte[] value = Arrays.copyOfRange(this.bytes, this.position, this.position + length);
+            this.position += length;
+            return value;
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.github.golgolex.anyth.impl.redis;
+
+/*
+ * Copyright 2024 anyth contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Writes UUIDs as their 16 bytes in unpadded URL-safe Base64 (22 characters) instead of the
+ * 36 character string form. Both forms are read, so stored values are migrated as they are
+ * rewritten. Enabled through {@link GsonRedisLayerSerializer#setCompactUUIDs(boolean)}.
+ * <p>
+ * Redis keys containing UUIDs can use the same form through {@link #toCompactString(UUID)}.
+ */
+public class CompactUUIDTypeAdapter extends TypeAdapter<UUID> {
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    @Override
+    public void write(JsonWriter writer, UUID value) throws IOException {
+        if (value == null) {
+            writer.nullValue();
+            return;
+        }
+        writer.value(toCompactString(value));
+    }
+
+    @Override
+    public UUID read(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+        return fromString(reader.nextString());
+    }
+
+    /**
+     * @param uuid The UUID to convert.
+     * @return The 22 character compact form of the UUID.
+     */
+    public static String toCompactString(UUID uuid) {
+        byte[] bytes = new byte[16];
+        long most = uuid.getMostSignificantBits();
+        long least = uuid.getLeastSignificantBits();
+        for (int i = 7; i >= 0; i--) {
+            bytes[i] = (byte) most;
+            bytes[8 + i] = (byte) least;
+            most >>>= 8;
+            least >>>= 8;
+        }
+        return ENCODER.encodeToString(bytes);
+    }
+
+    /**
+     * Parses either the compact or the standard string form of a UUID.
+     *
+     * @param string The stored UUID.
+     * @return The UUID.
+     * @throws IllegalArgumentException If the string is neither form.
+     */
+    public static UUID fromString(String string) {
+        if (string.length() != 22) {
+            return UUID.fromString(string);
+        }
+        byte[] bytes = DECODER.decode(string);
+        long most = 0;
+        long least = 0;
+        for (int i = 0; i < 8; i++) {
+            most = (most << 8) | (bytes[i] & 0xFF);
+            least = (least << 8) | (bytes[8 + i] & 0xFF);
+        }
+        return new UUID(most, least);
+    }
+}
@@ -16,66 +16,180 @@ package com.github.golgolex.anyth.impl.redis;
  * limitations under the License.
  */
 
+import com.github.golgolex.anyth.codec.ValueCompressor;
 import com.github.golgolex.anyth.repository.AbstractRepository;
+import com.github.golgolex.anyth.repository.SnapshotCache;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.NonNull;
+import lombok.Setter;
 import redis.clients.jedis.Jedis;
+import redis.clients.jedis.params.ScanParams;
+import redis.clients.jedis.params.SetParams;
+import redis.clients.jedis.resps.ScanResult;
 
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 @Getter
 public class DefaultRedisRepository extends AbstractRepository<RedisLayerBase<?>,
                                                         String,
                                                         String,
-                                                        GsonRedisLayerSerializer> {
+                                                        RedisLayerSerializer> {
+
+    /**
+     * The first byte of compressed values. It is a control character, which neither JSON nor
+     * {@link BinaryRedisLayerSerializer} values start with, so compressed and uncompressed values
+     * can be read side by side.
+     */
+    public static final byte COMPRESSED_VALUE = 0x1F;
 
     private final Jedis jedis;
 
+    /**
+     * The size in bytes from which values are stored compressed, negative to store every value
+     * uncompressed (the default). Values are read either way.
+     */
+    @Setter
+    private int compressionThreshold = -1;
+
+    /**
+     * Compresses the stored values and records the metrics.
+     */
+    private final ValueCompressor compressor = new ValueCompressor();
+
+    /**
+     * The {@code COUNT} hint of the {@code SCAN} calls iterating keys: roughly how many keys
+     * Redis looks at per call. Higher values need fewer round trips but block the server longer
+     * per call.
+     */
+    @Setter
+    private int scanCount = 1000;
+
+    /**
+     * The number of keys fetched per {@code MGET} when objects are loaded in bulk.
+     */
+    @Setter
+    private int batchSize = 500;
+
+    /**
+     * Whether a hash of the stored value is kept when objects are queried or saved, so
+     * {@link #applyChanges(String, Object)} skips the write if the value didn't change since.
+     * At most {@link #setMaxSnapshots(int) a bounded number} of hashes is kept.
+     */
+    @Setter
+    private boolean changeTracking;
+
+    @Getter(AccessLevel.NONE)
+    private final SnapshotCache<String, Long> snapshots = new SnapshotCache<>();
+
     public DefaultRedisRepository(String repositoryName, Jedis jedis) {
-        super(repositoryName, new GsonRedisLayerSerializer());
+        this(repositoryName, jedis, new GsonRedisLayerSerializer());
+    }
+
+    /**
+     * Creates a repository storing its values in the format of the specified serializer.
+     *
+     * @param repositoryName  The name of the repository.
+     * @param jedis           The connection to store the values through.
+     * @param layerSerializer The serializer writing the values.
+     */
+    public DefaultRedisRepository(String repositoryName, Jedis jedis, RedisLayerSerializer layerSerializer) {
+        super(repositoryName, layerSerializer);
         this.jedis = jedis;
     }
 
     @Override
     public String serializerObject(@NonNull Object object) {
         return this.getLayerSerializer()
-                .encode(object,
-                        this.getLayers()
-                                .values()
-                                .stream()
-                                .map(redisLayerBase -> (RedisLayerBase<Object>) redisLayerBase)
-                                .collect(Collectors.toList()),
-                        this.getCommonLayer().values());
+                .encode(object, this.getLayerRegistry());
     }
 
     @Override
     public <T> T deserializeObject(@NonNull String serialized, @NonNull Class<T> clazz) {
         return (T) this.getLayerSerializer()
-                .decode(serialized,
-                        this.getLayers()
-                                .values()
-                                .stream()
-                                .map(redisLayerBase -> (RedisLayerBase<Object>) redisLayerBase)
-                                .collect(Collectors.toList()),
-                        clazz,
-                        this.getCommonLayer().values());
+                .decode(serialized, this.getLayerRegistry(), clazz);
+    }
+
+    /**
+     * Encodes an object straight into the UTF-8 bytes stored in Redis.
+     *
+     * @param object The object to encode.
+     * @return The encoded object.
+     */
+    public byte[] serializeBytes(@NonNull Object object) {
+        return this.getLayerSerializer()
+                .encodeBytes(object, this.getLayerRegistry());
+    }
+
+    /**
+     * Decodes an object straight from the UTF-8 bytes stored in Redis.
+     *
+     * @param serialized The stored bytes.
+     * @param clazz      The class of the object.
+     * @param <T>        The generic type of the object.
+     * @return The decoded object.
+     */
+    public <T> T deserializeBytes(@NonNull byte[] serialized, @NonNull Class<T> clazz) {
+        return (T) this.getLayerSerializer()
+                .decodeBytes(serialized, this.getLayerRegistry(), clazz);
     }
 
     @Override
     public <T> T query(@NonNull String s, @NonNull Class<T> clazz) {
-        String values = jedis.get(s);
+        byte[] value = queryBytes(s);
 
-        if (values == null) {
+        if (value == null) {
             return null;
         }
 
-        return deserializeObject(values, clazz);
+        track(s, value);
+        return deserializeBytes(value, clazz);
+    }
+
+    /**
+     * Queries the encoded bytes of a key, without decoding them into a string. Compressed values
+     * are decompressed.
+     *
+     * @param s The key.
+     * @return The encoded bytes, or null if the key doesn't exist.
+     */
+    public byte[] queryBytes(@NonNull String s) {
+        byte[] value = jedis.get(key(s));
+        return value != null ? decompress(value) : null;
     }
 
+    /**
+     * Reports the memory Redis uses to hold a key and its value, as {@code MEMORY USAGE}.
+     *
+     * @param s The key.
+     * @return The number of bytes, or null if the key doesn't exist.
+     */
+    public Long memoryUsage(@NonNull String s) {
+        return jedis.memoryUsage(key(s));
+    }
+
+    /**
+     * Queries the String form of a stored value, decompressed if it was stored compressed.
+     *
+     * @param s The key.
+     * @return The String form, or null if the key doesn't exist.
+     * @see RedisLayerSerializer#fromStoredBytes(byte[])
+     */
     @Override
     public String query(@NonNull String s) {
-        return jedis.get(s);
+        byte[] value = queryBytes(s);
+        return value != null ? this.getLayerSerializer().fromStoredBytes(value) : null;
     }
 
     @Override
@@ -90,7 +204,9 @@ public class DefaultRedisRepository extends AbstractRepository<RedisLayerBase<?>
         {
             return false;
         }
-        jedis.set(string, serializerObject(object));
+        byte[] serialized = serializeBytes(object);
+        jedis.set(key(string), compress(serialized));
+        track(string, serialized);
         return false;
     }
 
@@ -107,7 +223,9 @@ public class DefaultRedisRepository extends AbstractRepository<RedisLayerBase<?>
         {
             return false;
         }
-        jedis.set(string, string2);
+        byte[] serialized = this.getLayerSerializer().toStoredBytes(string2);
+        jedis.set(key(string), compress(serialized));
+        track(string, serialized);
         return false;
     }
 
@@ -119,23 +237,149 @@ public class DefaultRedisRepository extends AbstractRepository<RedisLayerBase<?>
 
     @Override
     public Collection<String> queryAll(String s) {
-        return jedis.keys("*")
-                .stream()
-                .filter(s1 -> s1.startsWith(s))
-                .collect(Collectors.toList());
+        return streamKeys(s).collect(Collectors.toCollection(LinkedHashSet::new));
+    }
+
+    /**
+     * Iterates the keys starting with a prefix through {@code SCAN ... MATCH prefix*}, fetching
+     * the next page of {@link #getScanCount()} keys only when the stream gets to it. Unlike
+     * {@code KEYS}, no call blocks the server for the whole keyspace.
+     * <p>
+     * As with {@code SCAN}, a key that exists during the whole iteration is returned at least
+     * once, keys added or removed meanwhile may or may not be. Like every other call, the stream
+     * uses the connection of the repository and has to be consumed on its thread.
+     *
+     * @param prefix The key prefix, empty for all keys.
+     * @return The lazily fetched keys.
+     */
+    public Stream<String> streamKeys(@NonNull String prefix) {
+        return scanPages(prefix).flatMap(List::stream);
+    }
+
+    private Stream<List<String>> scanPages(String prefix) {
+        ScanParams params = new ScanParams()
+                .match(escapeGlob(prefix) + "*")
+                .count(this.scanCount);
+        Iterator<List<String>> pages = new Iterator<>() {
+
+            private String cursor = ScanParams.SCAN_POINTER_START;
+
+            private boolean finished;
+
+            @Override
+            public boolean hasNext() {
+                return !this.finished;
+            }
+
+            @Override
+            public List<String> next() {
+                if (this.finished) {
+                    throw new NoSuchElementException();
+                }
+                ScanResult<String> page = jedis.scan(this.cursor, params);
+                this.cursor = page.getCursor();
+                this.finished = page.isCompleteIteration();
+                return page.getResult();
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(pages, Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    /**
+     * Escapes the glob characters of a prefix for {@code MATCH}.
+     */
+    private static String escapeGlob(String prefix) {
+        StringBuilder escaped = new StringBuilder(prefix.length() + 8);
+        for (int i = 0; i < prefix.length(); i++) {
+            char c = prefix.charAt(i);
+            if (c == '*' || c == '?' || c == '[' || c == ']' || c == '\\') {
+                escaped.append('\\');
+            }
+            escaped.append(c);
+        }
+        return escaped.toString();
     }
 
     @Override
     public <T> Collection<T> queryAll(Class<T> clazz) {
-        return jedis.keys("*")
-                .stream()
-                .map(key -> deserializeObject(key, clazz))
-                .collect(Collectors.toList());
+        return load(streamKeys("").distinct(), clazz).collect(Collectors.toList());
+    }
+
+    /**
+     * Loads the objects stored under the keys starting with a prefix. Keys are iterated like
+     * {@link #streamKeys(String)} and their values fetched with one {@code MGET} per
+     * {@link #getBatchSize()} keys, each batch is decoded when the stream gets to it.
+     *
+     * @param prefix The key prefix, empty for all keys.
+     * @param clazz  The class of the objects.
+     * @param <T>    The generic type of the objects.
+     * @return The lazily loaded objects.
+     */
+    public <T> Stream<T> streamAll(@NonNull String prefix, @NonNull Class<T> clazz) {
+        return load(streamKeys(prefix), clazz);
+    }
+
+    /**
+     * Loads the objects stored under the specified keys, with one {@code MGET} per
+     * {@link #getBatchSize()} keys instead of a round trip per key.
+     *
+     * @param keys  The keys.
+     * @param clazz The class of the objects.
+     * @param <T>   The generic type of the objects.
+     * @return The objects in the order of their keys. Keys that don't exist are left out.
+     */
+    public <T> List<T> queryMany(@NonNull Collection<String> keys, @NonNull Class<T> clazz) {
+        return load(keys.stream(), clazz).collect(Collectors.toCollection(() -> new ArrayList<>(keys.size())));
+    }
+
+    private <T> Stream<T> load(Stream<String> keys, Class<T> clazz) {
+        return batches(keys).flatMap(batch -> loadBatch(batch, clazz).stream());
+    }
+
+    private <T> List<T> loadBatch(List<String> keys, Class<T> clazz) {
+        List<byte[]> values = jedis.mget(keys.stream().map(DefaultRedisRepository::key).toArray(byte[][]::new));
+        List<T> objects = new ArrayList<>(values.size());
+        for (int i = 0; i < values.size(); i++) {
+            byte[] value = values.get(i);
+            if (value != null) {
+                value = decompress(value);
+                track(keys.get(i), value);
+                objects.add(deserializeBytes(value, clazz));
+            }
+        }
+        return objects;
+    }
+
+    /**
+     * Groups a stream of keys into lists of {@link #getBatchSize()} keys, lazily.
+     */
+    private Stream<List<String>> batches(Stream<String> keys) {
+        Iterator<String> iterator = keys.iterator();
+        int batchSize = Math.max(this.batchSize, 1);
+        Iterator<List<String>> batches = new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public List<String> next() {
+                List<String> batch = new ArrayList<>(batchSize);
+                while (batch.size() < batchSize && iterator.hasNext()) {
+                    batch.add(iterator.next());
+                }
+                if (batch.isEmpty()) {
+                    throw new NoSuchElementException();
+                }
+                return batch;
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(batches, Spliterator.ORDERED | Spliterator.NONNULL), false);
     }
 
     @Override
     public Collection<String> queryAll() {
-        return jedis.keys("*");
+        return queryAll("");
     }
 
     @Override
@@ -148,7 +392,9 @@ public class DefaultRedisRepository extends AbstractRepository<RedisLayerBase<?>
             return false;
         }
 
-        jedis.set(s, serializerObject(object));
+        byte[] serialized = serializeBytes(object);
+        jedis.set(key(s), compress(serialized));
+        track(s, serialized);
         return true;
     }
 
@@ -165,7 +411,9 @@ public class DefaultRedisRepository extends AbstractRepository<RedisLayerBase<?>
             return false;
         }
 
-        jedis.set(s, string);
+        byte[] serialized = this.getLayerSerializer().toStoredBytes(string);
+        jedis.set(key(s), compress(serialized));
+        track(s, serialized);
         return true;
     }
 
@@ -175,8 +423,28 @@ public class DefaultRedisRepository extends AbstractRepository<RedisLayerBase<?>
         return insertSerialized(s, string);
     }
 
+    /**
+     * Stores already encoded bytes under a key that doesn't exist yet, compressed if they reach
+     * the compression threshold.
+     *
+     * @param s          The key.
+     * @param serialized The bytes to store.
+     * @return true if the bytes were stored, false if the key already exists.
+     */
+    public boolean insertBytes(@NonNull String s, @NonNull byte[] serialized) {
+        byte[] key = key(s);
+        if (jedis.exists(key)) {
+            return false;
+        }
+
+        jedis.set(key, compress(serialized));
+        track(s, serialized);
+        return true;
+    }
+
     @Override
     public boolean delete(@NonNull String s) {
+        this.snapshots.remove(s);
         return jedis.del(s) > 0;
     }
 
@@ -185,15 +453,96 @@ public class DefaultRedisRepository extends AbstractRepository<RedisLayerBase<?>
         return delete(s);
     }
 
+    /**
+     * Replaces the value of an existing key with a single {@code SET ... XX}. With
+     * {@link #setChangeTracking(boolean) change tracking} enabled and the hash of the stored value
+     * known, nothing is sent at all if the encoded value didn't change.
+     *
+     * @param s      The key.
+     * @param object The changed object.
+     * @param <T>    The generic type of the object.
+     * @return true if the value was written, false if it didn't change or the key doesn't exist.
+     */
     @Override
     public <T> boolean applyChanges(@NonNull String s, @NonNull T object) {
-        if (!exist(s)) {
+        byte[] serialized = this.serializeBytes(object);
+        if (this.changeTracking) {
+            Long snapshot = this.snapshots.get(s);
+            if (snapshot != null && snapshot == hash(serialized)) {
+                return false;
+            }
+        }
+
+        if (jedis.set(key(s), compress(serialized), SetParams.setParams().xx()) == null) {
+            this.snapshots.remove(s);
             return false;
         }
-        jedis.set(s, this.serializerObject(object));
+        track(s, serialized);
         return true;
     }
 
+    /**
+     * Drops the change tracking hash of the specified key, so the next
+     * {@link #applyChanges(String, Object)} writes the value again.
+     *
+     * @param s The key.
+     */
+    public void forgetChanges(@NonNull String s) {
+        this.snapshots.remove(s);
+    }
+
+    /**
+     * Sets the number of change tracking hashes kept. Beyond it the least recently used are
+     * dropped, so their keys are written in full by the next {@link #applyChanges(String, Object)}.
+     *
+     * @param maxSnapshots The maximum number of hashes, {@link SnapshotCache#DEFAULT_MAX_SIZE} by default.
+     */
+    public void setMaxSnapshots(int maxSnapshots) {
+        this.snapshots.setMaxSize(maxSnapshots);
+    }
+
+    /**
+     * Returns the stored form of an encoded value: compressed behind {@link #COMPRESSED_VALUE} if
+     * it reaches the threshold and gets smaller, the value itself otherwise.
+     */
+    private byte[] compress(byte[] serialized) {
+        if (this.compressionThreshold < 0 || serialized.length < this.compressionThreshold) {
+            return serialized;
+        }
+        byte[] compressed = this.compressor.compress(serialized, 1);
+        if (compressed == null) {
+            return serialized;
+        }
+        compressed[0] = COMPRESSED_VALUE;
+        return compressed;
+    }
+
+    private byte[] decompress(byte[] stored) {
+        return stored.length > 0 && stored[0] == COMPRESSED_VALUE ? this.compressor.decompress(stored, 1) : stored;
+    }
+
+    private void track(String s, byte[] serialized) {
+        if (this.changeTracking) {
+            this.snapshots.put(s, hash(serialized));
+        }
+    }
+
+    /**
+     * 64-bit FNV-1a of the value, mixed with its length.
+     */
+    private static long hash(byte[] serialized) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte value : serialized) {
+            hash ^= value & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        return hash ^ ((long) serialized.length << 32);
+    }
+
+    private static byte[] key(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+
     @Override
     public boolean applyChangesSerialized(@NonNull String s, @NonNull String string)
     {
@@ -201,7 +550,9 @@ public class DefaultRedisRepository extends AbstractRepository<RedisLayerBase<?>
         {
             return false;
         }
-        jedis.set(s, this.serializerObject(string));
+        byte[] serialized = this.serializeBytes(string);
+        jedis.set(key(s), compress(serialized));
+        track(s, serialized);
         return true;
     }
 
@@ -228,10 +579,11 @@ public class DefaultRedisRepository extends AbstractRepository<RedisLayerBase<?>
 
     @Override
     public boolean clear(@NonNull String s) {
-        long deleted = 0L;
-        for (String string : this.queryAll(s)) {
-            deleted = deleted + jedis.del(string);
-        }
+        this.snapshots.clear();
+        long deleted = scanPages(s)
+                .filter(page -> !page.isEmpty())
+                .mapToLong(page -> jedis.del(page.toArray(new String[0])))
+                .sum();
         return deleted > 0;
     }
 
@@ -242,6 +594,7 @@ public class DefaultRedisRepository extends AbstractRepository<RedisLayerBase<?>
 
     @Override
     public boolean clear() {
+        this.snapshots.clear();
         return jedis.del("*") > 0;
     }
 
@@ -17,23 +17,254 @@ package com.github.golgolex.anyth.impl.redis;
  */
 
 import com.google.gson.Gson;
-import com.github.golgolex.anyth.layer.AbstractLayerSerializer;
-import com.github.golgolex.anyth.layer.defaults.CommonBasedLayer;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonIOException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import com.github.golgolex.anyth.codec.FieldPlan;
+import com.github.golgolex.anyth.codec.GeneratedCodecs;
+import com.github.golgolex.anyth.layer.LayerRegistry;
+import lombok.Getter;
+import lombok.Setter;
 
-import java.util.Collection;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.UUID;
 
-public class GsonRedisLayerSerializer extends AbstractLayerSerializer<String, RedisLayerBase<Object>> {
+/**
+ * Stores values as JSON written by Gson. Classes annotated with
+ * {@link com.github.golgolex.anyth.annotations.AnythEntity} are written by their generated codec.
+ */
+public class GsonRedisLayerSerializer extends RedisLayerSerializer {
+
+    /**
+     * Output buffers growing beyond this size aren't kept for the next value.
+     */
+    private static final int MAX_RETAINED_BUFFER = 1 << 20;
+
+    private static final ThreadLocal<OutputBuffer> OUTPUT_BUFFERS = ThreadLocal.withInitial(OutputBuffer::new);
 
-    private final Gson gson = new Gson();
+    /**
+     * Whether UUIDs are written in the compact form of {@link CompactUUIDTypeAdapter}. Both forms
+     * are read either way.
+     */
+    @Getter
+    @Setter
+    private volatile boolean compactUUIDs;
+
+    @Override
+    public String encode(Object object, LayerRegistry<?> layerRegistry) {
+        return gson(layerRegistry).toJson(object);
+    }
+
+    @Override
+    public Object decode(String serialized, LayerRegistry<?> layerRegistry, Class<?> clazz) {
+        return gson(layerRegistry).fromJson(serialized, clazz);
+    }
 
+    /**
+     * Encodes an object straight into UTF-8 bytes, without an intermediate string. The JSON is
+     * encoded into a buffer reused per thread, only the result is copied out of it.
+     *
+     * @param object        The object to encode.
+     * @param layerRegistry The registry holding the layers of the repository.
+     * @return The UTF-8 encoded JSON.
+     */
     @Override
-    public String encode(Object tClass, Collection<RedisLayerBase<Object>> layers, Collection<CommonBasedLayer<?, ?>> commonBasedLayers) {
-        return gson.toJson(tClass);
+    public byte[] encodeBytes(Object object, LayerRegistry<?> layerRegistry) {
+        Gson gson = gson(layerRegistry);
+        OutputBuffer buffer = OUTPUT_BUFFERS.get();
+        try {
+            gson.toJson(object, object.getClass(), gson.newJsonWriter(buffer));
+            return buffer.toByteArray();
+        } catch (IOException exception) {
+            throw new JsonIOException(exception);
+        } finally {
+            if (buffer.capacity() > MAX_RETAINED_BUFFER) {
+                OUTPUT_BUFFERS.remove();
+            } else {
+                buffer.reset();
+            }
+        }
     }
 
+    /**
+     * Decodes an object straight from UTF-8 bytes, without an intermediate string.
+     *
+     * @param serialized    The UTF-8 encoded JSON.
+     * @param layerRegistry The registry holding the layers of the repository.
+     * @param clazz         The class to decode into.
+     * @return The decoded object.
+     */
     @Override
-    public Object decode(String serialized, Collection<RedisLayerBase<Object>> layers, Class<?> clazz, Collection<CommonBasedLayer<?, ?>> commonBasedLayers) {
-        return gson.fromJson(serialized, clazz);
+    public Object decodeBytes(byte[] serialized, LayerRegistry<?> layerRegistry, Class<?> clazz) {
+        Gson gson = gson(layerRegistry);
+        return gson.fromJson(gson.newJsonReader(new InputStreamReader(new ByteArrayInputStream(serialized), StandardCharsets.UTF_8)), clazz);
     }
 
+    /**
+     * Returns the Gson instance writing the layers of the specified registry. It is built once per
+     * registry version, so adding or removing a layer rebuilds it together with its cached adapters.
+     *
+     * @param layerRegistry The registry holding the layers of the repository.
+     * @return The Gson instance.
+     */
+    public Gson gson(LayerRegistry<?> layerRegistry) {
+        return layerRegistry.derive(new GsonKey(this, this.compactUUIDs), key -> createGson(key.compactUUIDs(), layerRegistry));
+    }
+
+    /**
+     * A writer encoding straight into a growing UTF-8 byte array. Unpaired surrogates are written
+     * as {@code ?}, like {@link String#getBytes(java.nio.charset.Charset)} does.
+     */
+    private static final class OutputBuffer extends Writer {
+
+        private byte[] bytes = new byte[1024];
+
+        private int count;
+
+        /**
+         * The high surrogate waiting for its low surrogate, 0 if none.
+         */
+        private char highSurrogate;
+
+        @Override
+        public void write(int c) {
+            writeChar((char) c);
+        }
+
+        @Override
+        public void write(char[] chars, int offset, int length) {
+            ensureCapacity(length);
+            for (int i = offset; i < offset + length; i++) {
+                char c = chars[i];
+                if (c < 0x80 && this.highSurrogate == 0) {
+                    this.bytes[this.count++] = (byte) c;
+                } else {
+                    writeChar(c);
+                    ensureCapacity(offset + length - i);
+                }
+            }
+        }
+
+        @Override
+        public void write(String string, int offset, int length) {
+            ensureCapacity(length);
+            for (int i = offset; i < offset + length; i++) {
+                char c = string.charAt(i);
+                if (c < 0x80 && this.highSurrogate == 0) {
+                    this.bytes[this.count++] = (byte) c;
+                } else {
+                    writeChar(c);
+                    ensureCapacity(offset + length - i);
+                }
+            }
+        }
+
+        private void writeChar(char c) {
+            if (this.highSurrogate != 0) {
+                char high = this.highSurrogate;
+                this.highSurrogate = 0;
+                if (Character.isLowSurrogate(c)) {
+                    writeCodePoint(Character.toCodePoint(high, c));
+                    return;
+                }
+                writeCodePoint('?');
+            }
+
+            if (Character.isHighSurrogate(c)) {
+                this.highSurrogate = c;
+            } else {
+                writeCodePoint(Character.isLowSurrogate(c) ? '?' : c);
+            }
+        }
+
+        private void writeCodePoint(int codePoint) {
+            ensureCapacity(4);
+            if (codePoint < 0x80) {
+                this.bytes[this.count++] = (byte) codePoint;
+            } else if (codePoint < 0x800) {
+                this.bytes[this.count++] = (byte) (0xc0 | codePoint >> 6);
+                this.bytes[this.count++] = (byte) (0x80 | codePoint & 0x3f);
+            } else if (codePoint < 0x10000) {
+                this.bytes[this.count++] = (byte) (0xe0 | codePoint >> 12);
+                this.bytes[this.count++] = (byte) (0x80 | codePoint >> 6 & 0x3f);
+                this.bytes[this.count++] = (byte) (0x80 | codePoint & 0x3f);
+            } else {
+                this.bytes[this.count++] = (byte) (0xf0 | codePoint >> 18);
+                this.bytes[this.count++] = (byte) (0x80 | codePoint >> 12 & 0x3f);
+                this.bytes[this.count++] = (byte) (0x80 | codePoint >> 6 & 0x3f);
+                this.bytes[this.count++] = (byte) (0x80 | codePoint & 0x3f);
+            }
+        }
+
+        private void ensureCapacity(int additional) {
+            if (this.count + additional > this.bytes.length) {
+                this.bytes = Arrays.copyOf(this.bytes, Math.max(this.bytes.length * 2, this.count + additional));
+            }
+        }
+
+        private byte[] toByteArray() {
+            if (this.highSurrogate != 0) {
+                this.highSurrogate = 0;
+                writeCodePoint('?');
+            }
+            return Arrays.copyOf(this.bytes, this.count);
+        }
+
+        private int capacity() {
+            return this.bytes.length;
+        }
+
+        private void reset() {
+            this.count = 0;
+            this.highSurrogate = 0;
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    private record GsonKey(GsonRedisLayerSerializer serializer, boolean compactUUIDs) {
+    }
+
+    private static Gson createGson(boolean compactUUIDs, LayerRegistry<?> layerRegistry) {
+        GsonBuilder builder = new GsonBuilder()
+                .registerTypeAdapterFactory(GeneratedCodecs.gsonTypeAdapterFactory())
+                .setFieldNamingStrategy(FieldPlan::storedName);
+        if (compactUUIDs) {
+            builder.registerTypeAdapter(UUID.class, new CompactUUIDTypeAdapter().nullSafe());
+        } else {
+            builder.registerTypeAdapter(UUID.class, new StringUUIDTypeAdapter().nullSafe());
+        }
+        // registered last, so layers take precedence over the adapters above
+        return builder.registerTypeAdapterFactory(new LayerTypeAdapterFactory(layerRegistry))
+                .create();
+    }
+
+    /**
+     * Writes the standard string form and reads both forms.
+     */
+    private static final class StringUUIDTypeAdapter extends TypeAdapter<UUID> {
+
+        @Override
+        public void write(JsonWriter writer, UUID value) throws IOException {
+            writer.value(value.toString());
+        }
+
+        @Override
+        public UUID read(JsonReader reader) throws IOException {
+            return CompactUUIDTypeAdapter.fromString(reader.nextString());
+        }
+    }
 }
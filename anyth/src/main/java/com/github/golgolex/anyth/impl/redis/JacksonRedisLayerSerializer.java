@@ -0,0 +1,172 @@
+package com.github.golgolex.anyth.impl.redis;
+
+/*
+ * Copyright 2024 anyth contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.PropertyAccessor;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.PropertyName;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.introspect.Annotated;
+import com.fasterxml.jackson.databind.introspect.AnnotatedField;
+import com.fasterxml.jackson.databind.introspect.JacksonAnnotationIntrospector;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.github.golgolex.anyth.codec.FieldPlan;
+import com.github.golgolex.anyth.layer.LayerRegistry;
+
+import java.io.IOException;
+
+/**
+ * Stores values as JSON written by Jackson.
+ * <p>
+ * Objects are written field by field like {@link GsonRedisLayerSerializer} does, honouring
+ * {@link com.github.golgolex.anyth.annotations.StoredAs}, leaving out null fields and writing
+ * {@code byte[]} as an array of numbers, so both serializers read what the other wrote. Unlike
+ * Gson, Jackson only instantiates classes with a no-arg constructor (or a Jackson creator). The
+ * mapper and the {@link ObjectReader}/{@link ObjectWriter} of every class are built once per
+ * registry version.
+ */
+public class JacksonRedisLayerSerializer extends RedisLayerSerializer {
+
+    @Override
+    public String encode(Object object, LayerRegistry<?> layerRegistry) {
+        try {
+            return writer(object.getClass(), layerRegistry).writeValueAsString(object);
+        } catch (IOException exception) {
+            throw new IllegalArgumentException("Couldn't encode " + object.getClass().getName(), exception);
+        }
+    }
+
+    @Override
+    public Object decode(String serialized, LayerRegistry<?> layerRegistry, Class<?> clazz) {
+        try {
+            return reader(clazz, layerRegistry).readValue(serialized);
+        } catch (IOException exception) {
+            throw new IllegalArgumentException("Couldn't decode " + clazz.getName(), exception);
+        }
+    }
+
+    @Override
+    public byte[] encodeBytes(Object object, LayerRegistry<?> layerRegistry) {
+        try {
+            return writer(object.getClass(), layerRegistry).writeValueAsBytes(object);
+        } catch (IOException exception) {
+            throw new IllegalArgumentException("Couldn't encode " + object.getClass().getName(), exception);
+        }
+    }
+
+    @Override
+    public Object decodeBytes(byte[] serialized, LayerRegistry<?> layerRegistry, Class<?> clazz) {
+        try {
+            return reader(clazz, layerRegistry).readValue(serialized);
+        } catch (IOException exception) {
+            throw new IllegalArgumentException("Couldn't decode " + clazz.getName(), exception);
+        }
+    }
+
+    /**
+     * Returns the mapper writing the layers of the specified registry. It is built once per
+     * registry version, so adding or removing a layer rebuilds it together with its cached
+     * readers and writers.
+     *
+     * @param layerRegistry The registry holding the layers of the repository.
+     * @return The mapper.
+     */
+    public ObjectMapper mapper(LayerRegistry<?> layerRegistry) {
+        return layerRegistry.derive(new MapperKey(this), key -> createMapper(layerRegistry));
+    }
+
+    private ObjectWriter writer(Class<?> type, LayerRegistry<?> layerRegistry) {
+        return layerRegistry.derive(new WriterKey(this, type), key -> mapper(layerRegistry).writerFor(type));
+    }
+
+    private ObjectReader reader(Class<?> type, LayerRegistry<?> layerRegistry) {
+        return layerRegistry.derive(new ReaderKey(this, type), key -> mapper(layerRegistry).readerFor(type));
+    }
+
+    private static ObjectMapper createMapper(LayerRegistry<?> layerRegistry) {
+        return new ObjectMapper()
+                .setAnnotationIntrospector(new StoredNameIntrospector())
+                .setVisibility(PropertyAccessor.GETTER, JsonAutoDetect.Visibility.NONE)
+                .setVisibility(PropertyAccessor.IS_GETTER, JsonAutoDetect.Visibility.NONE)
+                .setVisibility(PropertyAccessor.SETTER, JsonAutoDetect.Visibility.NONE)
+                .setVisibility(PropertyAccessor.FIELD, JsonAutoDetect.Visibility.ANY)
+                .setSerializationInclusion(JsonInclude.Include.NON_NULL)
+                .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+                .disable(SerializationFeature.FAIL_ON_EMPTY_BEANS)
+                .registerModule(new SimpleModule().addSerializer(byte[].class, new ByteArraySerializer()))
+                .registerModule(new LayerJacksonModule(layerRegistry));
+    }
+
+    /**
+     * Writes byte arrays as arrays of numbers like Gson, instead of Jackson's Base64 string.
+     * Jackson's own deserializer reads both forms.
+     */
+    private static final class ByteArraySerializer extends StdSerializer<byte[]> {
+
+        private ByteArraySerializer() {
+            super(byte[].class);
+        }
+
+        @Override
+        public void serialize(byte[] value, JsonGenerator generator, SerializerProvider provider) throws IOException {
+            generator.writeStartArray(value, value.length);
+            for (byte element : value) {
+                generator.writeNumber(element);
+            }
+            generator.writeEndArray();
+        }
+    }
+
+    /**
+     * Names fields by their {@link com.github.golgolex.anyth.annotations.StoredAs} alias.
+     */
+    private static final class StoredNameIntrospector extends JacksonAnnotationIntrospector {
+
+        @Override
+        public PropertyName findNameForSerialization(Annotated annotated) {
+            if (annotated instanceof AnnotatedField field) {
+                return PropertyName.construct(FieldPlan.storedName(field.getAnnotated()));
+            }
+            return super.findNameForSerialization(annotated);
+        }
+
+        @Override
+        public PropertyName findNameForDeserialization(Annotated annotated) {
+            if (annotated instanceof AnnotatedField field) {
+                return PropertyName.construct(FieldPlan.storedName(field.getAnnotated()));
+            }
+            return super.findNameForDeserialization(annotated);
+        }
+    }
+
+    private record MapperKey(JacksonRedisLayerSerializer serializer) {
+    }
+
+    private record WriterKey(JacksonRedisLayerSerializer serializer, Class<?> type) {
+    }
+
+    private record ReaderKey(JacksonRedisLayerSerializer serializer, Class<?> type) {
+    }
+}
@@ -0,0 +1,189 @@
+package com.github.golgolex.anyth.impl.redis;
+
+/*
+ * Copyright 2024 anyth contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.Version;
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.DeserializationConfig;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.databind.SerializationConfig;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.deser.Deserializers;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.fasterxml.jackson.databind.ser.Serializers;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.github.golgolex.anyth.layer.LayerRegistry;
+import com.github.golgolex.anyth.layer.defaults.CommonBasedLayer;
+
+import java.io.IOException;
+
+/**
+ * Hands out Jackson serializers and deserializers for the types that have a layer in a
+ * {@link LayerRegistry}, writing the same JSON as {@link LayerTypeAdapterFactory}.
+ * <p>
+ * Jackson caches them per type, the module belongs to a single registry version.
+ */
+public final class LayerJacksonModule extends Module {
+
+    private final LayerRegistry<?> layerRegistry;
+
+    public LayerJacksonModule(LayerRegistry<?> layerRegistry) {
+        this.layerRegistry = layerRegistry;
+    }
+
+    @Override
+    public String getModuleName() {
+        return "anyth-layers";
+    }
+
+    @Override
+    public Version version() {
+        return Version.unknownVersion();
+    }
+
+    @Override
+    public void setupModule(SetupContext context) {
+        context.addSerializers(new LayerSerializers());
+        context.addDeserializers(new LayerDeserializers());
+    }
+
+    private final class LayerSerializers extends Serializers.Base {
+
+        @Override
+        public JsonSerializer<?> findSerializer(SerializationConfig config, JavaType type, BeanDescription beanDesc) {
+            Class<?> rawType = type.getRawClass();
+            if (layerRegistry.getLayer(rawType) instanceof RedisLayerBase<?> layer) {
+                return new StringLayerSerializer((RedisLayerBase<Object>) layer);
+            }
+            if (RedisLayerSerializer.isNativeType(rawType)) {
+                return null;
+            }
+            CommonBasedLayer<Object, Object> commonBasedLayer = layerRegistry.getCommonLayer(rawType);
+            return commonBasedLayer != null ? new CommonLayerSerializer(commonBasedLayer) : null;
+        }
+    }
+
+    private final class LayerDeserializers extends Deserializers.Base {
+
+        @Override
+        public JsonDeserializer<?> findBeanDeserializer(JavaType type, DeserializationConfig config, BeanDescription beanDesc) {
+            return find(type.getRawClass());
+        }
+
+        @Override
+        public JsonDeserializer<?> findEnumDeserializer(Class<?> type, DeserializationConfig config, BeanDescription beanDesc) {
+            return find(type);
+        }
+
+        private JsonDeserializer<?> find(Class<?> type) {
+            if (layerRegistry.getLayer(type) instanceof RedisLayerBase<?> layer) {
+                return new StringLayerDeserializer(type, (RedisLayerBase<Object>) layer);
+            }
+            if (RedisLayerSerializer.isNativeType(type)) {
+                return null;
+            }
+            CommonBasedLayer<Object, Object> commonBasedLayer = layerRegistry.getCommonLayer(type);
+            return commonBasedLayer != null ? new CommonLayerDeserializer(type, commonBasedLayer) : null;
+        }
+    }
+
+    private static final class StringLayerSerializer extends StdSerializer<Object> {
+
+        private final RedisLayerBase<Object> layer;
+
+        private StringLayerSerializer(RedisLayerBase<Object> layer) {
+            super(Object.class);
+            this.layer = layer;
+        }
+
+        @Override
+        public void serialize(Object value, JsonGenerator generator, SerializerProvider provider) throws IOException {
+            generator.writeString(this.layer.serialize(value));
+        }
+    }
+
+    private static final class CommonLayerSerializer extends StdSerializer<Object> {
+
+        private final CommonBasedLayer<Object, Object> layer;
+
+        private CommonLayerSerializer(CommonBasedLayer<Object, Object> layer) {
+            super(Object.class);
+            this.layer = layer;
+        }
+
+        @Override
+        public void serialize(Object value, JsonGenerator generator, SerializerProvider provider) throws IOException {
+            Object jsonValue = RedisLayerSerializer.toJsonValue(this.layer, value);
+            if (jsonValue instanceof Integer || jsonValue instanceof Long || jsonValue instanceof Short || jsonValue instanceof Byte) {
+                generator.writeNumber(((Number) jsonValue).longValue());
+            } else if (jsonValue instanceof Number number) {
+                generator.writeNumber(number.toString());
+            } else if (jsonValue instanceof Boolean bool) {
+                generator.writeBoolean(bool);
+            } else {
+                generator.writeString((String) jsonValue);
+            }
+        }
+    }
+
+    private static final class StringLayerDeserializer extends StdDeserializer<Object> {
+
+        private final RedisLayerBase<Object> layer;
+
+        private StringLayerDeserializer(Class<?> type, RedisLayerBase<Object> layer) {
+            super(type);
+            this.layer = layer;
+        }
+
+        @Override
+        public Object deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+            if (parser.currentToken() != JsonToken.VALUE_STRING) {
+                return context.handleUnexpectedToken(handledType(), parser);
+            }
+            return this.layer.deserialize(parser.getText());
+        }
+    }
+
+    private static final class CommonLayerDeserializer extends StdDeserializer<Object> {
+
+        private final CommonBasedLayer<Object, Object> layer;
+
+        private CommonLayerDeserializer(Class<?> type, CommonBasedLayer<Object, Object> layer) {
+            super(type);
+            this.layer = layer;
+        }
+
+        @Override
+        public Object deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+            return switch (parser.currentToken()) {
+                case VALUE_TRUE, VALUE_FALSE -> this.layer.deserialize(parser.getBooleanValue());
+                case VALUE_NUMBER_INT, VALUE_NUMBER_FLOAT ->
+                        RedisLayerSerializer.fromJsonNumber(this.layer, parser.getText());
+                case VALUE_STRING ->
+                        RedisLayerSerializer.fromJsonString(this.layer, parser.getText());
+                default -> context.handleUnexpectedToken(handledType(), parser);
+            };
+        }
+    }
+}
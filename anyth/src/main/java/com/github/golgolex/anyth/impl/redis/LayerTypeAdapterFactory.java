@@ -0,0 +1,135 @@
+package com.github.golgolex.anyth.impl.redis;
+
+/*
+ * Copyright 2024 anyth contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import com.github.golgolex.anyth.layer.LayerRegistry;
+import com.github.golgolex.anyth.layer.defaults.CommonBasedLayer;
+import com.google.gson.Gson;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.function.Supplier;
+
+/**
+ * Hands out streaming adapters for the types that have a layer in a {@link LayerRegistry}.
+ * <p>
+ * A {@link RedisLayerBase} is written as its string. A {@link CommonBasedLayer} is written as a
+ * JSON number or boolean if it serializes to one, otherwise as its
+ * {@link CommonBasedLayer#serializeToString(Object) string form}, see {@link RedisLayerSerializer}.
+ * <p>
+ * Gson caches the adapters per type, the factory belongs to a single registry version.
+ */
+public final class LayerTypeAdapterFactory implements TypeAdapterFactory {
+
+    private final LayerRegistry<?> layerRegistry;
+
+    public LayerTypeAdapterFactory(LayerRegistry<?> layerRegistry) {
+        this.layerRegistry = layerRegistry;
+    }
+
+    @Override
+    public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> typeToken) {
+        Class<? super T> type = typeToken.getRawType();
+        if (type.isPrimitive()) {
+            return null;
+        }
+
+        if (this.layerRegistry.getLayer(type) instanceof RedisLayerBase<?> layer) {
+            return (TypeAdapter<T>) new RedisLayerAdapter<>((RedisLayerBase<Object>) layer).nullSafe();
+        }
+
+        if (RedisLayerSerializer.isNativeType(type)) {
+            return null;
+        }
+        CommonBasedLayer<T, Object> commonBasedLayer = this.layerRegistry.getCommonLayer(type);
+        if (commonBasedLayer == null) {
+            return null;
+        }
+        return new CommonLayerAdapter<>(commonBasedLayer, () -> gson.getDelegateAdapter(this, typeToken)).nullSafe();
+    }
+
+    private static final class RedisLayerAdapter<T> extends TypeAdapter<T> {
+
+        private final RedisLayerBase<T> layer;
+
+        private RedisLayerAdapter(RedisLayerBase<T> layer) {
+            this.layer = layer;
+        }
+
+        @Override
+        public void write(JsonWriter writer, T value) throws IOException {
+            writer.value(this.layer.serialize(value));
+        }
+
+        @Override
+        public T read(JsonReader reader) throws IOException {
+            return this.layer.deserialize(reader.nextString());
+        }
+    }
+
+    private static final class CommonLayerAdapter<T> extends TypeAdapter<T> {
+
+        private final CommonBasedLayer<T, Object> layer;
+
+        /**
+         * The adapter Gson would have used without the layer, reads values written before it.
+         * Resolved on first use, since Gson can't build reflective adapters for some JDK types.
+         */
+        private final Supplier<TypeAdapter<T>> delegate;
+
+        private CommonLayerAdapter(CommonBasedLayer<T, Object> layer, Supplier<TypeAdapter<T>> delegate) {
+            this.layer = layer;
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void write(JsonWriter writer, T value) throws IOException {
+            Object jsonValue = RedisLayerSerializer.toJsonValue(this.layer, value);
+            if (jsonValue instanceof Number number) {
+                writer.value(number);
+            } else if (jsonValue instanceof Boolean bool) {
+                writer.value(bool);
+            } else {
+                writer.value((String) jsonValue);
+            }
+        }
+
+        @Override
+        public T read(JsonReader reader) throws IOException {
+            JsonToken token = reader.peek();
+            if (token == JsonToken.BOOLEAN) {
+                return this.layer.deserialize(reader.nextBoolean());
+            }
+            if (token == JsonToken.NUMBER) {
+                return RedisLayerSerializer.fromJsonNumber(this.layer, reader.nextString());
+            }
+            if (token != JsonToken.STRING) {
+                return this.delegate.get().read(reader);
+            }
+
+            String string = reader.nextString();
+            T value = RedisLayerSerializer.fromJsonString(this.layer, string);
+            return value != null ? value : this.delegate.get().fromJsonTree(new JsonPrimitive(string));
+        }
+    }
+}
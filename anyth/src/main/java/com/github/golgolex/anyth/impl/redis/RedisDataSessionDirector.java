@@ -18,9 +18,13 @@ package com.github.golgolex.anyth.impl.redis;
 
 import com.github.golgolex.anyth.annotations.Director;
 import com.github.golgolex.anyth.repository.AbstractDataSessionDirector;
+import lombok.NonNull;
+import lombok.Setter;
 import redis.clients.jedis.Jedis;
 import redis.clients.jedis.JedisPool;
 
+import java.util.function.Supplier;
+
 @Director(repository = DefaultRedisRepository.class)
 public class RedisDataSessionDirector extends AbstractDataSessionDirector<DefaultRedisRepository> {
 
@@ -28,6 +32,13 @@ public class RedisDataSessionDirector extends AbstractDataSessionDirector<Defaul
 
     private final Jedis jedis;
 
+    /**
+     * Creates the serializer of every repository created from now on.
+     */
+    @Setter
+    @NonNull
+    private Supplier<? extends RedisLayerSerializer> layerSerializerFactory = GsonRedisLayerSerializer::new;
+
     public RedisDataSessionDirector(String key,
                                     JedisPool jedisPool,
                                     Jedis jedis) {
@@ -56,7 +67,7 @@ public class RedisDataSessionDirector extends AbstractDataSessionDirector<Defaul
             return repository;
         }
 
-        repository = new DefaultRedisRepository(name, jedis);
+        repository = new DefaultRedisRepository(name, jedis, this.layerSerializerFactory.get());
         this.getRepositories().put(name, repository);
         return repository;
     }
@@ -0,0 +1,169 @@
+package com.github.golgolex.anyth.impl.redis;
+
+/*
+ * Copyright 2024 anyth contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import com.github.golgolex.anyth.layer.AbstractLayerSerializer;
+import com.github.golgolex.anyth.layer.LayerRegistry;
+import com.github.golgolex.anyth.layer.defaults.CommonBasedLayer;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * The format a {@link DefaultRedisRepository} stores its values in.
+ * <p>
+ * Implementations write objects as UTF-8 bytes, the String methods are a convenience on top of
+ * them. Layers are bridged the same way by every implementation: a {@link RedisLayerBase} is
+ * written as its string, a {@link CommonBasedLayer} as a number or boolean if it serializes to one
+ * and as its string form otherwise. Strings, boxed primitives, {@link BigDecimal},
+ * {@link BigInteger} and UUIDs are left to the format unless a {@link RedisLayerBase} is
+ * registered for them.
+ *
+ * @see GsonRedisLayerSerializer
+ * @see JacksonRedisLayerSerializer
+ */
+public abstract class RedisLayerSerializer extends AbstractLayerSerializer<String, RedisLayerBase<Object>> {
+
+    private static final Set<Class<?>> NATIVE_TYPES = Set.of(String.class,
+            Boolean.class,
+            Character.class,
+            Byte.class,
+            Short.class,
+            Integer.class,
+            Long.class,
+            Float.class,
+            Double.class,
+            BigDecimal.class,
+            BigInteger.class,
+            UUID.class);
+
+    /**
+     * Encodes an object into the UTF-8 bytes stored in Redis.
+     *
+     * @param object        The object to encode.
+     * @param layerRegistry The registry holding the layers of the repository.
+     * @return The encoded object.
+     */
+    public abstract byte[] encodeBytes(Object object, LayerRegistry<?> layerRegistry);
+
+    /**
+     * Decodes an object from the UTF-8 bytes stored in Redis.
+     *
+     * @param serialized    The stored bytes.
+     * @param layerRegistry The registry holding the layers of the repository.
+     * @param clazz         The class to decode into.
+     * @return The decoded object.
+     */
+    public abstract Object decodeBytes(byte[] serialized, LayerRegistry<?> layerRegistry, Class<?> clazz);
+
+    @Override
+    public String encode(Object tClass, Collection<RedisLayerBase<Object>> layers, Collection<CommonBasedLayer<?, ?>> commonBasedLayers) {
+        return encode(tClass, layerRegistry(layers, commonBasedLayers));
+    }
+
+    @Override
+    public Object decode(String serialized, Collection<RedisLayerBase<Object>> layers, Class<?> clazz, Collection<CommonBasedLayer<?, ?>> commonBasedLayers) {
+        return decode(serialized, layerRegistry(layers, commonBasedLayers), clazz);
+    }
+
+    @Override
+    public String encode(Object object, LayerRegistry<?> layerRegistry) {
+        return new String(encodeBytes(object, layerRegistry), StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public Object decode(String serialized, LayerRegistry<?> layerRegistry, Class<?> clazz) {
+        return decodeBytes(serialized.getBytes(StandardCharsets.UTF_8), layerRegistry, clazz);
+    }
+
+    /**
+     * Converts the String form of an encoded value, as returned by {@link #encode(Object, LayerRegistry)},
+     * into the bytes stored in Redis.
+     *
+     * @param serialized The String form.
+     * @return The stored bytes.
+     */
+    public byte[] toStoredBytes(String serialized) {
+        return serialized.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Converts the bytes stored in Redis into the String form of the encoded value, as accepted by
+     * {@link #decode(String, LayerRegistry, Class)}.
+     *
+     * @param stored The stored bytes.
+     * @return The String form.
+     */
+    public String fromStoredBytes(byte[] stored) {
+        return new String(stored, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return Whether the format writes values of the specified type itself, without their
+     * common layer.
+     */
+    static boolean isNativeType(Class<?> type) {
+        return type.isPrimitive() || NATIVE_TYPES.contains(type);
+    }
+
+    /**
+     * Returns the JSON value a common layer writes: the serialized value if it is a number or a
+     * boolean, the string form otherwise.
+     */
+    static <T> Object toJsonValue(CommonBasedLayer<T, Object> layer, T value) {
+        Object serialized = layer.serialize(value);
+        if (serialized instanceof Number || serialized instanceof Boolean) {
+            return serialized;
+        }
+        return layer.serializeToString(value);
+    }
+
+    /**
+     * Reads a JSON number through a common layer: from its exact text first, so decimals keep
+     * their scale, then as the narrowest of {@link Integer}, {@link Long} and {@link Double}.
+     */
+    static <T> T fromJsonNumber(CommonBasedLayer<T, Object> layer, String number) {
+        T value = fromJsonString(layer, number);
+        return value != null ? value : layer.deserialize(parseNumber(number));
+    }
+
+    /**
+     * Reads a JSON string through the string form of a common layer.
+     *
+     * @return The value, or null if the layer can't read the string.
+     */
+    static <T> T fromJsonString(CommonBasedLayer<T, Object> layer, String string) {
+        try {
+            return layer.deserializeFromString(string);
+        } catch (RuntimeException exception) {
+            return null;
+        }
+    }
+
+    private static Number parseNumber(String number) {
+        try {
+            long value = Long.parseLong(number);
+            return value == (int) value ? (Number) (int) value : (Number) value;
+        } catch (NumberFormatException exception) {
+            return Double.parseDouble(number);
+        }
+    }
+}
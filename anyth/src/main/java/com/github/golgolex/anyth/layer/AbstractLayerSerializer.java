@@ -19,9 +19,17 @@ package com.github.golgolex.anyth.layer;
 import com.github.golgolex.anyth.layer.defaults.CommonBasedLayer;
 
 import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
 
 public abstract class AbstractLayerSerializer<TSerializer, TLayerBase extends LayerBase<Object, ?>> {
 
+    /**
+     * The registry built by the last {@link #layerRegistry(Collection, Collection)} call, with the
+     * layers it was built from.
+     */
+    private volatile CachedRegistry cachedRegistry;
+
     /**
      * Abstract method to encode an object along with associated layers and FromToLayers.
      *
@@ -62,4 +70,78 @@ public abstract class AbstractLayerSerializer<TSerializer, TLayerBase extends La
                                   Collection<TLayerBase> layers,
                                   Class<?> clazz,
                                   Collection<CommonBasedLayer<?, ?>> commonBasedLayers);
+
+    /**
+     * Encodes an object with the layers of the specified registry.
+     *
+     * @param object        The object to be encoded.
+     * @param layerRegistry The registry holding the layers of the repository.
+     * @return An instance of TSerializer representing the encoded object.
+     *
+     * The default implementation hands the registered layers to
+     * {@link #encode(Object, Collection, Collection)}. Subclasses should override it to use the
+     * cached type lookups of the registry.
+     */
+    @SuppressWarnings("unchecked")
+    public TSerializer encode(Object object, LayerRegistry<?> layerRegistry) {
+        return encode(object,
+                (Collection<TLayerBase>) (Collection<?>) layerRegistry.getLayers().values(),
+                layerRegistry.getCommonLayers().values());
+    }
+
+    /**
+     * Decodes a serialized object with the layers of the specified registry.
+     *
+     * @param serialized    An instance of TSerializer representing the serialized object.
+     * @param layerRegistry The registry holding the layers of the repository.
+     * @param clazz         The class type to which the object should be decoded.
+     * @return The decoded object of the specified class type.
+     *
+     * The default implementation hands the registered layers to
+     * {@link #decode(Object, Collection, Class, Collection)}. Subclasses should override it to use
+     * the cached type lookups of the registry.
+     */
+    @SuppressWarnings("unchecked")
+    public Object decode(TSerializer serialized, LayerRegistry<?> layerRegistry, Class<?> clazz) {
+        return decode(serialized,
+                (Collection<TLayerBase>) (Collection<?>) layerRegistry.getLayers().values(),
+                clazz,
+                layerRegistry.getCommonLayers().values());
+    }
+
+    /**
+     * Returns a registry holding the specified layers, for the collection based overloads. The
+     * registry is kept and handed out again as long as the same layers are passed in, so its type
+     * lookups and derived state survive between calls.
+     *
+     * @param layers            The layers.
+     * @param commonBasedLayers The common layers.
+     * @return The registry.
+     */
+    protected LayerRegistry<?> layerRegistry(Collection<? extends TLayerBase> layers,
+                                             Collection<CommonBasedLayer<?, ?>> commonBasedLayers) {
+        CachedRegistry cached = this.cachedRegistry;
+        if (cached != null && sameLayers(cached.layers(), layers) && sameLayers(cached.commonBasedLayers(), commonBasedLayers)) {
+            return cached.registry();
+        }
+        LayerRegistry<?> registry = LayerRegistry.of(layers, commonBasedLayers);
+        this.cachedRegistry = new CachedRegistry(List.copyOf(layers), List.copyOf(commonBasedLayers), registry);
+        return registry;
+    }
+
+    private static boolean sameLayers(List<?> cached, Collection<?> layers) {
+        if (cached.size() != layers.size()) {
+            return false;
+        }
+        Iterator<?> iterator = layers.iterator();
+        for (Object layer : cached) {
+            if (layer != iterator.next()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private record CachedRegistry(List<?> layers, List<?> commonBasedLayers, LayerRegistry<?> registry) {
+    }
 }
@@ -0,0 +1,260 @@
+package com.github.golgolex.anyth.layer;
+
+/*
+ * Copyright 2024 anyth contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import com.github.golgolex.anyth.annotations.ConvertLayer;
+import com.github.golgolex.anyth.layer.defaults.CommonBasedLayer;
+import com.github.golgolex.anyth.layer.defaults.CommonLayerFactory;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Holds the layers and common layers of a repository, keyed by {@link ConvertLayer#object()}.
+ * <p>
+ * Exact lookups are a single map access. Assignable lookups ({@link #resolveLayer(Class)} and
+ * {@link #resolveCommonLayer(Class)}) are resolved once per runtime class and cached, including
+ * negative results. Classes without an exact common layer whose superclass has a
+ * {@link CommonLayerFactory} registered, like enums, get a layer from that factory, also cached.
+ * Serializers can keep their own state that depends on the layers (compiled
+ * codecs, adapters, ...) through {@link #derive(Object, Function)}. Every mutation drops all of
+ * these caches and increments {@link #getVersion()}.
+ *
+ * @param <TLayer> The layer type of the repository.
+ */
+public final class LayerRegistry<TLayer extends LayerBase<?, ?>> {
+
+    private static final Object NONE = new Object();
+
+    private final Map<Class<?>, TLayer> layers = new ConcurrentHashMap<>(0);
+
+    private final Map<Class<?>, CommonBasedLayer<?, ?>> commonLayers = new ConcurrentHashMap<>(0);
+
+    private volatile Map<Class<?>, Object> resolvedLayers = new ConcurrentHashMap<>();
+
+    private volatile Map<Class<?>, Object> resolvedCommonLayers = new ConcurrentHashMap<>();
+
+    private volatile Map<Class<?>, Object> createdCommonLayers = new ConcurrentHashMap<>();
+
+    private volatile boolean commonLayerFactories;
+
+    private volatile Map<Object, Object> derived = new ConcurrentHashMap<>();
+
+    private volatile long version;
+
+    /**
+     * Creates a registry from loose layer collections, reading {@link ConvertLayer#object()}
+     * of every layer once.
+     *
+     * @param layers            The layers to register.
+     * @param commonBasedLayers The common layers to register.
+     * @param <L>               The layer type.
+     * @return The new registry.
+     */
+    public static <L extends LayerBase<?, ?>> LayerRegistry<L> of(Collection<? extends L> layers,
+                                                                  Collection<CommonBasedLayer<?, ?>> commonBasedLayers) {
+        LayerRegistry<L> registry = new LayerRegistry<>();
+        for (L layer : layers) {
+            registry.layers.putIfAbsent(objectClass(layer), layer);
+        }
+        for (CommonBasedLayer<?, ?> commonBasedLayer : commonBasedLayers) {
+            registry.commonLayers.putIfAbsent(objectClass(commonBasedLayer), commonBasedLayer);
+            registry.commonLayerFactories |= commonBasedLayer instanceof CommonLayerFactory;
+        }
+        return registry;
+    }
+
+    private static Class<?> objectClass(LayerBase<?, ?> layer) {
+        ConvertLayer annotation = layer.getClass().getAnnotation(ConvertLayer.class);
+        return annotation != null ? annotation.object() : Object.class;
+    }
+
+    public Map<Class<?>, TLayer> getLayers() {
+        return Collections.unmodifiableMap(this.layers);
+    }
+
+    public Map<Class<?>, CommonBasedLayer<?, ?>> getCommonLayers() {
+        return Collections.unmodifiableMap(this.commonLayers);
+    }
+
+    public long getVersion() {
+        return this.version;
+    }
+
+    public boolean containsLayer(Class<?> objectClass) {
+        return this.layers.containsKey(objectClass);
+    }
+
+    public boolean containsCommonLayer(Class<?> objectClass) {
+        return this.commonLayers.containsKey(objectClass);
+    }
+
+    public synchronized void putLayer(Class<?> objectClass, TLayer layer) {
+        this.layers.put(objectClass, layer);
+        this.invalidate();
+    }
+
+    public synchronized void putCommonLayer(Class<?> objectClass, CommonBasedLayer<?, ?> commonBasedLayer) {
+        this.commonLayers.put(objectClass, commonBasedLayer);
+        this.commonLayerFactories |= commonBasedLayer instanceof CommonLayerFactory;
+        this.invalidate();
+    }
+
+    /**
+     * Removes the layer and the common layer registered for the specified class.
+     *
+     * @param objectClass The class the layers convert.
+     * @return True if anything was removed, false otherwise.
+     */
+    public synchronized boolean remove(Class<?> objectClass) {
+        boolean removed = this.layers.remove(objectClass) != null;
+        removed |= this.commonLayers.remove(objectClass) != null;
+        if (removed) {
+            this.invalidate();
+        }
+        return removed;
+    }
+
+    /**
+     * Returns the layer registered for exactly the specified class.
+     *
+     * @param type The class to look up.
+     * @return The layer, or null if none is registered.
+     */
+    public TLayer getLayer(Class<?> type) {
+        return this.layers.get(type);
+    }
+
+    /**
+     * Returns the common layer registered for exactly the specified class, or created for it by
+     * the {@link CommonLayerFactory} of a superclass.
+     *
+     * @param type The class to look up.
+     * @return The common layer, or null if none is registered.
+     */
+    public <S, D> CommonBasedLayer<S, D> getCommonLayer(Class<?> type) {
+        CommonBasedLayer<?, ?> layer = this.commonLayers.get(type);
+        if (layer == null && this.commonLayerFactories) {
+            Map<Class<?>, Object> created = this.createdCommonLayers;
+            Object createdLayer = created.get(type);
+            if (createdLayer == null) {
+                createdLayer = create(type);
+                created.put(type, createdLayer);
+            }
+            return createdLayer == NONE ? null : (CommonBasedLayer<S, D>) createdLayer;
+        }
+        return (CommonBasedLayer<S, D>) layer;
+    }
+
+    private Object create(Class<?> type) {
+        for (Class<?> current = type.getSuperclass(); current != null && current != Object.class; current = current.getSuperclass()) {
+            if (this.commonLayers.get(current) instanceof CommonLayerFactory factory) {
+                CommonBasedLayer<?, ?> layer = factory.forType(type);
+                return layer != null ? layer : NONE;
+            }
+        }
+        return NONE;
+    }
+
+    /**
+     * Returns the layer that can convert the specified runtime class, preferring the most
+     * specific registration.
+     *
+     * @param type The runtime class to resolve.
+     * @return The layer, or null if none is assignable.
+     */
+    public TLayer resolveLayer(Class<?> type) {
+        Map<Class<?>, Object> resolved = this.resolvedLayers;
+        Object layer = resolved.get(type);
+        if (layer == null) {
+            layer = resolve(this.layers, type);
+            resolved.put(type, layer);
+        }
+        return layer == NONE ? null : (TLayer) layer;
+    }
+
+    /**
+     * Returns the common layer that can convert the specified runtime class, preferring the
+     * most specific registration.
+     *
+     * @param type The runtime class to resolve.
+     * @return The common layer, or null if none is assignable.
+     */
+    public <S, D> CommonBasedLayer<S, D> resolveCommonLayer(Class<?> type) {
+        Map<Class<?>, Object> resolved = this.resolvedCommonLayers;
+        Object layer = resolved.get(type);
+        if (layer == null) {
+            layer = getCommonLayer(type);
+            if (layer == null) {
+                layer = resolve(this.commonLayers, type);
+            }
+            resolved.put(type, layer);
+        }
+        return layer == NONE ? null : (CommonBasedLayer<S, D>) layer;
+    }
+
+    /**
+     * Returns state derived from the registered layers, computing it on first use. The state is
+     * dropped as soon as a layer is added or removed.
+     * <p>
+     * The factory may call back into this method for other keys (for example for a class that
+     * references itself), so it doesn't run under a lock and may run more than once for a key.
+     *
+     * @param key     The key of the derived state, usually a record combining owner and class.
+     * @param factory Computes the state, may return null.
+     * @param <K>     The key type.
+     * @param <V>     The type of the derived state.
+     * @return The derived state, or null if the factory returned null.
+     */
+    public <K, V> V derive(K key, Function<? super K, ? extends V> factory) {
+        Map<Object, Object> derived = this.derived;
+        Object value = derived.get(key);
+        if (value == null) {
+            V computed = factory.apply(key);
+            Object previous = derived.putIfAbsent(key, computed != null ? computed : NONE);
+            value = previous != null ? previous : (computed != null ? computed : NONE);
+        }
+        return value == NONE ? null : (V) value;
+    }
+
+    private static Object resolve(Map<Class<?>, ?> registered, Class<?> type) {
+        for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+            Object layer = registered.get(current);
+            if (layer != null) {
+                return layer;
+            }
+        }
+        for (Map.Entry<Class<?>, ?> entry : registered.entrySet()) {
+            if (entry.getKey() != Object.class && entry.getKey().isAssignableFrom(type)) {
+                return entry.getValue();
+            }
+        }
+        Object layer = registered.get(Object.class);
+        return layer != null ? layer : NONE;
+    }
+
+    private void invalidate() {
+        this.resolvedLayers = new ConcurrentHashMap<>();
+        this.resolvedCommonLayers = new ConcurrentHashMap<>();
+        this.createdCommonLayers = new ConcurrentHashMap<>();
+        this.derived = new ConcurrentHashMap<>();
+        this.version++;
+    }
+}
@@ -0,0 +1,62 @@
+package com.github.golgolex.anyth.layer.defaults;
+
+/*
+ * Copyright 2024 anyth contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import com.github.golgolex.anyth.annotations.ConvertLayer;
+import org.bson.types.Decimal128;
+
+import java.math.BigDecimal;
+
+/**
+ * Stores decimals as {@link Decimal128}, so MongoDB compares them numerically. Values that need
+ * more than 34 significant digits can't be represented and are rejected with a
+ * {@link NumberFormatException} instead of being rounded. Strings and other numbers written by
+ * older layers are still read. Only {@code DefaultMongoRepository} registers it by default, Redis
+ * repositories write decimals as plain numbers.
+ */
+@ConvertLayer(object = BigDecimal.class)
+public class BigDecimalLayer implements CommonBasedLayer<BigDecimal, Decimal128> {
+
+    @Override
+    public Decimal128 serialize(BigDecimal object) {
+        return new Decimal128(object);
+    }
+
+    @Override
+    public BigDecimal deserialize(Object serialized) {
+        if (serialized instanceof Decimal128 decimal) {
+            return decimal.isNaN() || decimal.isInfinite() ? null : decimal.bigDecimalValue();
+        }
+        if (serialized instanceof BigDecimal decimal) {
+            return decimal;
+        }
+        if (serialized instanceof String || serialized instanceof Number) {
+            return new BigDecimal(serialized.toString());
+        }
+        return null;
+    }
+
+    @Override
+    public String serializeToString(BigDecimal serialized) {
+        return serialized.toString();
+    }
+
+    @Override
+    public BigDecimal deserializeFromString(String string) {
+        return new BigDecimal(string);
+    }
+}
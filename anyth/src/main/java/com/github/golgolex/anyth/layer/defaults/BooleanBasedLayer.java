@@ -0,0 +1,51 @@
+package com.github.golgolex.anyth.layer.defaults;
+
+/*
+ * Copyright 2024 anyth contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * A {@link CommonBasedLayer} for {@code boolean} values stored as {@code boolean}.
+ * <p>
+ * Codecs call {@link #writeBoolean(boolean)} and {@link #readBoolean(boolean)} directly on primitive fields, so the
+ * value is never boxed. The generic methods are derived from them.
+ */
+public interface BooleanBasedLayer extends CommonBasedLayer<Boolean, Boolean> {
+
+    /**
+     * @param value The field value.
+     * @return The stored value.
+     */
+    boolean writeBoolean(boolean value);
+
+    /**
+     * @param stored The stored value.
+     * @return The field value.
+     */
+    boolean readBoolean(boolean stored);
+
+    @Override
+    default Boolean serialize(Boolean object) {
+        return writeBoolean(object);
+    }
+
+    @Override
+    default Boolean deserialize(Object serialized) {
+        if (!(serialized instanceof Boolean b)) {
+            return null;
+        }
+        return readBoolean(b);
+    }
+}
@@ -19,18 +19,16 @@ package com.github.golgolex.anyth.layer.defaults;
 import com.github.golgolex.anyth.annotations.ConvertLayer;
 
 @ConvertLayer(object = Boolean.class)
-public class BooleanLayer implements CommonBasedLayer<Boolean, Boolean> {
+public class BooleanLayer implements BooleanBasedLayer {
+
     @Override
-    public Boolean serialize(Boolean object) {
-        return object;
+    public boolean writeBoolean(boolean value) {
+        return value;
     }
 
     @Override
-    public Boolean deserialize(Object serialized) {
-        if (!(serialized instanceof Boolean b)) {
-            return null;
-        }
-        return b;
+    public boolean readBoolean(boolean stored) {
+        return stored;
     }
 
     @Override
@@ -0,0 +1,55 @@
+package com.github.golgolex.anyth.layer.defaults;
+
+/*
+ * Copyright 2024 anyth contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * A {@link CommonBasedLayer} for {@code char} values stored as a single character.
+ * <p>
+ * Codecs call {@link #writeChar(char)} and {@link #readChar(char)} directly on primitive fields, so the
+ * value is never boxed. The generic methods are derived from them.
+ */
+public interface CharBasedLayer extends CommonBasedLayer<Character, Character> {
+
+    /**
+     * @param value The field value.
+     * @return The stored value.
+     */
+    char writeChar(char value);
+
+    /**
+     * @param stored The stored value.
+     * @return The field value.
+     */
+    char readChar(char stored);
+
+    @Override
+    default Character serialize(Character object) {
+        return writeChar(object);
+    }
+
+    @Override
+    default Character deserialize(Object serialized) {
+        if (serialized instanceof Character character) {
+            return readChar(character);
+        }
+        // characters come back from MongoDB as single character strings
+        if (serialized instanceof String string && string.length() == 1) {
+            return readChar(string.charAt(0));
+        }
+        return null;
+    }
+}
@@ -19,18 +19,16 @@ package com.github.golgolex.anyth.layer.defaults;
 import com.github.golgolex.anyth.annotations.ConvertLayer;
 
 @ConvertLayer(object = Character.class)
-public class CharLayer implements CommonBasedLayer<Character, Character> {
+public class CharLayer implements CharBasedLayer {
+
     @Override
-    public Character serialize(Character object) {
-        return object;
+    public char writeChar(char value) {
+        return value;
     }
 
     @Override
-    public Character deserialize(Object serialized) {
-        if (!(serialized instanceof Character character)) {
-            return null;
-        }
-        return character;
+    public char readChar(char stored) {
+        return stored;
     }
 
     @Override
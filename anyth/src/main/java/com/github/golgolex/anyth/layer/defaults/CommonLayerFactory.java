@@ -0,0 +1,33 @@
+package com.github.golgolex.anyth.layer.defaults;
+
+/*
+ * Copyright 2024 anyth contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import com.github.golgolex.anyth.layer.LayerRegistry;
+
+/**
+ * A {@link CommonBasedLayer} registered for a base class that creates a dedicated layer for each
+ * subclass, like {@link EnumLayer} for every enum. {@link LayerRegistry} asks the factory when
+ * no layer is registered for exactly the requested class and caches the result.
+ */
+public interface CommonLayerFactory {
+
+    /**
+     * @param type A subclass of the class the factory is registered for.
+     * @return The layer for the class, or null if the factory doesn't support it.
+     */
+    CommonBasedLayer<?, ?> forType(Class<?> type);
+}
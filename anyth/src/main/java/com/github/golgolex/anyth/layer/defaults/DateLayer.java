@@ -0,0 +1,56 @@
+package com.github.golgolex.anyth.layer.defaults;
+
+/*
+ * Copyright 2024 anyth contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import com.github.golgolex.anyth.annotations.ConvertLayer;
+
+import java.time.Instant;
+import java.util.Date;
+
+/**
+ * Stores dates as they are, which MongoDB writes as a native BSON date-time. Without this layer
+ * a {@link Date} field would be written as a nested document. ISO-8601 strings are still read.
+ */
+@ConvertLayer(object = Date.class)
+public class DateLayer implements CommonBasedLayer<Date, Date> {
+
+    @Override
+    public Date serialize(Date object) {
+        return object;
+    }
+
+    @Override
+    public Date deserialize(Object serialized) {
+        if (serialized instanceof Date date) {
+            return date;
+        }
+        if (serialized instanceof String string) {
+            return Date.from(Instant.parse(string));
+        }
+        return null;
+    }
+
+    @Override
+    public String serializeToString(Date serialized) {
+        return serialized.toInstant().toString();
+    }
+
+    @Override
+    public Date deserializeFromString(String string) {
+        return Date.from(Instant.parse(string));
+    }
+}
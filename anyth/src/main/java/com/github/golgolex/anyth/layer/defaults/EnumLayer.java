@@ -0,0 +1,118 @@
+package com.github.golgolex.anyth.layer.defaults;
+
+/*
+ * Copyright 2024 anyth contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import com.github.golgolex.anyth.annotations.ConvertLayer;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Stores enum constants by name. Registered for {@link Enum}, it hands out a layer per enum
+ * class through {@link #forType(Class)}; the names are looked up once per class.
+ * <p>
+ * Both names and ordinals are read, so switching to {@link EnumOrdinalLayer} and back doesn't
+ * break stored documents.
+ */
+@ConvertLayer(object = Enum.class)
+public class EnumLayer implements CommonBasedLayer<Enum<?>, Object>, CommonLayerFactory {
+
+    /**
+     * @return Whether constants are stored by ordinal instead of by name.
+     */
+    protected boolean ordinals() {
+        return false;
+    }
+
+    @Override
+    public CommonBasedLayer<?, ?> forType(Class<?> type) {
+        Class<?> enumType = type.isEnum() ? type : type.getSuperclass();
+        if (enumType == null || !enumType.isEnum()) {
+            return null;
+        }
+        return new TypedEnumLayer(enumType.getEnumConstants(), ordinals());
+    }
+
+    @Override
+    public Object serialize(Enum<?> object) {
+        return ordinals() ? (Object) object.ordinal() : object.name();
+    }
+
+    /**
+     * The enum class isn't known here, use the layer returned by {@link #forType(Class)}.
+     *
+     * @return Always null.
+     */
+    @Override
+    public Enum<?> deserialize(Object serialized) {
+        return null;
+    }
+
+    @Override
+    public String serializeToString(Enum<?> serialized) {
+        return serialized.name();
+    }
+
+    @Override
+    public Enum<?> deserializeFromString(String string) {
+        return null;
+    }
+
+    private static final class TypedEnumLayer implements CommonBasedLayer<Enum<?>, Object> {
+
+        private final Object[] constants;
+
+        private final Map<String, Object> constantsByName;
+
+        private final boolean ordinals;
+
+        private TypedEnumLayer(Object[] constants, boolean ordinals) {
+            this.constants = constants;
+            this.ordinals = ordinals;
+            this.constantsByName = new HashMap<>(constants.length * 2);
+            for (Object constant : constants) {
+                this.constantsByName.put(((Enum<?>) constant).name(), constant);
+            }
+        }
+
+        @Override
+        public Object serialize(Enum<?> object) {
+            return this.ordinals ? (Object) object.ordinal() : object.name();
+        }
+
+        @Override
+        public Enum<?> deserialize(Object serialized) {
+            if (serialized instanceof String name) {
+                return (Enum<?>) this.constantsByName.get(name);
+            }
+            if (serialized instanceof Integer ordinal && ordinal >= 0 && ordinal < this.constants.length) {
+                return (Enum<?>) this.constants[ordinal];
+            }
+            return null;
+        }
+
+        @Override
+        public String serializeToString(Enum<?> serialized) {
+            return serialized.name();
+        }
+
+        @Override
+        public Enum<?> deserializeFromString(String string) {
+            return (Enum<?>) this.constantsByName.get(string);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.github.golgolex.anyth.layer.defaults;
+
+/*
+ * Copyright 2024 anyth contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import com.github.golgolex.anyth.annotations.ConvertLayer;
+
+/**
+ * Stores enum constants by ordinal, a 32-bit integer, instead of by name. Reordering or removing
+ * constants changes the meaning of stored values. Opt-in: remove the default {@link EnumLayer}
+ * for {@link Enum} and apply this one instead.
+ */
+@ConvertLayer(object = Enum.class)
+public class EnumOrdinalLayer extends EnumLayer {
+
+    @Override
+    protected boolean ordinals() {
+        return true;
+    }
+}
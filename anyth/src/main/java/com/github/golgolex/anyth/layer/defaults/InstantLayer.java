@@ -0,0 +1,57 @@
+package com.github.golgolex.anyth.layer.defaults;
+
+/*
+ * Copyright 2024 anyth contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import com.github.golgolex.anyth.annotations.ConvertLayer;
+
+import java.time.Instant;
+import java.util.Date;
+
+/**
+ * Stores instants as {@link Date}, which MongoDB writes as a native BSON date-time, so range
+ * queries compare dates instead of strings. The BSON date-time has millisecond precision, finer
+ * parts are truncated. ISO-8601 strings written by older layers are still read.
+ */
+@ConvertLayer(object = Instant.class)
+public class InstantLayer implements CommonBasedLayer<Instant, Date> {
+
+    @Override
+    public Date serialize(Instant object) {
+        return Date.from(object);
+    }
+
+    @Override
+    public Instant deserialize(Object serialized) {
+        if (serialized instanceof Date date) {
+            return date.toInstant();
+        }
+        if (serialized instanceof String string) {
+            return Instant.parse(string);
+        }
+        return null;
+    }
+
+    @Override
+    public String serializeToString(Instant serialized) {
+        return serialized.toString();
+    }
+
+    @Override
+    public Instant deserializeFromString(String string) {
+        return Instant.parse(string);
+    }
+}
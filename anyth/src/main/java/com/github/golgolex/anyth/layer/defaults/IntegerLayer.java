@@ -19,18 +19,16 @@ package com.github.golgolex.anyth.layer.defaults;
 import com.github.golgolex.anyth.annotations.ConvertLayer;
 
 @ConvertLayer(object = Integer.class)
-public class IntegerLayer implements CommonBasedLayer<Integer, Integer> {
+public class IntegerLayer implements IntBasedLayer {
+
     @Override
-    public Integer serialize(Integer object) {
-        return object;
+    public int writeInt(int value) {
+        return value;
     }
 
     @Override
-    public Integer deserialize(Object serialized) {
-        if (!(serialized instanceof Integer integer)) {
-            return null;
-        }
-        return integer;
+    public int readInt(int stored) {
+        return stored;
     }
 
     @Override
@@ -42,6 +40,6 @@ public class IntegerLayer implements CommonBasedLayer<Integer, Integer> {
     @Override
     public Integer deserializeFromString(String string)
     {
-        return Integer.getInteger(string);
+        return Integer.parseInt(string);
     }
 }
@@ -0,0 +1,58 @@
+package com.github.golgolex.anyth.layer.defaults;
+
+/*
+ * Copyright 2024 anyth contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import com.github.golgolex.anyth.annotations.ConvertLayer;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Date;
+
+/**
+ * Stores local date-times as {@link Date} in UTC, the same mapping the driver uses for
+ * {@link LocalDateTime} filter values, so range queries work on native BSON date-times. The
+ * precision is milliseconds. ISO-8601 strings written by older layers are still read.
+ */
+@ConvertLayer(object = LocalDateTime.class)
+public class LocalDateTimeLayer implements CommonBasedLayer<LocalDateTime, Date> {
+
+    @Override
+    public Date serialize(LocalDateTime object) {
+        return Date.from(object.toInstant(ZoneOffset.UTC));
+    }
+
+    @Override
+    public LocalDateTime deserialize(Object serialized) {
+        if (serialized instanceof Date date) {
+            return LocalDateTime.ofInstant(date.toInstant(), ZoneOffset.UTC);
+        }
+        if (serialized instanceof String string) {
+            return LocalDateTime.parse(string);
+        }
+        return null;
+    }
+
+    @Override
+    public String serializeToString(LocalDateTime serialized) {
+        return serialized.toString();
+    }
+
+    @Override
+    public LocalDateTime deserializeFromString(String string) {
+        return LocalDateTime.parse(string);
+    }
+}
@@ -19,19 +19,16 @@ package com.github.golgolex.anyth.layer.defaults;
 import com.github.golgolex.anyth.annotations.ConvertLayer;
 
 @ConvertLayer(object = Long.class)
-public class LongLayer implements CommonBasedLayer<Long, Long> {
+public class LongLayer implements LongBasedLayer {
 
     @Override
-    public Long serialize(Long object) {
-        return object;
+    public long writeLong(long value) {
+        return value;
     }
 
     @Override
-    public Long deserialize(Object serialized) {
-        if (!(serialized instanceof Long l)) {
-            return null;
-        }
-        return l;
+    public long readLong(long stored) {
+        return stored;
     }
 
     @Override
@@ -0,0 +1,548 @@
+package com.github.golgolex.anyth.processor;
+
+/*
+ * Copyright 2024 anyth contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import com.github.golgolex.anyth.annotations.AnythConstructor;
+import com.github.golgolex.anyth.annotations.AnythEntity;
+import com.github.golgolex.anyth.annotations.Compressed;
+import com.github.golgolex.anyth.annotations.Packed;
+import com.github.golgolex.anyth.annotations.Sparse;
+import com.github.golgolex.anyth.annotations.StoredAs;
+import com.github.golgolex.anyth.codec.SparseMode;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.*;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Generates a {@link com.github.golgolex.anyth.codec.GeneratedCodec} for every class annotated
+ * with {@link AnythEntity} and lists them in the codec index read by
+ * {@link com.github.golgolex.anyth.codec.GeneratedCodecs}.
+ * <p>
+ * The processor follows the field rules of {@link com.github.golgolex.anyth.codec.CodecPlan}.
+ * Non-private fields are accessed directly, private fields through a {@code VarHandle} looked up
+ * by name. The {@link Sparse} mode of the class is read at compile time, so the generated codecs
+ * never build a {@code CodecPlan}. Classes the processor can't handle (records, enums, an
+ * {@link AnythConstructor} creator, no accessible no-arg constructor, type variables or wildcards
+ * in field types) get a warning and keep using the runtime codecs.
+ */
+@SupportedAnnotationTypes("com.github.golgolex.anyth.annotations.AnythEntity")
+public class AnythEntityProcessor extends AbstractProcessor {
+
+    static final String INDEX = "META-INF/services/com.github.golgolex.anyth.codec.GeneratedCodec";
+
+    private static final String SUFFIX = "$AnythCodec";
+
+    private final Set<String> codecs = new TreeSet<>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnvironment) {
+        for (Element element : roundEnvironment.getElementsAnnotatedWith(AnythEntity.class)) {
+            if (element.getKind() == ElementKind.RECORD || element.getKind() == ElementKind.ENUM) {
+                this.processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING,
+                        "No codec generated for " + element + ", it is " + (element.getKind() == ElementKind.RECORD ? "a record" : "an enum")
+                                + "; the runtime codec is used instead", element);
+                continue;
+            }
+            if (element.getKind() != ElementKind.CLASS) {
+                this.processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                        "@AnythEntity can only be applied to classes", element);
+                continue;
+            }
+
+            TypeElement type = (TypeElement) element;
+            try {
+                String codec = generate(type);
+                if (codec != null) {
+                    this.codecs.add(codec);
+                }
+            } catch (IOException exception) {
+                this.processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                        "Couldn't write the codec of " + type + ": " + exception.getMessage(), type);
+            }
+        }
+
+        if (roundEnvironment.processingOver() && !this.codecs.isEmpty()) {
+            writeIndex();
+        }
+        return true;
+    }
+
+    private String generate(TypeElement type) throws IOException {
+        String unsupported = unsupported(type);
+        if (unsupported != null) {
+            this.processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING,
+                    "No codec generated for " + type + ", " + unsupported + "; the runtime codec is used instead", type);
+            return null;
+        }
+
+        String packageName = this.processingEnv.getElementUtils().getPackageOf(type).getQualifiedName().toString();
+        String binaryName = this.processingEnv.getElementUtils().getBinaryName(type).toString();
+        String simpleName = (packageName.isEmpty() ? binaryName : binaryName.substring(packageName.length() + 1)) + SUFFIX;
+        String qualifiedName = packageName.isEmpty() ? simpleName : packageName + "." + simpleName;
+
+        List<VariableElement> fields = fields(type);
+        String entity = type.getQualifiedName().toString();
+        Sparse sparse = type.getAnnotation(Sparse.class);
+        // the repository-wide mode is the only one left to the serializer
+        String sparseMode = sparse != null ? "SparseMode." + sparse.value().name() : "serializer.getSparseMode()";
+        String defaults = sparse != null ? Boolean.toString(sparse.value() == SparseMode.DEFAULTS) : sparseMode + " == SparseMode.DEFAULTS";
+
+        StringBuilder source = new StringBuilder();
+        if (!packageName.isEmpty()) {
+            source.append("package ").append(packageName).append(";\n\n");
+        }
+        source.append("import com.github.golgolex.anyth.codec.GeneratedCodec;\n")
+                .append("import com.github.golgolex.anyth.codec.GenericType;\n")
+                .append("import com.github.golgolex.anyth.codec.SparseMode;\n")
+                .append("import com.github.golgolex.anyth.impl.mongodb.DocumentLayerSerializer;\n")
+                .append("import com.github.golgolex.anyth.impl.mongodb.PackedArrays;\n")
+                .append("import com.github.golgolex.anyth.layer.LayerRegistry;\n")
+                .append("import com.google.gson.Gson;\n")
+                .append("import com.google.gson.TypeAdapter;\n")
+                .append("import com.google.gson.reflect.TypeToken;\n")
+                .append("import com.google.gson.stream.JsonReader;\n")
+                .append("import com.google.gson.stream.JsonWriter;\n")
+                .append("import org.bson.Document;\n")
+                .append("import org.bson.types.Binary;\n\n")
+                .append("import java.io.IOException;\n")
+                .append("import java.lang.invoke.MethodHandles;\n")
+                .append("import java.lang.invoke.VarHandle;\n")
+                .append("import java.lang.reflect.Type;\n")
+                .append("import java.util.List;\n")
+                .append("import java.util.Map;\n\n")
+                .append("@javax.annotation.processing.Generated(\"").append(getClass().getName()).append("\")\n")
+                .append("@SuppressWarnings({\"unchecked\", \"rawtypes\"})\n")
+                .append("public final class ").append(simpleName).append(" implements GeneratedCodec<").append(entity).append("> {\n\n");
+
+        for (VariableElement field : fields) {
+            String name = field.getSimpleName().toString();
+            source.append("    private static final Type TYPE_").append(name).append(" = ").append(typeExpression(field.asType())).append(";\n");
+            if (isCollection(field.asType()) || isMap(field.asType())) {
+                source.append("    private static final GenericType GENERIC_").append(name).append(" = GenericType.of(TYPE_").append(name).append(");\n");
+            }
+            if (field.getModifiers().contains(Modifier.PRIVATE)) {
+                source.append("    private static final VarHandle HANDLE_").append(name).append(" = handle(\"").append(name)
+                        .append("\", ").append(erasure(field.asType())).append(".class);\n");
+            }
+        }
+
+        source.append("\n    private static VarHandle handle(String name, Class<?> type) {\n")
+                .append("        try {\n")
+                .append("            return MethodHandles.privateLookupIn(").append(entity).append(".class, MethodHandles.lookup())\n")
+                .append("                    .findVarHandle(").append(entity).append(".class, name, type);\n")
+                .append("        } catch (ReflectiveOperationException exception) {\n")
+                .append("            throw new ExceptionInInitializerError(exception);\n")
+                .append("        }\n")
+                .append("    }\n\n");
+
+        source.append("    @Override\n")
+                .append("    public Class<").append(entity).append("> type() {\n")
+                .append("        return ").append(entity).append(".class;\n")
+                .append("    }\n\n");
+
+        // MongoDB
+        source.append("    @Override\n")
+                .append("    public Document encodeDocument(").append(entity).append(" object, DocumentLayerSerializer serializer, LayerRegistry<?> layerRegistry) {\n")
+                .append("        SparseMode sparseMode = ").append(sparseMode).append(";\n")
+                .append("        Document document = new Document();\n")
+                .append("        Object value;\n");
+        for (VariableElement field : fields) {
+            String primitiveEncoder = primitiveEncoder(field.asType());
+            if (primitiveEncoder != null) {
+                String zero = field.asType().getKind() == TypeKind.BOOLEAN ? "primitive" : "primitive != 0";
+                source.append("        {\n")
+                        .append("            ").append(erasure(field.asType())).append(" primitive = ").append(read(field)).append(";\n")
+                        .append("            if (sparseMode != SparseMode.DEFAULTS || ").append(zero).append(") {\n")
+                        .append("                document.put(").append(storedName(field)).append(", serializer.").append(primitiveEncoder)
+                        .append("(primitive, layerRegistry));\n")
+                        .append("            }\n")
+                        .append("        }\n");
+                continue;
+            }
+            source.append("        value = ").append(read(field)).append(";\n")
+                    .append("        if (!sparseMode.skips(value, ").append(field.asType().getKind().isPrimitive()).append(")) {\n")
+                    .append("            document.put(").append(storedName(field)).append(", value != null ? ").append(encodeExpression(field)).append(" : null);\n")
+                    .append("        }\n");
+        }
+        source.append("        return document;\n")
+                .append("    }\n\n");
+
+        source.append("    @Override\n")
+                .append("    public ").append(entity).append(" decodeDocument(Document document, DocumentLayerSerializer serializer, LayerRegistry<?> layerRegistry) {\n")
+                .append("        ").append(entity).append(" object = new ").append(entity).append("();\n")
+                .append("        boolean defaults = ").append(defaults).append(";\n")
+                .append("        Object value;\n");
+        for (VariableElement field : fields) {
+            TypeMirror fieldType = field.asType();
+            source.append("        value = document.get(").append(storedName(field)).append(");\n");
+            if (fieldType.getKind().isPrimitive()) {
+                String boxed = boxed(fieldType);
+                source.append("        if (value != null) {\n")
+                        .append("            ").append(write(field, "(" + boxed + ") serializer.decodeValue(value, " + boxed + ".class, layerRegistry)")).append(";\n")
+                        .append("        } else if (defaults) {\n")
+                        .append("            ").append(write(field, defaultLiteral(fieldType))).append(";\n")
+                        .append("        }\n");
+            } else {
+                source.append("        ").append(write(field, "value == null ? null : " + decodeExpression(field))).append(";\n");
+            }
+        }
+        source.append("        return object;\n")
+                .append("    }\n\n");
+
+        // Redis
+        source.append("    @Override\n")
+                .append("    public void writeJson(JsonWriter writer, ").append(entity).append(" object, Gson gson) throws IOException {\n");
+        appendPrimitiveAdapters(source, fields, "        ");
+        source.append("        writer.beginObject();\n");
+        for (VariableElement field : fields) {
+            String name = field.getSimpleName().toString();
+            source.append("        writer.name(").append(storedName(field)).append(");\n");
+            if (field.asType().getKind().isPrimitive()) {
+                source.append("        ").append(adapterName(field.asType())).append(".write(writer, ").append(read(field)).append(");\n");
+            } else {
+                source.append("        gson.toJson(").append(read(field)).append(", TYPE_").append(name).append(", writer);\n");
+            }
+        }
+        source.append("        writer.endObject();\n")
+                .append("    }\n\n");
+
+        source.append("    @Override\n")
+                .append("    public ").append(entity).append(" readJson(JsonReader reader, Gson gson) throws IOException {\n")
+                .append("        ").append(entity).append(" object = new ").append(entity).append("();\n");
+        appendPrimitiveAdapters(source, fields, "        ");
+        source.append("        reader.beginObject();\n")
+                .append("        while (reader.hasNext()) {\n")
+                .append("            switch (reader.nextName()) {\n");
+        for (VariableElement field : fields) {
+            String name = field.getSimpleName().toString();
+            TypeMirror fieldType = field.asType();
+            source.append("                case ").append(storedName(field)).append(" -> {\n");
+            if (fieldType.getKind().isPrimitive()) {
+                source.append("                    ").append(boxed(fieldType)).append(" read = ").append(adapterName(fieldType)).append(".read(reader);\n")
+                        .append("                    if (read != null) {\n")
+                        .append("                        ").append(write(field, "read")).append(";\n")
+                        .append("                    }\n");
+            } else {
+                source.append("                    ").append(write(field, "(" + erasure(fieldType) + ") gson.fromJson(reader, TYPE_" + name + ")")).append(";\n");
+            }
+            source.append("                }\n");
+        }
+        source.append("                default -> reader.skipValue();\n")
+                .append("            }\n")
+                .append("        }\n")
+                .append("        reader.endObject();\n")
+                .append("        return object;\n")
+                .append("    }\n")
+                .append("}\n");
+
+        try (Writer writer = this.processingEnv.getFiler().createSourceFile(qualifiedName, type).openWriter()) {
+            writer.write(source.toString());
+        }
+        return qualifiedName;
+    }
+
+    private String unsupported(TypeElement type) {
+        if (type.getModifiers().contains(Modifier.ABSTRACT)) {
+            return "it is abstract";
+        }
+        if (type.getNestingKind().isNested() && !type.getModifiers().contains(Modifier.STATIC)) {
+            return "it is an inner class";
+        }
+        boolean creator = ElementFilter.constructorsIn(type.getEnclosedElements())
+                .stream()
+                .anyMatch(executable -> executable.getAnnotation(AnythConstructor.class) != null);
+        if (creator) {
+            return "it is created through an @AnythConstructor constructor";
+        }
+        boolean constructor = ElementFilter.constructorsIn(type.getEnclosedElements())
+                .stream()
+                .anyMatch(executable -> executable.getParameters().isEmpty() && !executable.getModifiers().contains(Modifier.PRIVATE));
+        if (!constructor) {
+            return "it has no non-private no-arg constructor";
+        }
+        for (VariableElement field : fields(type)) {
+            if (!isSupported(field.asType())) {
+                return "field " + field.getSimpleName() + " has the unsupported type " + field.asType();
+            }
+            if (isCollection(field.asType()) && elementType(field.asType()) == null) {
+                return "the element type of field " + field.getSimpleName() + " isn't a class";
+            }
+        }
+        return null;
+    }
+
+    private boolean isSupported(TypeMirror type) {
+        if (type.getKind().isPrimitive()) {
+            return true;
+        }
+        if (type.getKind() == TypeKind.ARRAY) {
+            return isSupported(((javax.lang.model.type.ArrayType) type).getComponentType());
+        }
+        if (type.getKind() != TypeKind.DECLARED) {
+            return false;
+        }
+        for (TypeMirror argument : ((DeclaredType) type).getTypeArguments()) {
+            if (!isSupported(argument)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private List<VariableElement> fields(TypeElement type) {
+        List<VariableElement> fields = new ArrayList<>();
+        for (VariableElement field : ElementFilter.fieldsIn(type.getEnclosedElements())) {
+            Set<Modifier> modifiers = field.getModifiers();
+            String name = field.getSimpleName().toString();
+            if (modifiers.contains(Modifier.STATIC)
+                    || modifiers.contains(Modifier.TRANSIENT)
+                    || modifiers.contains(Modifier.FINAL)
+                    || name.equals("hash")
+                    || name.equals("hashIsZero")) {
+                continue;
+            }
+            fields.add(field);
+        }
+        return fields;
+    }
+
+    /**
+     * @return The Java default of a primitive type as a literal.
+     */
+    private static String defaultLiteral(TypeMirror type) {
+        return switch (type.getKind()) {
+            case BOOLEAN -> "false";
+            case CHAR -> "'\\0'";
+            case LONG -> "0L";
+            case FLOAT -> "0F";
+            case DOUBLE -> "0D";
+            default -> "0";
+        };
+    }
+
+    /**
+     * @return The stored name of the field as a string literal.
+     */
+    private String storedName(VariableElement field) {
+        StoredAs storedAs = field.getAnnotation(StoredAs.class);
+        String name = storedAs != null ? storedAs.value() : field.getSimpleName().toString();
+        return this.processingEnv.getElementUtils().getConstantExpression(name);
+    }
+
+    private String read(VariableElement field) {
+        String name = field.getSimpleName().toString();
+        if (field.getModifiers().contains(Modifier.PRIVATE)) {
+            return "(" + this.processingEnv.getTypeUtils().erasure(field.asType()) + ") HANDLE_" + name + ".get(object)";
+        }
+        return "object." + name;
+    }
+
+    private String write(VariableElement field, String value) {
+        String name = field.getSimpleName().toString();
+        if (field.getModifiers().contains(Modifier.PRIVATE)) {
+            String type = field.asType().getKind().isPrimitive() ? field.asType().toString() : erasure(field.asType());
+            return "HANDLE_" + name + ".set(object, (" + type + ") (" + value + "))";
+        }
+        return "object." + name + " = " + value;
+    }
+
+    private String encodeExpression(VariableElement field) {
+        TypeMirror type = field.asType();
+        boolean packed = field.getAnnotation(Packed.class) != null;
+        if (primitiveArray(type) != null) {
+            return "PackedArrays.encodeArray(value, " + packed + ")";
+        }
+        if (packed && isCollection(type) && isPackable(elementType(type))) {
+            return "PackedArrays.packList((java.util.Collection<?>) value, " + elementType(type) + ".class)";
+        }
+        Compressed compressed = field.getAnnotation(Compressed.class);
+        String erasure = erasure(type);
+        if (compressed != null && (erasure.equals("java.lang.String") || erasure.equals("byte[]"))) {
+            return "serializer.encodeCompressed(value, " + Math.max(compressed.threshold(), 0) + ")";
+        }
+        return "serializer.encodeValue(value, layerRegistry)";
+    }
+
+    private String decodeExpression(VariableElement field) {
+        TypeMirror type = field.asType();
+        String name = field.getSimpleName().toString();
+        String erasure = erasure(type);
+        String componentType = primitiveArray(type);
+        if (componentType != null) {
+            return "(" + erasure + ") PackedArrays.decodeArray(value, " + componentType + ".class)";
+        }
+        if (isCollection(type) && isPackable(elementType(type))) {
+            return "(" + erasure + ") (value instanceof Binary binary"
+                    + " ? PackedArrays.unpackList(binary, " + elementType(type) + ".class)"
+                    + " : serializer.decodeValue(value, GENERIC_" + name + ", layerRegistry))";
+        }
+        if (isCollection(type) || isMap(type)) {
+            return "(" + erasure + ") serializer.decodeValue(value, GENERIC_" + name + ", layerRegistry)";
+        }
+        return "(" + erasure + ") serializer.decodeValue(value, " + erasure + ".class, layerRegistry)";
+    }
+
+    /**
+     * @return The {@link com.github.golgolex.anyth.impl.mongodb.DocumentLayerSerializer} method
+     * encoding {@code int}, {@code long} and {@code boolean} fields without the generic dispatch,
+     * null for all other types.
+     */
+    private static String primitiveEncoder(TypeMirror type) {
+        return switch (type.getKind()) {
+            case INT -> "encodeInt";
+            case LONG -> "encodeLong";
+            case BOOLEAN -> "encodeBoolean";
+            default -> null;
+        };
+    }
+
+    /**
+     * Declares the Gson adapters of the boxed types of the primitive fields. Primitives are written
+     * and read through them, so a layer registered for the boxed type applies like it does for the
+     * reflective adapters.
+     */
+    private void appendPrimitiveAdapters(StringBuilder source, List<VariableElement> fields, String indent) {
+        Set<String> declared = new HashSet<>();
+        for (VariableElement field : fields) {
+            TypeMirror type = field.asType();
+            if (type.getKind().isPrimitive() && declared.add(adapterName(type))) {
+                source.append(indent).append("TypeAdapter<").append(boxed(type)).append("> ").append(adapterName(type))
+                        .append(" = gson.getAdapter(").append(boxed(type)).append(".class);\n");
+            }
+        }
+    }
+
+    /**
+     * @return The name of the local holding the adapter of a primitive type.
+     */
+    private static String adapterName(TypeMirror type) {
+        return type.getKind().name().toLowerCase(Locale.ROOT) + "Adapter";
+    }
+
+    private String boxed(TypeMirror type) {
+        return this.processingEnv.getTypeUtils().boxedClass((javax.lang.model.type.PrimitiveType) type).getQualifiedName().toString();
+    }
+
+    /**
+     * @return The component type of an {@code int[]}, {@code long[]} or {@code double[]}, null otherwise.
+     */
+    private String primitiveArray(TypeMirror type) {
+        if (type.getKind() != TypeKind.ARRAY) {
+            return null;
+        }
+        TypeKind component = ((javax.lang.model.type.ArrayType) type).getComponentType().getKind();
+        return switch (component) {
+            case INT -> "int";
+            case LONG -> "long";
+            case DOUBLE -> "double";
+            default -> null;
+        };
+    }
+
+    private boolean isPackable(String elementType) {
+        return "java.lang.Integer".equals(elementType)
+                || "java.lang.Long".equals(elementType)
+                || "java.lang.Double".equals(elementType);
+    }
+
+    private String typeExpression(TypeMirror type) {
+        if (type.getKind() == TypeKind.DECLARED && !((DeclaredType) type).getTypeArguments().isEmpty()) {
+            StringBuilder expression = new StringBuilder("TypeToken.getParameterized(").append(erasure(type)).append(".class");
+            for (TypeMirror argument : ((DeclaredType) type).getTypeArguments()) {
+                expression.append(", ").append(typeExpression(argument));
+            }
+            return expression.append(").getType()").toString();
+        }
+        return erasure(type) + ".class";
+    }
+
+    private String erasure(TypeMirror type) {
+        return this.processingEnv.getTypeUtils().erasure(type).toString();
+    }
+
+    private String elementType(TypeMirror type) {
+        if (type instanceof DeclaredType declaredType
+                && declaredType.getTypeArguments().size() == 1
+                && declaredType.getTypeArguments().get(0).getKind() == TypeKind.DECLARED) {
+            return erasure(declaredType.getTypeArguments().get(0));
+        }
+        return null;
+    }
+
+    private boolean isCollection(TypeMirror type) {
+        return isSubtype(type, "java.util.Collection");
+    }
+
+    private boolean isMap(TypeMirror type) {
+        return isSubtype(type, "java.util.Map");
+    }
+
+    private boolean isSubtype(TypeMirror type, String superType) {
+        TypeElement element = this.processingEnv.getElementUtils().getTypeElement(superType);
+        return type.getKind() == TypeKind.DECLARED && this.processingEnv.getTypeUtils().isAssignable(
+                this.processingEnv.getTypeUtils().erasure(type),
+                this.processingEnv.getTypeUtils().erasure(element.asType()));
+    }
+
+    private void writeIndex() {
+        Set<String> entries = new TreeSet<>(this.codecs);
+        try {
+            // keep the codecs of classes that weren't recompiled in an incremental build
+            FileObject existing = this.processingEnv.getFiler().getResource(StandardLocation.CLASS_OUTPUT, "", INDEX);
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(existing.openInputStream(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (!line.isBlank()) {
+                        entries.add(line.trim());
+                    }
+                }
+            }
+        } catch (IOException | IllegalArgumentException ignored) {
+        }
+
+        try {
+            FileObject index = this.processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", INDEX);
+            try (Writer writer = new OutputStreamWriter(index.openOutputStream(), StandardCharsets.UTF_8)) {
+                for (String entry : entries) {
+                    writer.write(entry);
+                    writer.write('\n');
+                }
+            }
+        } catch (IOException exception) {
+            this.processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                    "Couldn't write the codec index: " + exception.getMessage());
+        }
+    }
+}
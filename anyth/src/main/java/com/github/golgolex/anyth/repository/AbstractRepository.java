@@ -22,6 +22,7 @@ import com.github.golgolex.anyth.exception.LayerApplyException;
 import com.github.golgolex.anyth.exception.LayerNotExistException;
 import com.github.golgolex.anyth.layer.AbstractLayerSerializer;
 import com.github.golgolex.anyth.layer.LayerBase;
+import com.github.golgolex.anyth.layer.LayerRegistry;
 import com.github.golgolex.anyth.layer.defaults.*;
 import lombok.Getter;
 import lombok.NonNull;
@@ -30,7 +31,6 @@ import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.util.Collection;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 
 @Getter
 public abstract class AbstractRepository<TLayer extends LayerBase<?, ?>,
@@ -40,9 +40,7 @@ public abstract class AbstractRepository<TLayer extends LayerBase<?, ?>,
 
     private final String repositoryName;
 
-    private final Map<Class<?>, TLayer> layers = new ConcurrentHashMap<>(0);
-
-    private final Map<Class<?>, CommonBasedLayer<?, ?>> commonLayer = new ConcurrentHashMap<>(0);
+    private final LayerRegistry<TLayer> layerRegistry = new LayerRegistry<>();
 
     private final TLayerSerializer layerSerializer;
 
@@ -57,6 +55,28 @@ public abstract class AbstractRepository<TLayer extends LayerBase<?, ?>,
         this.applyCommonLayer(StringLayer.class);
         this.applyCommonLayer(LongLayer.class);
         this.applyCommonLayer(UUIDLayer.class);
+        this.applyCommonLayer(InstantLayer.class);
+        this.applyCommonLayer(LocalDateTimeLayer.class);
+        this.applyCommonLayer(DateLayer.class);
+        this.applyCommonLayer(EnumLayer.class);
+    }
+
+    /**
+     * Returns the registered layers keyed by the class they convert.
+     *
+     * @return An unmodifiable view of the registered layers.
+     */
+    public Map<Class<?>, TLayer> getLayers() {
+        return this.layerRegistry.getLayers();
+    }
+
+    /**
+     * Returns the registered common layers keyed by the class they convert.
+     *
+     * @return An unmodifiable view of the registered common layers.
+     */
+    public Map<Class<?>, CommonBasedLayer<?, ?>> getCommonLayer() {
+        return this.layerRegistry.getCommonLayers();
     }
 
     /**
@@ -89,12 +109,12 @@ public abstract class AbstractRepository<TLayer extends LayerBase<?, ?>,
                 TLayer constructedLayer = (TLayer) constructor.newInstance();
 
                 // Check if a layer for the specified object class already exists
-                if (layers.containsKey(objectClass)) {
+                if (layerRegistry.containsLayer(objectClass)) {
                     throw new LayerAlreadyExistException("A layer serializer for class [" + objectClass.getSimpleName() + "] already exists.");
                 }
 
                 // Add the newly created layer to the layers map
-                this.layers.put(objectClass, constructedLayer);
+                this.layerRegistry.putLayer(objectClass, constructedLayer);
             } catch (InvocationTargetException | NoSuchMethodException | InstantiationException |
                      IllegalAccessException exception) {
                 // Throw an exception if there is an issue with applying the layer
@@ -133,12 +153,12 @@ public abstract class AbstractRepository<TLayer extends LayerBase<?, ?>,
                 CommonBasedLayer<?, ?> constructedLayer = (CommonBasedLayer<?, ?>) constructor.newInstance();
 
                 // Check if a FromToLayer for the specified object class already exists
-                if (commonLayer.containsKey(objectClass)) {
+                if (layerRegistry.containsCommonLayer(objectClass)) {
                     throw new LayerAlreadyExistException("A layer serializer for class [" + objectClass.getSimpleName() + "] already exists.");
                 }
 
                 // Add the newly created FromToLayer to the fromToLayers map
-                this.commonLayer.put(objectClass, constructedLayer);
+                this.layerRegistry.putCommonLayer(objectClass, constructedLayer);
             } catch (InvocationTargetException | NoSuchMethodException | InstantiationException |
                      IllegalAccessException exception) {
                 // Throw an exception if there is an issue with applying the FromToLayer
@@ -159,15 +179,11 @@ public abstract class AbstractRepository<TLayer extends LayerBase<?, ?>,
      * @throws LayerNotExistException If a layer or FromToLayer for the specified object class couldn't be found.
      */
     public void removeLayer(@NonNull Class<?> objectClass) {
-        // Check if a layer or FromToLayer exists for the specified object class
-        if (!layers.containsKey(objectClass) && !commonLayer.containsKey(objectClass)) {
+        // Remove the layer and FromToLayer, this also drops the cached type lookups
+        if (!layerRegistry.remove(objectClass)) {
             // Throw an exception if a layer or FromToLayer couldn't be found
             throw new LayerNotExistException("A layer serializer for class [" + objectClass.getSimpleName() + "] couldn't be found");
         }
-
-        // Remove the layer and FromToLayer from their respective maps
-        layers.remove(objectClass);
-        commonLayer.remove(objectClass);
     }
 
     /**
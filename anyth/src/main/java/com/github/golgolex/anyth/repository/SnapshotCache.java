@@ -0,0 +1,90 @@
+package com.github.golgolex.anyth.repository;
+
+/*
+ * Copyright 2024 anyth contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import lombok.Getter;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The change tracking snapshots of a repository, keyed by the filter or key of the tracked object.
+ * <p>
+ * At most {@link #getMaxSize()} snapshots are kept. Adding one beyond that evicts the snapshot
+ * used least recently, so an evicted object is written in full by its next update instead of
+ * every object ever read staying in memory.
+ *
+ * @param <K> The key of a snapshot.
+ * @param <V> The snapshot.
+ */
+public final class SnapshotCache<K, V> {
+
+    /**
+     * The number of snapshots a repository keeps by default.
+     */
+    public static final int DEFAULT_MAX_SIZE = 10_000;
+
+    @Getter
+    private volatile int maxSize = DEFAULT_MAX_SIZE;
+
+    private final LinkedHashMap<K, V> snapshots = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+            return size() > SnapshotCache.this.maxSize;
+        }
+    };
+
+    /**
+     * Sets the number of snapshots kept, evicting the least recently used ones beyond it.
+     *
+     * @param maxSize The maximum number of snapshots, 0 to keep none.
+     */
+    public synchronized void setMaxSize(int maxSize) {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("maxSize must not be negative: " + maxSize);
+        }
+        this.maxSize = maxSize;
+        Iterator<Map.Entry<K, V>> iterator = this.snapshots.entrySet().iterator();
+        while (this.snapshots.size() > maxSize && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+
+    public synchronized V get(K key) {
+        return this.snapshots.get(key);
+    }
+
+    public synchronized void put(K key, V snapshot) {
+        if (this.maxSize > 0) {
+            this.snapshots.put(key, snapshot);
+        }
+    }
+
+    public synchronized void remove(K key) {
+        this.snapshots.remove(key);
+    }
+
+    public synchronized void clear() {
+        this.snapshots.clear();
+    }
+
+    public synchronized int size() {
+        return this.snapshots.size();
+    }
+}
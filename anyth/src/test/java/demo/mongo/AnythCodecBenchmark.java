@@ -0,0 +1,106 @@
+package demo.mongo;
+
+/*
+ * Copyright 2024 anyth contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import com.github.golgolex.anyth.impl.mongodb.AnythCodec;
+import com.github.golgolex.anyth.impl.mongodb.DocumentLayerSerializer;
+import com.github.golgolex.anyth.impl.mongodb.MongoLayerBase;
+import com.github.golgolex.anyth.layer.LayerRegistry;
+import com.github.golgolex.anyth.layer.defaults.*;
+import com.mongodb.MongoClientSettings;
+import org.bson.BsonBinaryReader;
+import org.bson.BsonBinaryWriter;
+import org.bson.Document;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.io.BasicOutputBuffer;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * Compares writing and reading BSON through {@link AnythCodec} with the {@link Document} round
+ * trip of {@link DocumentLayerSerializer} plus the driver's document codec. No database
+ * connection is required.
+ */
+public class AnythCodecBenchmark {
+
+    private static final int WARMUP = 20_000;
+    private static final int ITERATIONS = 200_000;
+
+    public static void main(String[] args) {
+        DocumentLayerSerializer serializer = new DocumentLayerSerializer();
+        LayerRegistry<MongoLayerBase<Object>> layerRegistry = LayerRegistry.of(List.of(), List.of(new BooleanLayer(),
+                new CharLayer(),
+                new IntegerLayer(),
+                new StringLayer(),
+                new LongLayer(),
+                new UUIDLayer()));
+        AnythCodec<MongoTestClass> codec = new AnythCodec<>(MongoTestClass.class, serializer, layerRegistry,
+                MongoClientSettings.getDefaultCodecRegistry());
+        Codec<Document> documentCodec = MongoClientSettings.getDefaultCodecRegistry().get(Document.class);
+
+        MongoTestClass mongoTestClass = new MongoTestClass(new MongoTestClass(new MongoTestClass()));
+        byte[] bytes = write(codec, mongoTestClass);
+
+        for (int i = 0; i < WARMUP; i++) {
+            write(codec, mongoTestClass);
+            write(documentCodec, serializer.encode(mongoTestClass, layerRegistry));
+            read(codec, bytes);
+            serializer.decode(read(documentCodec, bytes), layerRegistry, MongoTestClass.class);
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            write(codec, mongoTestClass);
+        }
+        print("codec encode", start);
+
+        start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            write(documentCodec, serializer.encode(mongoTestClass, layerRegistry));
+        }
+        print("document encode", start);
+
+        start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            read(codec, bytes);
+        }
+        print("codec decode", start);
+
+        start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            serializer.decode(read(documentCodec, bytes), layerRegistry, MongoTestClass.class);
+        }
+        print("document decode", start);
+    }
+
+    private static <T> byte[] write(Codec<T> codec, T value) {
+        BasicOutputBuffer buffer = new BasicOutputBuffer();
+        codec.encode(new BsonBinaryWriter(buffer), value, EncoderContext.builder().build());
+        return buffer.toByteArray();
+    }
+
+    private static <T> T read(Codec<T> codec, byte[] bytes) {
+        return codec.decode(new BsonBinaryReader(ByteBuffer.wrap(bytes)), DecoderContext.builder().build());
+    }
+
+    private static void print(String name, long start) {
+        System.out.printf("%s: %.1f ns/document%n", name, (double) (System.nanoTime() - start) / ITERATIONS);
+    }
+}
@@ -0,0 +1,161 @@
+package demo.mongo;
+
+/*
+ * Copyright 2024 anyth contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import com.github.golgolex.anyth.annotations.ConvertLayer;
+import com.github.golgolex.anyth.codec.CodecMode;
+import com.github.golgolex.anyth.impl.mongodb.AnythCodec;
+import com.github.golgolex.anyth.impl.mongodb.DocumentLayerSerializer;
+import com.github.golgolex.anyth.impl.mongodb.MongoLayerBase;
+import com.github.golgolex.anyth.layer.LayerRegistry;
+import com.github.golgolex.anyth.layer.defaults.*;
+import com.mongodb.MongoClientSettings;
+import org.bson.BsonBinaryReader;
+import org.bson.BsonBinaryWriter;
+import org.bson.Document;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.io.BasicOutputBuffer;
+
+import java.nio.ByteBuffer;
+import java.util.*;
+
+/**
+ * Round-trips fields declared as different collection and map types and checks that every field
+ * gets a container of its declared type, once per {@link CodecMode} and once through
+ * {@link AnythCodec}. Maps with UUID keys are stored as sub-documents, maps with object keys as
+ * key/value lists. No database connection is required.
+ */
+public class CollectionTypesDemo {
+
+    public static void main(String[] args) {
+        DocumentLayerSerializer serializer = new DocumentLayerSerializer();
+        LayerRegistry<MongoLayerBase<Object>> layerRegistry = LayerRegistry.of(List.of(), List.of(new IntegerLayer(),
+                new LongLayer(),
+                new StringLayer(),
+                new UUIDLayer(),
+                new ColorLayer()));
+
+        Palette palette = new Palette();
+        palette.tags.addAll(List.of("warm", "cold", "neutral"));
+        palette.queue.addAll(List.of(3, 1, 2));
+        palette.colors.addAll(List.of(Color.BLUE, Color.RED));
+        palette.sorted.addAll(List.of(30L, 10L, 20L));
+        palette.grid.add(List.of(UUID.randomUUID(), UUID.randomUUID()));
+        palette.grid.add(List.of(UUID.randomUUID()));
+        palette.members.put(UUID.randomUUID(), List.of("alice", "bob"));
+        palette.members.put(UUID.randomUUID(), List.of());
+        palette.cells.put(new Cell(0, 1), Color.GREEN);
+        palette.cells.put(new Cell(2, 3), Color.RED);
+
+        Document document = serializer.encode(palette, layerRegistry);
+        System.out.println("document: " + document.toJson());
+
+        for (CodecMode codecMode : CodecMode.values()) {
+            serializer.setCodecMode(codecMode);
+            print(codecMode.name(), (Palette) serializer.decode(document, layerRegistry, Palette.class), palette);
+        }
+
+        AnythCodec<Palette> codec = new AnythCodec<>(Palette.class, serializer, layerRegistry,
+                MongoClientSettings.getDefaultCodecRegistry());
+        BasicOutputBuffer buffer = new BasicOutputBuffer();
+        codec.encode(new BsonBinaryWriter(buffer), palette, EncoderContext.builder().build());
+        Palette streamed = codec.decode(new BsonBinaryReader(ByteBuffer.wrap(buffer.toByteArray())), DecoderContext.builder().build());
+        print("CODEC", streamed, palette);
+    }
+
+    private static void print(String name, Palette decoded, Palette expected) {
+        System.out.println(name + ": "
+                + decoded.tags.getClass().getSimpleName() + " " + decoded.tags.equals(expected.tags) + ", "
+                + decoded.queue.getClass().getSimpleName() + " " + decoded.queue.equals(expected.queue) + ", "
+                + decoded.colors.getClass().getSimpleName() + " " + decoded.colors.equals(expected.colors) + ", "
+                + decoded.sorted.getClass().getSimpleName() + " " + decoded.sorted.equals(expected.sorted) + ", "
+                + "grid " + decoded.grid.equals(expected.grid) + ", "
+                + decoded.members.getClass().getSimpleName() + " " + decoded.members.equals(expected.members) + ", "
+                + decoded.cells.getClass().getSimpleName() + " " + decoded.cells.equals(expected.cells));
+    }
+
+    public enum Color {
+        RED,
+        GREEN,
+        BLUE
+    }
+
+    @ConvertLayer(object = Color.class)
+    public static class ColorLayer implements CommonBasedLayer<Color, String> {
+
+        @Override
+        public String serialize(Color object) {
+            return object.name();
+        }
+
+        @Override
+        public Color deserialize(Object serialized) {
+            return serialized instanceof String s ? Color.valueOf(s) : null;
+        }
+
+        @Override
+        public String serializeToString(Color serialized) {
+            return serialized.name();
+        }
+
+        @Override
+        public Color deserializeFromString(String string) {
+            return Color.valueOf(string);
+        }
+    }
+
+    public static class Palette {
+
+        private Set<String> tags = new LinkedHashSet<>();
+        private LinkedList<Integer> queue = new LinkedList<>();
+        private EnumSet<Color> colors = EnumSet.noneOf(Color.class);
+        private SortedSet<Long> sorted = new TreeSet<>();
+        private List<List<UUID>> grid = new ArrayList<>();
+        private Map<UUID, List<String>> members = new HashMap<>();
+        private TreeMap<Cell, Color> cells = new TreeMap<>();
+    }
+
+    public static class Cell implements Comparable<Cell> {
+
+        private int x;
+        private int y;
+
+        public Cell() {
+        }
+
+        public Cell(int x, int y) {
+            this.x = x;
+            this.y = y;
+        }
+
+        @Override
+        public int compareTo(Cell other) {
+            return this.x != other.x ? Integer.compare(this.x, other.x) : Integer.compare(this.y, other.y);
+        }
+
+        @Override
+        public boolean equals(Object object) {
+            return object instanceof Cell cell && this.x == cell.x && this.y == cell.y;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * this.x + this.y;
+        }
+    }
+}
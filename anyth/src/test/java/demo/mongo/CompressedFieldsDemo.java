@@ -0,0 +1,160 @@
+package demo.mongo;
+
+/*
+ * Copyright 2024 anyth contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import com.github.golgolex.anyth.annotations.AnythEntity;
+import com.github.golgolex.anyth.annotations.Compressed;
+import com.github.golgolex.anyth.codec.CodecMode;
+import com.github.golgolex.anyth.impl.mongodb.AnythCodec;
+import com.github.golgolex.anyth.impl.mongodb.DocumentLayerSerializer;
+import com.github.golgolex.anyth.impl.mongodb.MongoLayerBase;
+import com.github.golgolex.anyth.layer.LayerRegistry;
+import com.github.golgolex.anyth.layer.defaults.StringLayer;
+import com.mongodb.MongoClientSettings;
+import org.bson.BsonBinaryReader;
+import org.bson.BsonBinaryWriter;
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.io.BasicOutputBuffer;
+import org.bson.types.Binary;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Compares the stored size of large String and byte[] fields with and without {@link Compressed},
+ * checks that compressed documents round-trip through {@link DocumentLayerSerializer} in every
+ * {@link CodecMode} and through {@link AnythCodec}, and that they are still read once the
+ * annotation is removed. Prints the compression metrics. No database connection is required.
+ */
+public class CompressedFieldsDemo {
+
+    public static void main(String[] args) {
+        DocumentLayerSerializer serializer = new DocumentLayerSerializer();
+        LayerRegistry<MongoLayerBase<Object>> layerRegistry = LayerRegistry.of(List.of(), List.of(new StringLayer()));
+        Codec<Document> documentCodec = MongoClientSettings.getDefaultCodecRegistry().get(Document.class);
+
+        Report report = new Report();
+        Document document = serializer.encode(report, layerRegistry);
+        Document plainDocument = new Document(document)
+                .append("body", report.body)
+                .append("attachment", new Binary(report.attachment));
+        System.out.printf("plain:      %d bytes%n", size(documentCodec, plainDocument));
+        System.out.printf("compressed: %d bytes%n", size(documentCodec, document));
+
+        for (CodecMode codecMode : CodecMode.values()) {
+            serializer.setCodecMode(codecMode);
+            Report decoded = (Report) serializer.decode(serializer.encode(report, layerRegistry), layerRegistry, Report.class);
+            System.out.println(codecMode + " round trip: " + report.equals(decoded));
+        }
+        serializer.setCodecMode(CodecMode.REFLECTIVE);
+
+        GeneratedReport generatedReport = new GeneratedReport();
+        Document generatedDocument = serializer.encode(generatedReport, layerRegistry);
+        System.out.println("generated compressed: " + (generatedDocument.get("body") instanceof Binary));
+        System.out.println("generated round trip: "
+                + generatedReport.body.equals(((GeneratedReport) serializer.decode(generatedDocument, layerRegistry, GeneratedReport.class)).body));
+
+        AnythCodec<Report> codec = new AnythCodec<>(Report.class, serializer, layerRegistry,
+                MongoClientSettings.getDefaultCodecRegistry());
+        BasicOutputBuffer buffer = new BasicOutputBuffer();
+        codec.encode(new BsonBinaryWriter(buffer), report, EncoderContext.builder().build());
+        Report streamed = codec.decode(new BsonBinaryReader(ByteBuffer.wrap(buffer.toByteArray())), DecoderContext.builder().build());
+        System.out.println("codec round trip: " + report.equals(streamed));
+
+        PlainReport unannotated = (PlainReport) serializer.decode(document, layerRegistry, PlainReport.class);
+        System.out.println("read without annotation: " + report.equals(new Report(unannotated)));
+        System.out.println("metrics: " + serializer.getCompressor().getMetrics());
+    }
+
+    private static int size(Codec<Document> documentCodec, Document document) {
+        return new RawBsonDocument(document, documentCodec).getByteBuffer().remaining();
+    }
+
+    private static String text(int lines) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < lines; i++) {
+            builder.append("2024-05-01T12:").append(i % 60).append(" INFO order ").append(i)
+                    .append(" shipped to warehouse ").append(i % 7).append('\n');
+        }
+        return builder.toString();
+    }
+
+    public static class Report {
+
+        String title = "nightly";
+
+        @Compressed
+        String body = text(2_000);
+
+        @Compressed(threshold = 4096)
+        String summary = "short enough to stay a string";
+
+        @Compressed
+        byte[] attachment = text(1_000).getBytes();
+
+        public Report() {
+        }
+
+        Report(PlainReport plain) {
+            this.title = plain.title;
+            this.body = plain.body;
+            this.summary = plain.summary;
+            this.attachment = plain.attachment;
+        }
+
+        @Override
+        public boolean equals(Object object) {
+            return object instanceof Report other
+                    && this.title.equals(other.title)
+                    && this.body.equals(other.body)
+                    && this.summary.equals(other.summary)
+                    && Arrays.equals(this.attachment, other.attachment);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(this.title);
+        }
+    }
+
+    public static class PlainReport {
+
+        String title;
+
+        String body;
+
+        String summary;
+
+        byte[] attachment;
+
+        public PlainReport() {
+        }
+    }
+
+    @AnythEntity
+    public static class GeneratedReport {
+
+        @Compressed
+        String body = text(500);
+    }
+}
@@ -0,0 +1,79 @@
+package demo.mongo;
+
+/*
+ * Copyright 2024 anyth contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import com.github.golgolex.anyth.codec.CodecMode;
+import com.github.golgolex.anyth.impl.mongodb.DocumentLayerSerializer;
+import com.github.golgolex.anyth.impl.mongodb.MongoLayerBase;
+import com.github.golgolex.anyth.layer.LayerRegistry;
+import com.github.golgolex.anyth.layer.defaults.*;
+import org.bson.Document;
+
+import java.util.List;
+
+/**
+ * Measures the per-document encode/decode time of {@link DocumentLayerSerializer}
+ * on {@link MongoTestClass}, once per {@link CodecMode}. No database connection is required.
+ */
+public class DocumentLayerSerializerBenchmark {
+
+    private static final int WARMUP = 20_000;
+    private static final int ITERATIONS = 200_000;
+
+    public static void main(String[] args) {
+        DocumentLayerSerializer serializer = new DocumentLayerSerializer();
+        LayerRegistry<MongoLayerBase<Object>> layerRegistry = LayerRegistry.of(List.of(), List.of(new BooleanLayer(),
+                new CharLayer(),
+                new IntegerLayer(),
+                new StringLayer(),
+                new LongLayer(),
+                new UUIDLayer()));
+
+        for (CodecMode codecMode : CodecMode.values()) {
+            serializer.setCodecMode(codecMode);
+            run(codecMode + " flat", new MongoTestClass(), serializer, layerRegistry);
+            run(codecMode + " nested", new MongoTestClass(new MongoTestClass(new MongoTestClass())), serializer, layerRegistry);
+        }
+    }
+
+    private static void run(String name,
+                            MongoTestClass mongoTestClass,
+                            DocumentLayerSerializer serializer,
+                            LayerRegistry<MongoLayerBase<Object>> layerRegistry) {
+        Document document = serializer.encode(mongoTestClass, layerRegistry);
+
+        for (int i = 0; i < WARMUP; i++) {
+            serializer.encode(mongoTestClass, layerRegistry);
+            serializer.decode(document, layerRegistry, MongoTestClass.class);
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            serializer.encode(mongoTestClass, layerRegistry);
+        }
+        long encodeNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            serializer.decode(document, layerRegistry, MongoTestClass.class);
+        }
+        long decodeNanos = System.nanoTime() - start;
+
+        System.out.printf("%s encode: %.1f ns/document%n", name, (double) encodeNanos / ITERATIONS);
+        System.out.printf("%s decode: %.1f ns/document%n", name, (double) decodeNanos / ITERATIONS);
+    }
+}
@@ -0,0 +1,137 @@
+package demo.mongo;
+
+/*
+ * Copyright 2024 anyth contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import com.github.golgolex.anyth.annotations.AnythEntity;
+import com.github.golgolex.anyth.annotations.StoredAs;
+import com.github.golgolex.anyth.codec.CodecMode;
+import com.github.golgolex.anyth.codec.CodecPlan;
+import com.github.golgolex.anyth.codec.FieldPlan;
+import com.github.golgolex.anyth.impl.mongodb.AnythCodec;
+import com.github.golgolex.anyth.impl.mongodb.DocumentLayerSerializer;
+import com.github.golgolex.anyth.impl.mongodb.MongoLayerBase;
+import com.github.golgolex.anyth.impl.redis.GsonRedisLayerSerializer;
+import com.github.golgolex.anyth.layer.LayerRegistry;
+import com.github.golgolex.anyth.layer.defaults.*;
+import com.mongodb.MongoClientSettings;
+import org.bson.BsonBinaryReader;
+import org.bson.BsonBinaryWriter;
+import org.bson.Document;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.io.BasicOutputBuffer;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * Reports how many bytes per document the {@link StoredAs} aliases of {@link Profile} save and
+ * checks that aliased documents round-trip once per {@link CodecMode}, through
+ * {@link AnythCodec} and through the Redis serializer. No database connection is required.
+ */
+public class FieldAliasReport {
+
+    public static void main(String[] args) {
+        DocumentLayerSerializer serializer = new DocumentLayerSerializer();
+        LayerRegistry<MongoLayerBase<Object>> layerRegistry = LayerRegistry.of(List.of(), List.of(new IntegerLayer(),
+                new LongLayer(),
+                new StringLayer(),
+                new UUIDLayer()));
+
+        Profile profile = new Profile();
+        profile.displayName = "golgolex";
+        profile.experience = 48_213;
+        profile.lastLogin = System.currentTimeMillis();
+        profile.friends.add(UUID.randomUUID());
+        profile.friends.add(UUID.randomUUID());
+
+        Document document = serializer.encode(profile, layerRegistry);
+        System.out.println("document: " + document.toJson());
+
+        for (CodecMode codecMode : CodecMode.values()) {
+            serializer.setCodecMode(codecMode);
+            System.out.println(codecMode + ": " + profile.equals(serializer.decode(document, layerRegistry, Profile.class)));
+        }
+
+        AnythCodec<Profile> codec = new AnythCodec<>(Profile.class, serializer, layerRegistry,
+                MongoClientSettings.getDefaultCodecRegistry());
+        BasicOutputBuffer buffer = new BasicOutputBuffer();
+        codec.encode(new BsonBinaryWriter(buffer), profile, EncoderContext.builder().build());
+        Profile streamed = codec.decode(new BsonBinaryReader(ByteBuffer.wrap(buffer.toByteArray())), DecoderContext.builder().build());
+        System.out.println("CODEC: " + profile.equals(streamed));
+
+        GsonRedisLayerSerializer redisSerializer = new GsonRedisLayerSerializer();
+        String json = redisSerializer.encode(profile, List.of(), List.of());
+        System.out.println("redis value: " + json);
+        System.out.println("REDIS: " + profile.equals(redisSerializer.decode(json, List.of(), Profile.class, List.of())));
+
+        int saved = 0;
+        for (FieldPlan field : CodecPlan.of(Profile.class).getFields()) {
+            int difference = utf8(field.getField().getName()) - utf8(field.getName());
+            if (difference != 0) {
+                System.out.println("  " + field.getField().getName() + " -> " + field.getName() + ": " + difference + " bytes");
+                saved += difference;
+            }
+        }
+        int size = buffer.getSize();
+        System.out.printf("document size: %d -> %d bytes, %d bytes (%.0f%%) saved per document%n",
+                size + saved, size, saved, 100.0 * saved / (size + saved));
+        System.out.println("projection of displayName: " + CodecPlan.of(Profile.class).getStoredName("displayName"));
+    }
+
+    private static int utf8(String name) {
+        return name.getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    @AnythEntity
+    public static class Profile {
+
+        @StoredAs("u")
+        private UUID uniqueId = UUID.randomUUID();
+
+        @StoredAs("n")
+        private String displayName;
+
+        @StoredAs("xp")
+        private int experience;
+
+        @StoredAs("ll")
+        private long lastLogin;
+
+        @StoredAs("f")
+        private List<UUID> friends = new ArrayList<>();
+
+        @Override
+        public boolean equals(Object object) {
+            return object instanceof Profile other
+                    && this.uniqueId.equals(other.uniqueId)
+                    && Objects.equals(this.displayName, other.displayName)
+                    && this.experience == other.experience
+                    && this.lastLogin == other.lastLogin
+                    && this.friends.equals(other.friends);
+        }
+
+        @Override
+        public int hashCode() {
+            return this.uniqueId.hashCode();
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package demo.mongo;
+
+/*
+ * Copyright 2024 anyth contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import com.github.golgolex.anyth.annotations.AnythConstructor;
+import com.github.golgolex.anyth.impl.mongodb.AnythCodec;
+import com.github.golgolex.anyth.impl.mongodb.DocumentLayerSerializer;
+import com.github.golgolex.anyth.impl.mongodb.LazyEntityView;
+import com.github.golgolex.anyth.impl.mongodb.MongoLayerBase;
+import com.github.golgolex.anyth.layer.LayerRegistry;
+import com.github.golgolex.anyth.layer.defaults.*;
+import com.mongodb.MongoClientSettings;
+import org.bson.BsonBinaryReader;
+import org.bson.BsonBinaryWriter;
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.io.BasicOutputBuffer;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Round-trips a record and a class with an {@link AnythConstructor} through
+ * {@link DocumentLayerSerializer}, {@link AnythCodec} and {@link LazyEntityView}.
+ * No database connection is required.
+ */
+public class ImmutableEntityDemo {
+
+    public static void main(String[] args) {
+        DocumentLayerSerializer serializer = new DocumentLayerSerializer();
+        LayerRegistry<MongoLayerBase<Object>> layerRegistry = LayerRegistry.of(List.of(), List.of(new IntegerLayer(),
+                new LongLayer(),
+                new StringLayer(),
+                new UUIDLayer()));
+
+        Account account = new Account(UUID.randomUUID(), "Pascal", 42L, List.of("admin", "user"));
+        Document document = serializer.encode(account, layerRegistry);
+        System.out.println("document: " + document.toJson());
+        System.out.println("document round trip: " + account.equals(serializer.decode(document, layerRegistry, Account.class)));
+
+        AnythCodec<Account> codec = new AnythCodec<>(Account.class, serializer, layerRegistry,
+                MongoClientSettings.getDefaultCodecRegistry());
+        BasicOutputBuffer buffer = new BasicOutputBuffer();
+        codec.encode(new BsonBinaryWriter(buffer), account, EncoderContext.builder().build());
+        Account streamed = codec.decode(new BsonBinaryReader(ByteBuffer.wrap(buffer.toByteArray())), DecoderContext.builder().build());
+        System.out.println("codec round trip: " + account.equals(streamed));
+
+        LazyEntityView<Account> view = new LazyEntityView<>(new RawBsonDocument(buffer.toByteArray()), codec);
+        System.out.println("view: " + view.get("name") + " " + view.getView("balance", Balance.class).get("amount")
+                + " " + account.equals(view.getObject()));
+    }
+
+    public record Account(UUID id, String name, Balance balance, List<String> roles) {
+
+        public Account(UUID id, String name, long amount, List<String> roles) {
+            this(id, name, new Balance("EUR", amount), roles);
+        }
+    }
+
+    public static final class Balance {
+
+        private final String currency;
+
+        private final long amount;
+
+        @AnythConstructor({"currency", "amount"})
+        public Balance(String currency, long amount) {
+            this.currency = currency;
+            this.amount = amount;
+        }
+
+        @Override
+        public boolean equals(Object object) {
+            return object instanceof Balance balance && balance.currency.equals(this.currency) && balance.amount == this.amount;
+        }
+
+        @Override
+        public int hashCode() {
+            return this.currency.hashCode() * 31 + Long.hashCode(this.amount);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package demo.mongo;
+
+/*
+ * Copyright 2024 anyth contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import com.github.golgolex.anyth.impl.mongodb.AnythCodec;
+import com.github.golgolex.anyth.impl.mongodb.DocumentLayerSerializer;
+import com.github.golgolex.anyth.impl.mongodb.LazyEntityView;
+import com.github.golgolex.anyth.impl.mongodb.MongoLayerBase;
+import com.github.golgolex.anyth.layer.LayerRegistry;
+import com.github.golgolex.anyth.layer.defaults.*;
+import com.mongodb.MongoClientSettings;
+import org.bson.BsonBinaryReader;
+import org.bson.BsonBinaryWriter;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.io.BasicOutputBuffer;
+
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * Compares the allocation of fully decoding a stored {@link MongoTestClass} with reading two of
+ * its fields through a {@link LazyEntityView}. No database connection is required.
+ */
+public class LazyEntityViewDemo {
+
+    private static final int ITERATIONS = 50_000;
+
+    public static void main(String[] args) {
+        DocumentLayerSerializer serializer = new DocumentLayerSerializer();
+        LayerRegistry<MongoLayerBase<Object>> layerRegistry = LayerRegistry.of(List.of(), List.of(new BooleanLayer(),
+                new CharLayer(),
+                new IntegerLayer(),
+                new StringLayer(),
+                new LongLayer(),
+                new UUIDLayer()));
+        AnythCodec<MongoTestClass> codec = new AnythCodec<>(MongoTestClass.class, serializer, layerRegistry,
+                MongoClientSettings.getDefaultCodecRegistry());
+
+        BasicOutputBuffer buffer = new BasicOutputBuffer();
+        codec.encode(new BsonBinaryWriter(buffer), new MongoTestClass(new MongoTestClass(new MongoTestClass())),
+                EncoderContext.builder().build());
+        byte[] bytes = buffer.toByteArray();
+
+        LazyEntityView<MongoTestClass> view = new LazyEntityView<>(new RawBsonDocument(bytes), codec);
+        System.out.println("view: " + view.get("test") + " " + view.get("hurensohne") + " "
+                + view.getView("mongoTestClass", MongoTestClass.class).get("uuid"));
+
+        com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        for (int round = 0; round < 2; round++) {
+            long allocated = threadMXBean.getCurrentThreadAllocatedBytes();
+            for (int i = 0; i < ITERATIONS; i++) {
+                MongoTestClass mongoTestClass = codec.decode(new BsonBinaryReader(ByteBuffer.wrap(bytes)), DecoderContext.builder().build());
+                mongoTestClass.getTest();
+                mongoTestClass.getHurensohne();
+            }
+            long full = threadMXBean.getCurrentThreadAllocatedBytes() - allocated;
+
+            allocated = threadMXBean.getCurrentThreadAllocatedBytes();
+            for (int i = 0; i < ITERATIONS; i++) {
+                LazyEntityView<MongoTestClass> lazy = new LazyEntityView<>(new RawBsonDocument(bytes), codec);
+                lazy.get("test");
+                lazy.get("hurensohne");
+            }
+            long lazy = threadMXBean.getCurrentThreadAllocatedBytes() - allocated;
+
+            System.out.printf("full decode: %d bytes/document%n", full / ITERATIONS);
+            System.out.printf("lazy view:   %d bytes/document%n", lazy / ITERATIONS);
+        }
+    }
+}
@@ -70,6 +70,9 @@ public class MongoDemo {
 
         MongoTestClass mongoTestClass = mongoDemo.defaultMongoRepository.query(Filters.eq("testy", "Pascal"), MongoTestClass.class);
 
+        MongoTestClass projected = mongoDemo.defaultMongoRepository.query(Filters.eq("testy", "Pascal"), MongoTestClass.class, List.of("test", "uuid"));
+        System.out.println("projected: " + projected.getTest() + " " + projected.getUuid());
+
         System.out.println(mongoTestClass.getTest());
         System.out.println(mongoTestClass.getHurensohne());
         System.out.println(mongoTestClass.isKey());
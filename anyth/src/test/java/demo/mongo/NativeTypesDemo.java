@@ -0,0 +1,112 @@
+package demo.mongo;
+
+/*
+ * Copyright 2024 anyth contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import com.github.golgolex.anyth.impl.mongodb.AnythCodec;
+import com.github.golgolex.anyth.impl.mongodb.DocumentLayerSerializer;
+import com.github.golgolex.anyth.impl.mongodb.MongoLayerBase;
+import com.github.golgolex.anyth.layer.LayerRegistry;
+import com.github.golgolex.anyth.layer.defaults.*;
+import com.mongodb.MongoClientSettings;
+import com.mongodb.client.model.Filters;
+import org.bson.BsonBinaryReader;
+import org.bson.BsonBinaryWriter;
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.io.BasicOutputBuffer;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+
+/**
+ * Round-trips temporal, decimal and enum fields through the built-in layers and shows that the
+ * filters for range queries on them use the same native BSON types. No database connection is
+ * required.
+ */
+public class NativeTypesDemo {
+
+    public static void main(String[] args) {
+        DocumentLayerSerializer serializer = new DocumentLayerSerializer();
+        Invoice invoice = new Invoice();
+
+        for (CommonBasedLayer<?, ?> enumLayer : List.of(new EnumLayer(), new EnumOrdinalLayer())) {
+            LayerRegistry<MongoLayerBase<Object>> layerRegistry = LayerRegistry.of(List.of(), List.of(new StringLayer(),
+                    new InstantLayer(),
+                    new LocalDateTimeLayer(),
+                    new DateLayer(),
+                    new BigDecimalLayer(),
+                    enumLayer));
+
+            Document document = serializer.encode(invoice, layerRegistry);
+            System.out.println(enumLayer.getClass().getSimpleName() + ": " + document.toJson());
+            System.out.println("document round trip: " + invoice.equals(serializer.decode(document, layerRegistry, Invoice.class)));
+
+            AnythCodec<Invoice> codec = new AnythCodec<>(Invoice.class, serializer, layerRegistry,
+                    MongoClientSettings.getDefaultCodecRegistry());
+            BasicOutputBuffer buffer = new BasicOutputBuffer();
+            codec.encode(new BsonBinaryWriter(buffer), invoice, EncoderContext.builder().build());
+            Invoice streamed = codec.decode(new BsonBinaryReader(ByteBuffer.wrap(buffer.toByteArray())), DecoderContext.builder().build());
+            System.out.println("codec round trip: " + invoice.equals(streamed));
+        }
+
+        System.out.println("range filter: " + Filters.and(
+                        Filters.gte("issued", invoice.issued.minus(1, ChronoUnit.DAYS)),
+                        Filters.lt("total", new BigDecimal("100.00")))
+                .toBsonDocument(BsonDocument.class, MongoClientSettings.getDefaultCodecRegistry())
+                .toJson());
+    }
+
+    public enum Status {
+        DRAFT,
+        SENT,
+        PAID
+    }
+
+    public static class Invoice {
+
+        private Instant issued = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+        private LocalDateTime due = LocalDateTime.now().plusDays(14).truncatedTo(ChronoUnit.MILLIS);
+        private Date created = new Date();
+        private BigDecimal total = new BigDecimal("49.90");
+        private Status status = Status.SENT;
+        private List<Status> history = new ArrayList<>(List.of(Status.DRAFT, Status.SENT));
+        private Map<Status, Instant> changed = new EnumMap<>(Map.of(Status.DRAFT, this.issued, Status.SENT, this.issued));
+
+        @Override
+        public boolean equals(Object object) {
+            return object instanceof Invoice invoice
+                    && this.issued.equals(invoice.issued)
+                    && this.due.equals(invoice.due)
+                    && this.created.equals(invoice.created)
+                    && this.total.equals(invoice.total)
+                    && this.status == invoice.status
+                    && this.history.equals(invoice.history)
+                    && this.changed.equals(invoice.changed);
+        }
+
+        @Override
+        public int hashCode() {
+            return this.issued.hashCode();
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package demo.mongo;
+
+/*
+ * Copyright 2024 anyth contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import com.github.golgolex.anyth.annotations.AnythEntity;
+import com.github.golgolex.anyth.annotations.Packed;
+import com.github.golgolex.anyth.impl.mongodb.AnythCodec;
+import com.github.golgolex.anyth.impl.mongodb.DocumentLayerSerializer;
+import com.github.golgolex.anyth.impl.mongodb.MongoLayerBase;
+import com.github.golgolex.anyth.layer.LayerRegistry;
+import com.github.golgolex.anyth.layer.defaults.IntegerLayer;
+import com.github.golgolex.anyth.layer.defaults.LongLayer;
+import com.mongodb.MongoClientSettings;
+import org.bson.BsonBinaryReader;
+import org.bson.BsonBinaryWriter;
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.io.BasicOutputBuffer;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compares the stored size of numeric arrays with and without {@link Packed} and checks that
+ * both forms round-trip through {@link DocumentLayerSerializer} and {@link AnythCodec}.
+ * No database connection is required.
+ */
+public class PackedArraysDemo {
+
+    private static final int SIZE = 10_000;
+
+    public static void main(String[] args) {
+        DocumentLayerSerializer serializer = new DocumentLayerSerializer();
+        LayerRegistry<MongoLayerBase<Object>> layerRegistry = LayerRegistry.of(List.of(), List.of(new IntegerLayer(), new LongLayer()));
+
+        Series series = new Series();
+        PackedSeries packedSeries = new PackedSeries();
+        for (int i = 0; i < SIZE; i++) {
+            series.values[i] = packedSeries.values[i] = i * 31;
+            series.timestamps[i] = packedSeries.timestamps[i] = 1_700_000_000_000L + i;
+            series.samples[i] = packedSeries.samples[i] = i / 7.0;
+            series.counts.add(i);
+            packedSeries.counts.add(i);
+        }
+
+        Codec<Document> documentCodec = MongoClientSettings.getDefaultCodecRegistry().get(Document.class);
+        Document document = serializer.encode(series, layerRegistry);
+        Document packedDocument = serializer.encode(packedSeries, layerRegistry);
+        System.out.printf("unpacked: %d bytes%n", size(documentCodec, document));
+        System.out.printf("packed:   %d bytes%n", size(documentCodec, packedDocument));
+
+        PackedSeries decoded = (PackedSeries) serializer.decode(packedDocument, layerRegistry, PackedSeries.class);
+        System.out.println("document round trip: " + packedSeries.equalsSeries(decoded));
+
+        AnythCodec<PackedSeries> codec = new AnythCodec<>(PackedSeries.class, serializer, layerRegistry,
+                MongoClientSettings.getDefaultCodecRegistry());
+        BasicOutputBuffer buffer = new BasicOutputBuffer();
+        codec.encode(new BsonBinaryWriter(buffer), packedSeries, EncoderContext.builder().build());
+        PackedSeries streamed = codec.decode(new BsonBinaryReader(ByteBuffer.wrap(buffer.toByteArray())), DecoderContext.builder().build());
+        System.out.println("codec round trip: " + packedSeries.equalsSeries(streamed));
+    }
+
+    private static int size(Codec<Document> documentCodec, Document document) {
+        return new RawBsonDocument(document, documentCodec).getByteBuffer().remaining();
+    }
+
+    public static class Series {
+
+        int[] values = new int[SIZE];
+
+        long[] timestamps = new long[SIZE];
+
+        double[] samples = new double[SIZE];
+
+        List<Integer> counts = new ArrayList<>();
+    }
+
+    @AnythEntity
+    public static class PackedSeries {
+
+        @Packed
+        int[] values = new int[SIZE];
+
+        @Packed
+        long[] timestamps = new long[SIZE];
+
+        @Packed
+        double[] samples = new double[SIZE];
+
+        @Packed
+        List<Integer> counts = new ArrayList<>();
+
+        boolean equalsSeries(PackedSeries other) {
+            return Arrays.equals(this.values, other.values)
+                    && Arrays.equals(this.timestamps, other.timestamps)
+                    && Arrays.equals(this.samples, other.samples)
+                    && this.counts.equals(other.counts);
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package demo.mongo;
+
+/*
+ * Copyright 2024 anyth contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import com.github.golgolex.anyth.annotations.ConvertLayer;
+import com.github.golgolex.anyth.impl.mongodb.AnythCodec;
+import com.github.golgolex.anyth.impl.mongodb.DocumentLayerSerializer;
+import com.github.golgolex.anyth.impl.mongodb.MongoLayerBase;
+import com.github.golgolex.anyth.layer.LayerRegistry;
+import com.github.golgolex.anyth.layer.defaults.*;
+import com.mongodb.MongoClientSettings;
+import org.bson.BsonBinaryReader;
+import org.bson.BsonBinaryWriter;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.io.BasicOutputBuffer;
+
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * Measures the bytes allocated per encode and decode of a class with numeric fields through
+ * {@link AnythCodec}, once with the primitive default layers and once with generic
+ * {@link CommonBasedLayer}s for the same types. No database connection is required.
+ */
+public class PrimitiveLayersDemo {
+
+    private static final int ITERATIONS = 100_000;
+
+    public static void main(String[] args) {
+        run("primitive layers", LayerRegistry.of(List.of(), List.of(new IntegerLayer(),
+                new LongLayer(),
+                new BooleanLayer())));
+        run("generic layers  ", LayerRegistry.of(List.of(), List.of(new GenericIntegerLayer(),
+                new GenericLongLayer(),
+                new BooleanLayer())));
+    }
+
+    private static void run(String name, LayerRegistry<MongoLayerBase<Object>> layerRegistry) {
+        AnythCodec<Counters> codec = new AnythCodec<>(Counters.class, new DocumentLayerSerializer(), layerRegistry,
+                MongoClientSettings.getDefaultCodecRegistry());
+        Counters counters = new Counters();
+        BasicOutputBuffer buffer = new BasicOutputBuffer();
+        codec.encode(new BsonBinaryWriter(buffer), counters, EncoderContext.builder().build());
+        byte[] bytes = buffer.toByteArray();
+
+        Counters decoded = codec.decode(new BsonBinaryReader(ByteBuffer.wrap(bytes)), DecoderContext.builder().build());
+        System.out.println(name + " round trip: " + counters.equals(decoded));
+
+        com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        EncoderContext encoderContext = EncoderContext.builder().build();
+        DecoderContext decoderContext = DecoderContext.builder().build();
+        for (int round = 0; round < 3; round++) {
+            long allocated = threadMXBean.getCurrentThreadAllocatedBytes();
+            for (int i = 0; i < ITERATIONS; i++) {
+                buffer.truncateToPosition(0);
+                codec.encode(new BsonBinaryWriter(buffer), counters, encoderContext);
+            }
+            long encode = threadMXBean.getCurrentThreadAllocatedBytes() - allocated;
+
+            allocated = threadMXBean.getCurrentThreadAllocatedBytes();
+            for (int i = 0; i < ITERATIONS; i++) {
+                codec.decode(new BsonBinaryReader(ByteBuffer.wrap(bytes)), decoderContext);
+            }
+            long decode = threadMXBean.getCurrentThreadAllocatedBytes() - allocated;
+
+            if (round == 2) {
+                System.out.printf("%s encode: %d bytes/document, decode: %d bytes/document%n",
+                        name, encode / ITERATIONS, decode / ITERATIONS);
+            }
+        }
+    }
+
+    public static class Counters {
+
+        private int views = 48_213;
+        private int likes = 9_120;
+        private int shares = 1_337;
+        private long firstSeen = 1_700_000_000_000L;
+        private long lastSeen = 1_700_086_400_000L;
+        private boolean archived = true;
+
+        @Override
+        public boolean equals(Object object) {
+            return object instanceof Counters counters
+                    && this.views == counters.views
+                    && this.likes == counters.likes
+                    && this.shares == counters.shares
+                    && this.firstSeen == counters.firstSeen
+                    && this.lastSeen == counters.lastSeen
+                    && this.archived == counters.archived;
+        }
+
+        @Override
+        public int hashCode() {
+            return this.views;
+        }
+    }
+
+    @ConvertLayer(object = Integer.class)
+    public static class GenericIntegerLayer implements CommonBasedLayer<Integer, Integer> {
+
+        @Override
+        public Integer serialize(Integer object) {
+            return object;
+        }
+
+        @Override
+        public Integer deserialize(Object serialized) {
+            return serialized instanceof Integer integer ? integer : null;
+        }
+
+        @Override
+        public String serializeToString(Integer serialized) {
+            return String.valueOf(serialized);
+        }
+
+        @Override
+        public Integer deserializeFromString(String string) {
+            return Integer.parseInt(string);
+        }
+    }
+
+    @ConvertLayer(object = Long.class)
+    public static class GenericLongLayer implements CommonBasedLayer<Long, Long> {
+
+        @Override
+        public Long serialize(Long object) {
+            return object;
+        }
+
+        @Override
+        public Long deserialize(Object serialized) {
+            return serialized instanceof Long l ? l : null;
+        }
+
+        @Override
+        public String serializeToString(Long serialized) {
+            return String.valueOf(serialized);
+        }
+
+        @Override
+        public Long deserializeFromString(String string) {
+            return Long.parseLong(string);
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package demo.mongo;
+
+/*
+ * Copyright 2024 anyth contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import com.github.golgolex.anyth.annotations.AnythEntity;
+import com.github.golgolex.anyth.annotations.Sparse;
+import com.github.golgolex.anyth.codec.CodecMode;
+import com.github.golgolex.anyth.codec.SparseMode;
+import com.github.golgolex.anyth.impl.mongodb.AnythCodec;
+import com.github.golgolex.anyth.impl.mongodb.DocumentLayerSerializer;
+import com.github.golgolex.anyth.impl.mongodb.MongoLayerBase;
+import com.github.golgolex.anyth.layer.LayerRegistry;
+import com.github.golgolex.anyth.layer.defaults.*;
+import com.mongodb.MongoClientSettings;
+import org.bson.BsonBinaryReader;
+import org.bson.BsonBinaryWriter;
+import org.bson.Document;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.io.BasicOutputBuffer;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Compares the stored size of a mostly empty {@link Settings} object per {@link SparseMode} and
+ * checks that left out fields are restored to their default (not to the value assigned by the
+ * constructor) once per {@link CodecMode}, through {@link AnythCodec} and through the generated
+ * codec of {@link GeneratedSettings}. No database connection is required.
+ */
+public class SparseEncodingDemo {
+
+    public static void main(String[] args) {
+        DocumentLayerSerializer serializer = new DocumentLayerSerializer();
+        LayerRegistry<MongoLayerBase<Object>> layerRegistry = LayerRegistry.of(List.of(), List.of(new BooleanLayer(),
+                new IntegerLayer(),
+                new LongLayer(),
+                new StringLayer()));
+
+        Settings settings = new Settings();
+        settings.theme = null;
+        settings.volume = 0;
+        settings.language = "de";
+
+        for (SparseMode sparseMode : SparseMode.values()) {
+            serializer.setSparseMode(sparseMode);
+            Document document = serializer.encode(settings, layerRegistry);
+            System.out.println(sparseMode + " (" + size(settings, serializer, layerRegistry) + " bytes): " + document.toJson());
+
+            for (CodecMode codecMode : CodecMode.values()) {
+                serializer.setCodecMode(codecMode);
+                System.out.println("  " + codecMode + ": " + settings.equals(serializer.decode(document, layerRegistry, Settings.class)));
+            }
+            AnythCodec<Settings> codec = new AnythCodec<>(Settings.class, serializer, layerRegistry,
+                    MongoClientSettings.getDefaultCodecRegistry());
+            BasicOutputBuffer buffer = new BasicOutputBuffer();
+            codec.encode(new BsonBinaryWriter(buffer), settings, EncoderContext.builder().build());
+            Settings streamed = codec.decode(new BsonBinaryReader(ByteBuffer.wrap(buffer.toByteArray())), DecoderContext.builder().build());
+            System.out.println("  CODEC: " + settings.equals(streamed));
+        }
+
+        serializer.setSparseMode(SparseMode.OFF);
+        GeneratedSettings generated = new GeneratedSettings();
+        generated.volume = 0;
+        generated.theme = null;
+        Document document = serializer.encode(generated, layerRegistry);
+        GeneratedSettings decoded = (GeneratedSettings) serializer.decode(document, layerRegistry, GeneratedSettings.class);
+        System.out.println("@Sparse(DEFAULTS) generated: " + document.toJson() + " "
+                + (decoded.volume == 0 && decoded.theme == null && decoded.muted));
+    }
+
+    private static int size(Settings settings,
+                            DocumentLayerSerializer serializer,
+                            LayerRegistry<MongoLayerBase<Object>> layerRegistry) {
+        AnythCodec<Settings> codec = new AnythCodec<>(Settings.class, serializer, layerRegistry,
+                MongoClientSettings.getDefaultCodecRegistry());
+        BasicOutputBuffer buffer = new BasicOutputBuffer();
+        codec.encode(new BsonBinaryWriter(buffer), settings, EncoderContext.builder().build());
+        return buffer.getSize();
+    }
+
+    public static class Settings {
+
+        private String theme = "dark";
+        private String language;
+        private String timezone;
+        private String signature;
+        private String avatar;
+        private int volume = 50;
+        private int fontSize;
+        private long mutedUntil;
+        private boolean notifications;
+        private boolean compact;
+        private List<String> blocked;
+
+        @Override
+        public boolean equals(Object object) {
+            return object instanceof Settings other
+                    && Objects.equals(this.theme, other.theme)
+                    && Objects.equals(this.language, other.language)
+                    && Objects.equals(this.timezone, other.timezone)
+                    && Objects.equals(this.signature, other.signature)
+                    && Objects.equals(this.avatar, other.avatar)
+                    && this.volume == other.volume
+                    && this.fontSize == other.fontSize
+                    && this.mutedUntil == other.mutedUntil
+                    && this.notifications == other.notifications
+                    && this.compact == other.compact
+                    && Objects.equals(this.blocked, other.blocked);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(this.theme, this.language, this.volume);
+        }
+    }
+
+    @AnythEntity
+    @Sparse(SparseMode.DEFAULTS)
+    public static class GeneratedSettings {
+
+        private String theme = "dark";
+        private int volume = 50;
+        private boolean muted = true;
+    }
+}
@@ -0,0 +1,135 @@
+package demo.mongo;
+
+/*
+ * Copyright 2024 anyth contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import com.github.golgolex.anyth.impl.mongodb.AnythCodec;
+import com.github.golgolex.anyth.impl.mongodb.BinaryUUIDLayer;
+import com.github.golgolex.anyth.impl.mongodb.DocumentLayerSerializer;
+import com.github.golgolex.anyth.impl.mongodb.MongoLayerBase;
+import com.github.golgolex.anyth.impl.redis.CompactUUIDTypeAdapter;
+import com.github.golgolex.anyth.layer.LayerRegistry;
+import com.github.golgolex.anyth.layer.defaults.*;
+import com.mongodb.MongoClientSettings;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.Indexes;
+import org.bson.BsonBinaryWriter;
+import org.bson.Document;
+import org.bson.codecs.EncoderContext;
+import org.bson.io.BasicOutputBuffer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Compares the string and the binary UUID representation on a sample of {@link Reference}s:
+ * the document size is computed locally, the index size is read from {@code collStats} if a
+ * connection string is passed as the first argument, e.g. {@code mongodb://localhost:27017}.
+ * The sample collections are dropped afterwards.
+ */
+public class UUIDStorageReport {
+
+    private static final int DOCUMENTS = 100_000;
+
+    public static void main(String[] args) {
+        DocumentLayerSerializer serializer = new DocumentLayerSerializer();
+        LayerRegistry<MongoLayerBase<Object>> stringLayers = LayerRegistry.of(List.of(), List.of(new StringLayer(), new UUIDLayer()));
+        LayerRegistry<MongoLayerBase<Object>> binaryLayers = LayerRegistry.of(List.of(), List.of(new StringLayer(), new BinaryUUIDLayer()));
+
+        Reference reference = new Reference();
+        Document stringDocument = serializer.encode(reference, stringLayers);
+        Document binaryDocument = serializer.encode(reference, binaryLayers);
+        System.out.println("string: " + stringDocument.toJson());
+        System.out.println("binary: " + binaryDocument.toJson());
+        System.out.println("document size: " + size(reference, serializer, stringLayers) + " -> "
+                + size(reference, serializer, binaryLayers) + " bytes");
+        System.out.println("reads string form: " + reference.equals(serializer.decode(stringDocument, binaryLayers, Reference.class)));
+        System.out.println("reads binary form: " + reference.equals(serializer.decode(binaryDocument, binaryLayers, Reference.class)));
+        System.out.println("redis value: " + reference.id + " -> " + CompactUUIDTypeAdapter.toCompactString(reference.id));
+
+        if (args.length == 0) {
+            System.out.println("pass a connection string to measure the index size");
+            return;
+        }
+
+        try (MongoClient mongoClient = MongoClients.create(args[0])) {
+            MongoDatabase database = mongoClient.getDatabase("anyth_uuid_report");
+            long stringIndex = indexSize(database, "string_uuids", serializer, stringLayers);
+            long binaryIndex = indexSize(database, "binary_uuids", serializer, binaryLayers);
+            System.out.printf("index size for %d documents: %d -> %d bytes (%.0f%%)%n",
+                    DOCUMENTS, stringIndex, binaryIndex, 100.0 * binaryIndex / stringIndex);
+            database.drop();
+        }
+    }
+
+    private static int size(Reference reference,
+                            DocumentLayerSerializer serializer,
+                            LayerRegistry<MongoLayerBase<Object>> layerRegistry) {
+        AnythCodec<Reference> codec = new AnythCodec<>(Reference.class, serializer, layerRegistry,
+                MongoClientSettings.getDefaultCodecRegistry());
+        BasicOutputBuffer buffer = new BasicOutputBuffer();
+        codec.encode(new BsonBinaryWriter(buffer), reference, EncoderContext.builder().build());
+        return buffer.getSize();
+    }
+
+    private static long indexSize(MongoDatabase database,
+                                  String name,
+                                  DocumentLayerSerializer serializer,
+                                  LayerRegistry<MongoLayerBase<Object>> layerRegistry) {
+        MongoCollection<Document> collection = database.getCollection(name);
+        collection.drop();
+        collection.createIndex(Indexes.ascending("id"));
+        collection.createIndex(Indexes.ascending("owner"));
+
+        List<Document> batch = new ArrayList<>();
+        for (int i = 0; i < DOCUMENTS; i++) {
+            batch.add(serializer.encode(new Reference(), layerRegistry));
+            if (batch.size() == 1_000) {
+                collection.insertMany(batch);
+                batch.clear();
+            }
+        }
+
+        Document collStats = database.runCommand(new Document("collStats", name));
+        Document indexSizes = collStats.get("indexSizes", Document.class);
+        System.out.println(name + ": " + indexSizes.toJson());
+        return indexSizes.get("id", Number.class).longValue() + indexSizes.get("owner", Number.class).longValue();
+    }
+
+    public static class Reference {
+
+        private UUID id = UUID.randomUUID();
+        private UUID owner = UUID.randomUUID();
+        private String name = "sample";
+
+        @Override
+        public boolean equals(Object object) {
+            return object instanceof Reference reference
+                    && this.id.equals(reference.id)
+                    && this.owner.equals(reference.owner)
+                    && this.name.equals(reference.name);
+        }
+
+        @Override
+        public int hashCode() {
+            return this.id.hashCode();
+        }
+    }
+}
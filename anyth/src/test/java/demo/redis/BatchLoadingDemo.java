@@ -0,0 +1,83 @@
+package demo.redis;
+
+/*
+ * Copyright 2024 anyth contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import com.github.golgolex.anyth.impl.redis.BinaryRedisLayerSerializer;
+import com.github.golgolex.anyth.impl.redis.DefaultRedisRepository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Loads 100k objects from an {@link InMemoryJedis} keyspace with the batched methods of
+ * {@link DefaultRedisRepository} and compares their round trips with a query per key. No Redis
+ * connection is required.
+ */
+public class BatchLoadingDemo {
+
+    private static final int OBJECTS = 100_000;
+
+    public static void main(String[] args) {
+        InMemoryJedis jedis = new InMemoryJedis();
+        DefaultRedisRepository repository = new DefaultRedisRepository("demo", jedis, new BinaryRedisLayerSerializer());
+        repository.applyLayer(TestCommonRedisLayer.class);
+
+        List<String> keys = new ArrayList<>(OBJECTS);
+        for (int i = 0; i < OBJECTS; i++) {
+            String key = "invoice:" + i;
+            keys.add(key);
+            repository.insertBytes(key, repository.serializeBytes(new RedisSerializerBenchmark.Invoice()));
+        }
+
+        jedis.resetRoundTrips();
+        long start = System.nanoTime();
+        int found = 0;
+        for (String key : keys) {
+            if (repository.query(key, RedisSerializerBenchmark.Invoice.class) != null) {
+                found++;
+            }
+        }
+        report("query per key", found, jedis, start);
+
+        for (int batchSize : new int[]{100, 500, 2_000}) {
+            repository.setBatchSize(batchSize);
+            jedis.resetRoundTrips();
+            start = System.nanoTime();
+            List<RedisSerializerBenchmark.Invoice> invoices = repository.queryMany(keys, RedisSerializerBenchmark.Invoice.class);
+            report("queryMany, batches of " + batchSize, invoices.size(), jedis, start);
+        }
+
+        repository.setBatchSize(500);
+        jedis.resetRoundTrips();
+        start = System.nanoTime();
+        Collection<RedisSerializerBenchmark.Invoice> all = repository.queryAll(RedisSerializerBenchmark.Invoice.class);
+        report("queryAll", all.size(), jedis, start);
+
+        jedis.resetRoundTrips();
+        long first = repository.streamAll("invoice:", RedisSerializerBenchmark.Invoice.class).limit(10).count();
+        System.out.println("streamAll, first " + first + ": " + jedis.getRoundTrips() + " round trips");
+
+        List<String> mixed = List.of("invoice:1", "missing", "invoice:2");
+        System.out.println("missing keys left out: " + (repository.queryMany(mixed, RedisSerializerBenchmark.Invoice.class).size() == 2));
+    }
+
+    private static void report(String name, int objects, InMemoryJedis jedis, long start) {
+        System.out.printf("%s: %d objects (%s), %d round trips, %d ms%n", name, objects, objects == OBJECTS,
+                jedis.getRoundTrips(), (System.nanoTime() - start) / 1_000_000);
+    }
+}
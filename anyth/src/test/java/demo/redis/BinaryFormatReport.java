@@ -0,0 +1,126 @@
+package demo.redis;
+
+/*
+ * Copyright 2024 anyth contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import com.github.golgolex.anyth.impl.redis.BinaryRedisLayerSerializer;
+import com.github.golgolex.anyth.impl.redis.DefaultRedisRepository;
+import com.github.golgolex.anyth.impl.redis.GsonRedisLayerSerializer;
+import com.github.golgolex.anyth.impl.redis.RedisLayerBase;
+import com.github.golgolex.anyth.impl.redis.RedisLayerSerializer;
+import com.github.golgolex.anyth.layer.LayerRegistry;
+import com.github.golgolex.anyth.layer.defaults.*;
+import redis.clients.jedis.Jedis;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compares the value size and decode time of {@link BinaryRedisLayerSerializer} with the Gson JSON
+ * format on the demo classes, and checks that the binary values decode to the same objects.
+ * <p>
+ * Pass {@code host port [password]} to also store both values and report their
+ * {@code MEMORY USAGE}, without arguments no Redis connection is required.
+ */
+public class BinaryFormatReport {
+
+    private static final int WARMUP = 20_000;
+    private static final int ITERATIONS = 200_000;
+
+    public static void main(String[] args) {
+        LayerRegistry<RedisLayerBase<?>> layerRegistry = LayerRegistry.of(List.of(new TestCommonRedisLayer()),
+                List.of(new StringLayer(),
+                        new IntegerLayer(),
+                        new UUIDLayer(),
+                        new InstantLayer(),
+                        new EnumLayer()));
+        GsonRedisLayerSerializer gson = new GsonRedisLayerSerializer();
+        BinaryRedisLayerSerializer binary = new BinaryRedisLayerSerializer();
+
+        Jedis jedis = null;
+        if (args.length >= 2) {
+            jedis = new Jedis(args[0], Integer.parseInt(args[1]));
+            if (args.length >= 3) {
+                jedis.auth(args[2]);
+            }
+        }
+
+        report("RedisTestClass", new RedisTestClass(new RedisTestClass(new RedisTestClass())), gson, binary, layerRegistry, jedis);
+        report("Invoice", new RedisSerializerBenchmark.Invoice(), gson, binary, layerRegistry, jedis);
+
+        RedisSerializerBenchmark.Invoice invoice = new RedisSerializerBenchmark.Invoice();
+        byte[] json = gson.encodeBytes(invoice, layerRegistry);
+        System.out.println("binary reads json: " + invoice.equals(binary.decodeBytes(json, layerRegistry, RedisSerializerBenchmark.Invoice.class)));
+
+        if (jedis != null) {
+            jedis.close();
+        }
+    }
+
+    private static void report(String name,
+                               Object object,
+                               GsonRedisLayerSerializer gson,
+                               BinaryRedisLayerSerializer binary,
+                               LayerRegistry<RedisLayerBase<?>> layerRegistry,
+                               Jedis jedis) {
+        byte[] json = gson.encodeBytes(object, layerRegistry);
+        byte[] encoded = binary.encodeBytes(object, layerRegistry);
+        Object decoded = binary.decodeBytes(encoded, layerRegistry, object.getClass());
+
+        System.out.printf("%s: json %d bytes, binary %d bytes (%.0f%%)%n", name, json.length, encoded.length,
+                100.0 * encoded.length / json.length);
+        System.out.println(name + " round-trip: " + Arrays.equals(json, gson.encodeBytes(decoded, layerRegistry)));
+        System.out.printf("%s decode: json %.1f ns, binary %.1f ns%n", name,
+                decodeNanos(gson, json, object.getClass(), layerRegistry),
+                decodeNanos(binary, encoded, object.getClass(), layerRegistry));
+
+        if (jedis != null) {
+            System.out.printf("%s MEMORY USAGE: json %d bytes, binary %d bytes%n", name,
+                    memoryUsage(jedis, name, gson, object, layerRegistry),
+                    memoryUsage(jedis, name, binary, object, layerRegistry));
+        }
+    }
+
+    private static double decodeNanos(RedisLayerSerializer serializer,
+                                      byte[] serialized,
+                                      Class<?> type,
+                                      LayerRegistry<RedisLayerBase<?>> layerRegistry) {
+        for (int i = 0; i < WARMUP; i++) {
+            serializer.decodeBytes(serialized, layerRegistry, type);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            serializer.decodeBytes(serialized, layerRegistry, type);
+        }
+        return (double) (System.nanoTime() - start) / ITERATIONS;
+    }
+
+    private static long memoryUsage(Jedis jedis,
+                                    String name,
+                                    RedisLayerSerializer serializer,
+                                    Object object,
+                                    LayerRegistry<RedisLayerBase<?>> layerRegistry) {
+        DefaultRedisRepository repository = new DefaultRedisRepository("report", jedis, serializer);
+        layerRegistry.getLayers().forEach(repository.getLayerRegistry()::putLayer);
+        layerRegistry.getCommonLayers().forEach(repository.getLayerRegistry()::putCommonLayer);
+        String key = "anyth-report-" + name;
+        repository.delete(key);
+        repository.insert(key, object);
+        long memoryUsage = repository.memoryUsage(key);
+        repository.delete(key);
+        return memoryUsage;
+    }
+}
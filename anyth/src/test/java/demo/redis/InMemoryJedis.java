@@ -0,0 +1,186 @@
+package demo.redis;
+
+/*
+ * Copyright 2024 anyth contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import redis.clients.jedis.CommandArguments;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Protocol;
+import redis.clients.jedis.args.Rawable;
+import redis.clients.jedis.params.ScanParams;
+import redis.clients.jedis.params.SetParams;
+import redis.clients.jedis.resps.ScanResult;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+/**
+ * A {@link Jedis} keeping its keyspace in memory, for demos that need no Redis server. Only the
+ * commands used by {@link com.github.golgolex.anyth.impl.redis.DefaultRedisRepository} for plain
+ * values are implemented, each call counts as one round trip.
+ */
+public class InMemoryJedis extends Jedis {
+
+    private final TreeMap<String, byte[]> values = new TreeMap<>();
+
+    private long roundTrips;
+
+    public long getRoundTrips() {
+        return this.roundTrips;
+    }
+
+    public void resetRoundTrips() {
+        this.roundTrips = 0;
+    }
+
+    public int size() {
+        return this.values.size();
+    }
+
+    @Override
+    public String set(byte[] key, byte[] value) {
+        this.roundTrips++;
+        this.values.put(string(key), value);
+        return "OK";
+    }
+
+    /**
+     * Supports the {@code NX} and {@code XX} conditions, other parameters are ignored.
+     */
+    @Override
+    public String set(byte[] key, byte[] value, SetParams params) {
+        this.roundTrips++;
+        CommandArguments arguments = new CommandArguments(Protocol.Command.SET);
+        params.addParams(arguments);
+        boolean exists = this.values.containsKey(string(key));
+        for (Rawable argument : arguments) {
+            String name = new String(argument.getRaw(), StandardCharsets.UTF_8);
+            if (name.equalsIgnoreCase("NX") && exists || name.equalsIgnoreCase("XX") && !exists) {
+                return null;
+            }
+        }
+        this.values.put(string(key), value);
+        return "OK";
+    }
+
+    @Override
+    public byte[] get(byte[] key) {
+        this.roundTrips++;
+        return this.values.get(string(key));
+    }
+
+    @Override
+    public boolean exists(String key) {
+        this.roundTrips++;
+        return this.values.containsKey(key);
+    }
+
+    @Override
+    public boolean exists(byte[] key) {
+        return exists(string(key));
+    }
+
+    @Override
+    public long del(String key) {
+        this.roundTrips++;
+        return this.values.remove(key) != null ? 1 : 0;
+    }
+
+    @Override
+    public long del(String... keys) {
+        this.roundTrips++;
+        long deleted = 0;
+        for (String key : keys) {
+            deleted += this.values.remove(key) != null ? 1 : 0;
+        }
+        return deleted;
+    }
+
+    @Override
+    public List<byte[]> mget(byte[]... keys) {
+        this.roundTrips++;
+        List<byte[]> result = new ArrayList<>(keys.length);
+        for (byte[] key : keys) {
+            result.add(this.values.get(string(key)));
+        }
+        return result;
+    }
+
+    /**
+     * Walks the sorted keyspace: the cursor is the next key behind a {@code @}, every call looks at
+     * {@code COUNT} keys and returns the matching ones. Keys removed in between don't make the walk
+     * skip others, like with the cursors of Redis.
+     */
+    @Override
+    public ScanResult<String> scan(String cursor, ScanParams params) {
+        this.roundTrips++;
+        Pattern pattern = glob(params.match());
+        int count = count(params);
+
+        Iterator<String> keys = cursor.equals(ScanParams.SCAN_POINTER_START)
+                ? this.values.keySet().iterator()
+                : this.values.tailMap(cursor.substring(1), true).keySet().iterator();
+        List<String> page = new ArrayList<>();
+        for (int i = 0; i < count && keys.hasNext(); i++) {
+            String key = keys.next();
+            if (pattern.matcher(key).matches()) {
+                page.add(key);
+            }
+        }
+        return new ScanResult<>(keys.hasNext() ? "@" + keys.next() : ScanParams.SCAN_POINTER_START, page);
+    }
+
+    private static int count(ScanParams params) {
+        CommandArguments arguments = new CommandArguments(Protocol.Command.SCAN);
+        params.addParams(arguments);
+        Iterator<Rawable> iterator = arguments.iterator();
+        while (iterator.hasNext()) {
+            if (new String(iterator.next().getRaw(), StandardCharsets.UTF_8).equalsIgnoreCase("COUNT") && iterator.hasNext()) {
+                return Integer.parseInt(new String(iterator.next().getRaw(), StandardCharsets.UTF_8));
+            }
+        }
+        return 10;
+    }
+
+    /**
+     * Translates the {@code *} wildcards and backslash escapes of a glob, enough for prefix patterns.
+     */
+    private static Pattern glob(String glob) {
+        if (glob == null) {
+            return Pattern.compile(".*", Pattern.DOTALL);
+        }
+        StringBuilder regex = new StringBuilder();
+        for (int i = 0; i < glob.length(); i++) {
+            char c = glob.charAt(i);
+            if (c == '\\' && i + 1 < glob.length()) {
+                regex.append(Pattern.quote(String.valueOf(glob.charAt(++i))));
+            } else if (c == '*') {
+                regex.append(".*");
+            } else {
+                regex.append(Pattern.quote(String.valueOf(c)));
+            }
+        }
+        return Pattern.compile(regex.toString(), Pattern.DOTALL);
+    }
+
+    private static String string(byte[] key) {
+        return new String(key, StandardCharsets.UTF_8);
+    }
+}
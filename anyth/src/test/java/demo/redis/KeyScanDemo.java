@@ -0,0 +1,70 @@
+package demo.redis;
+
+/*
+ * Copyright 2024 anyth contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import com.github.golgolex.anyth.impl.redis.DefaultRedisRepository;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Iterates the keys of an {@link InMemoryJedis} keyspace through the SCAN based key methods of
+ * {@link DefaultRedisRepository} and reports the round trips they take. No Redis connection is
+ * required.
+ */
+public class KeyScanDemo {
+
+    private static final int USERS = 100_000;
+    private static final int SESSIONS = 10_000;
+
+    public static void main(String[] args) {
+        InMemoryJedis jedis = new InMemoryJedis();
+        DefaultRedisRepository repository = new DefaultRedisRepository("demo", jedis);
+        byte[] value = "{}".getBytes();
+        for (int i = 0; i < USERS; i++) {
+            repository.insertBytes("user:" + i, value);
+        }
+        for (int i = 0; i < SESSIONS; i++) {
+            repository.insertBytes("session:" + i, value);
+        }
+        repository.insertBytes("odd*key", value);
+        repository.insertBytes("odd-key", value);
+
+        jedis.resetRoundTrips();
+        List<String> first = repository.streamKeys("user:").limit(5).collect(Collectors.toList());
+        System.out.println("first users: " + first + " in " + jedis.getRoundTrips() + " SCAN calls");
+
+        jedis.resetRoundTrips();
+        int sessions = repository.queryAll("session:").size();
+        System.out.println("sessions: " + sessions + " (" + (sessions == SESSIONS) + ") in " + jedis.getRoundTrips() + " SCAN calls");
+
+        System.out.println("escaped prefix: " + repository.queryAll("odd*"));
+
+        for (int scanCount : new int[]{100, 1000, 10_000}) {
+            repository.setScanCount(scanCount);
+            jedis.resetRoundTrips();
+            long keys = repository.streamKeys("").count();
+            System.out.println("COUNT " + scanCount + ": " + keys + " keys in " + jedis.getRoundTrips() + " SCAN calls");
+        }
+
+        repository.setScanCount(1000);
+        jedis.resetRoundTrips();
+        boolean cleared = repository.clear("session:");
+        System.out.println("cleared sessions: " + cleared + ", " + jedis.size() + " keys left (" + (jedis.size() == USERS + 2)
+                + ") in " + jedis.getRoundTrips() + " round trips");
+    }
+}
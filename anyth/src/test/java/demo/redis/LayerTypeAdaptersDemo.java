@@ -0,0 +1,91 @@
+package demo.redis;
+
+/*
+ * Copyright 2024 anyth contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import com.github.golgolex.anyth.impl.redis.GsonRedisLayerSerializer;
+import com.github.golgolex.anyth.impl.redis.RedisLayerBase;
+import com.github.golgolex.anyth.layer.LayerRegistry;
+import com.github.golgolex.anyth.layer.defaults.*;
+import demo.TestCommonClass;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * Round-trips an object with layered fields through {@link GsonRedisLayerSerializer}: a
+ * {@link RedisLayerBase} for {@link TestCommonClass} and the common layers for instants, decimals
+ * and enums. Replacing the enum layer rebuilds the adapters. No Redis connection is required.
+ */
+public class LayerTypeAdaptersDemo {
+
+    public static void main(String[] args) {
+        GsonRedisLayerSerializer serializer = new GsonRedisLayerSerializer();
+        LayerRegistry<RedisLayerBase<?>> layerRegistry = LayerRegistry.of(List.of(new TestCommonRedisLayer()),
+                List.of(new StringLayer(),
+                        new IntegerLayer(),
+                        new UUIDLayer(),
+                        new InstantLayer(),
+                        new EnumLayer()));
+
+        Order order = new Order();
+        String json = serializer.encode(order, layerRegistry);
+        System.out.println("names: " + json);
+        System.out.println("round-trip: " + order.equals(serializer.decode(json, layerRegistry, Order.class)));
+
+        layerRegistry.remove(Enum.class);
+        layerRegistry.putCommonLayer(Enum.class, new EnumOrdinalLayer());
+        String ordinals = serializer.encode(order, layerRegistry);
+        System.out.println("ordinals: " + ordinals);
+        System.out.println("round-trip: " + order.equals(serializer.decode(ordinals, layerRegistry, Order.class)));
+        System.out.println("reads names: " + order.equals(serializer.decode(json, layerRegistry, Order.class)));
+    }
+
+    public enum Status {
+        OPEN,
+        PAID,
+        SHIPPED
+    }
+
+    public static class Order {
+
+        private UUID id = UUID.randomUUID();
+        private TestCommonClass customer = new TestCommonClass("customer-7");
+        private Instant created = Instant.parse("2024-05-01T12:30:00Z");
+        private BigDecimal total = new BigDecimal("149.90");
+        private Status status = Status.PAID;
+        private List<Status> history = List.of(Status.OPEN, Status.PAID);
+
+        @Override
+        public boolean equals(Object object) {
+            return object instanceof Order other
+                    && this.id.equals(other.id)
+                    && this.customer.getId().equals(other.customer.getId())
+                    && this.created.equals(other.created)
+                    && this.total.equals(other.total)
+                    && this.status == other.status
+                    && this.history.equals(other.history);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(this.id);
+        }
+    }
+}
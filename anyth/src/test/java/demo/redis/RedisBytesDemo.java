@@ -0,0 +1,97 @@
+package demo.redis;
+
+/*
+ * Copyright 2024 anyth contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import com.github.golgolex.anyth.impl.redis.GsonRedisLayerSerializer;
+import com.github.golgolex.anyth.impl.redis.RedisLayerBase;
+import com.github.golgolex.anyth.layer.LayerRegistry;
+import com.github.golgolex.anyth.layer.defaults.*;
+
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Measures the bytes allocated per value when a large {@link Inventory} is turned into the bytes
+ * sent to Redis and back, once through a string and once through the byte path of
+ * {@link GsonRedisLayerSerializer}. No Redis connection is required.
+ */
+public class RedisBytesDemo {
+
+    private static final int ITERATIONS = 2_000;
+
+    public static void main(String[] args) {
+        GsonRedisLayerSerializer serializer = new GsonRedisLayerSerializer();
+        LayerRegistry<RedisLayerBase<?>> layerRegistry = LayerRegistry.of(List.of(), List.of(new StringLayer(),
+                new IntegerLayer(),
+                new UUIDLayer()));
+
+        Inventory inventory = new Inventory();
+        for (int i = 0; i < 2_000; i++) {
+            inventory.items.add("item-" + i + "-" + UUID.randomUUID());
+        }
+        inventory.items.add("non-ASCII: \u00e4\u20ac\ud83d\ude00");
+        byte[] bytes = serializer.encodeBytes(inventory, layerRegistry);
+        System.out.println("value size: " + bytes.length + " bytes");
+        System.out.println("same bytes as the string path: "
+                + Arrays.equals(bytes, serializer.encode(inventory, layerRegistry).getBytes(StandardCharsets.UTF_8)));
+        System.out.println("round trip: " + inventory.items.equals(((Inventory) serializer.decodeBytes(bytes, layerRegistry, Inventory.class)).items));
+
+        com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        for (int round = 0; round < 3; round++) {
+            long allocated = threadMXBean.getCurrentThreadAllocatedBytes();
+            for (int i = 0; i < ITERATIONS; i++) {
+                serializer.encode(inventory, layerRegistry).getBytes(StandardCharsets.UTF_8);
+            }
+            long stringEncode = threadMXBean.getCurrentThreadAllocatedBytes() - allocated;
+
+            allocated = threadMXBean.getCurrentThreadAllocatedBytes();
+            for (int i = 0; i < ITERATIONS; i++) {
+                serializer.decode(new String(bytes, StandardCharsets.UTF_8), layerRegistry, Inventory.class);
+            }
+            long stringDecode = threadMXBean.getCurrentThreadAllocatedBytes() - allocated;
+
+            allocated = threadMXBean.getCurrentThreadAllocatedBytes();
+            for (int i = 0; i < ITERATIONS; i++) {
+                serializer.encodeBytes(inventory, layerRegistry);
+            }
+            long bytesEncode = threadMXBean.getCurrentThreadAllocatedBytes() - allocated;
+
+            allocated = threadMXBean.getCurrentThreadAllocatedBytes();
+            for (int i = 0; i < ITERATIONS; i++) {
+                serializer.decodeBytes(bytes, layerRegistry, Inventory.class);
+            }
+            long bytesDecode = threadMXBean.getCurrentThreadAllocatedBytes() - allocated;
+
+            if (round == 2) {
+                System.out.printf("string encode: %d bytes/value, decode: %d bytes/value%n",
+                        stringEncode / ITERATIONS, stringDecode / ITERATIONS);
+                System.out.printf("byte[] encode: %d bytes/value, decode: %d bytes/value%n",
+                        bytesEncode / ITERATIONS, bytesDecode / ITERATIONS);
+            }
+        }
+    }
+
+    public static class Inventory {
+
+        private UUID owner = UUID.randomUUID();
+        private List<String> items = new ArrayList<>();
+    }
+}
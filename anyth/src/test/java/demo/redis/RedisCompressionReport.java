@@ -0,0 +1,88 @@
+package demo.redis;
+
+/*
+ * Copyright 2024 anyth contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import com.github.golgolex.anyth.codec.CompressionMetrics;
+import com.github.golgolex.anyth.codec.ValueCompressor;
+import com.github.golgolex.anyth.impl.redis.BinaryRedisLayerSerializer;
+import com.github.golgolex.anyth.impl.redis.DefaultRedisRepository;
+import com.github.golgolex.anyth.impl.redis.GsonRedisLayerSerializer;
+import com.github.golgolex.anyth.impl.redis.RedisLayerBase;
+import com.github.golgolex.anyth.impl.redis.RedisLayerSerializer;
+import com.github.golgolex.anyth.layer.LayerRegistry;
+import com.github.golgolex.anyth.layer.defaults.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.Deflater;
+
+/**
+ * Reports the ratio and CPU cost of the value compression of {@link DefaultRedisRepository} on a
+ * large cached object, for both value formats and every {@link Deflater} level, through the same
+ * {@link ValueCompressor} the repository uses. No Redis connection is required.
+ */
+public class RedisCompressionReport {
+
+    private static final int ITERATIONS = 200;
+
+    public static void main(String[] args) {
+        LayerRegistry<RedisLayerBase<?>> layerRegistry = LayerRegistry.of(List.of(new TestCommonRedisLayer()),
+                List.of(new StringLayer(),
+                        new IntegerLayer(),
+                        new UUIDLayer(),
+                        new InstantLayer(),
+                        new EnumLayer()));
+        Catalog catalog = new Catalog();
+        for (int i = 0; i < 2_000; i++) {
+            catalog.invoices.add(new RedisSerializerBenchmark.Invoice());
+        }
+
+        report("json", new GsonRedisLayerSerializer(), catalog, layerRegistry);
+        report("binary", new BinaryRedisLayerSerializer(), catalog, layerRegistry);
+    }
+
+    private static void report(String name,
+                               RedisLayerSerializer serializer,
+                               Catalog catalog,
+                               LayerRegistry<RedisLayerBase<?>> layerRegistry) {
+        byte[] encoded = serializer.encodeBytes(catalog, layerRegistry);
+        System.out.printf("%s: %d bytes uncompressed%n", name, encoded.length);
+
+        for (int level : new int[]{Deflater.BEST_SPEED, Deflater.DEFAULT_COMPRESSION, Deflater.BEST_COMPRESSION}) {
+            ValueCompressor compressor = new ValueCompressor();
+            compressor.setLevel(level);
+            byte[] compressed = compressor.compress(encoded, 1);
+            for (int i = 0; i < ITERATIONS; i++) {
+                compressor.decompress(compressor.compress(encoded, 1), 1);
+            }
+            System.out.println("  round trip: " + Arrays.equals(encoded, compressor.decompress(compressed, 1)));
+
+            compressor.getMetrics().reset();
+            for (int i = 0; i < ITERATIONS; i++) {
+                compressor.decompress(compressor.compress(encoded, 1), 1);
+            }
+            CompressionMetrics metrics = compressor.getMetrics();
+            System.out.printf("  level %2d: %d bytes, %s%n", level, compressed.length, metrics);
+        }
+    }
+
+    public static class Catalog {
+
+        private List<RedisSerializerBenchmark.Invoice> invoices = new ArrayList<>();
+    }
+}
@@ -0,0 +1,134 @@
+package demo.redis;
+
+/*
+ * Copyright 2024 anyth contributors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import com.github.golgolex.anyth.annotations.StoredAs;
+import com.github.golgolex.anyth.impl.redis.GsonRedisLayerSerializer;
+import com.github.golgolex.anyth.impl.redis.JacksonRedisLayerSerializer;
+import com.github.golgolex.anyth.impl.redis.RedisLayerBase;
+import com.github.golgolex.anyth.impl.redis.RedisLayerSerializer;
+import com.github.golgolex.anyth.layer.LayerRegistry;
+import com.github.golgolex.anyth.layer.defaults.*;
+import demo.TestCommonClass;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * Measures the per-value encode/decode time of {@link GsonRedisLayerSerializer} and
+ * {@link JacksonRedisLayerSerializer} on an object with layered and aliased fields, and checks
+ * that each serializer reads what the other wrote. No Redis connection is required.
+ */
+public class RedisSerializerBenchmark {
+
+    private static final int WARMUP = 20_000;
+    private static final int ITERATIONS = 200_000;
+
+    public static void main(String[] args) {
+        LayerRegistry<RedisLayerBase<?>> layerRegistry = LayerRegistry.of(List.of(new TestCommonRedisLayer()),
+                List.of(new StringLayer(),
+                        new IntegerLayer(),
+                        new UUIDLayer(),
+                        new InstantLayer(),
+                        new EnumLayer()));
+        GsonRedisLayerSerializer gson = new GsonRedisLayerSerializer();
+        JacksonRedisLayerSerializer jackson = new JacksonRedisLayerSerializer();
+        Invoice invoice = new Invoice();
+
+        String gsonJson = gson.encode(invoice, layerRegistry);
+        String jacksonJson = jackson.encode(invoice, layerRegistry);
+        System.out.println("gson:    " + gsonJson);
+        System.out.println("jackson: " + jacksonJson);
+        System.out.println("jackson round-trip: " + invoice.equals(jackson.decode(jacksonJson, layerRegistry, Invoice.class)));
+        System.out.println("jackson reads gson: " + invoice.equals(jackson.decode(gsonJson, layerRegistry, Invoice.class)));
+        System.out.println("gson reads jackson: " + invoice.equals(gson.decode(jacksonJson, layerRegistry, Invoice.class)));
+
+        run("gson", gson, invoice, layerRegistry);
+        run("jackson", jackson, invoice, layerRegistry);
+    }
+
+    private static void run(String name,
+                            RedisLayerSerializer serializer,
+                            Invoice invoice,
+                            LayerRegistry<RedisLayerBase<?>> layerRegistry) {
+        byte[] bytes = serializer.encodeBytes(invoice, layerRegistry);
+
+        for (int i = 0; i < WARMUP; i++) {
+            serializer.encodeBytes(invoice, layerRegistry);
+            serializer.decodeBytes(bytes, layerRegistry, Invoice.class);
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            serializer.encodeBytes(invoice, layerRegistry);
+        }
+        long encodeNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            serializer.decodeBytes(bytes, layerRegistry, Invoice.class);
+        }
+        long decodeNanos = System.nanoTime() - start;
+
+        System.out.printf("%s: %d bytes%n", name, bytes.length);
+        System.out.printf("%s encode: %.1f ns/value%n", name, (double) encodeNanos / ITERATIONS);
+        System.out.printf("%s decode: %.1f ns/value%n", name, (double) decodeNanos / ITERATIONS);
+    }
+
+    public enum Status {
+        OPEN,
+        PAID
+    }
+
+    public static class Invoice {
+
+        private UUID id = UUID.randomUUID();
+        @StoredAs("c")
+        private TestCommonClass customer = new TestCommonClass("customer-7");
+        @StoredAs("t")
+        private Instant created = Instant.parse("2024-05-01T12:30:00Z");
+        private BigDecimal total = new BigDecimal("149.90");
+        private Status status = Status.PAID;
+        private List<String> lines = List.of("keyboard", "mouse", "monitor");
+        private int quantity = 3;
+        private String note;
+        private byte[] signature = {1, 2, 3, -128, 127};
+
+        @Override
+        public boolean equals(Object object) {
+            return object instanceof Invoice other
+                    && this.id.equals(other.id)
+                    && this.customer.getId().equals(other.customer.getId())
+                    && this.created.equals(other.created)
+                    && this.total.equals(other.total)
+                    && this.status == other.status
+                    && this.lines.equals(other.lines)
+                    && this.quantity == other.quantity
+                    && Objects.equals(this.note, other.note)
+                    && Arrays.equals(this.signature, other.signature);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(this.id);
+        }
+    }
+}
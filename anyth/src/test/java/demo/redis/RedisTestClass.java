@@ -16,6 +16,7 @@ package demo.redis;
  * limitations under the License.
  */
 
+import com.github.golgolex.anyth.annotations.AnythEntity;
 import lombok.Getter;
 
 import java.util.ArrayList;
@@ -23,6 +24,7 @@ import java.util.List;
 import java.util.UUID;
 
 @Getter
+@AnythEntity
 public class RedisTestClass {
 
     private String test = "Pascal";